@@ -15,8 +15,14 @@
  */
 package de.rhm176.silk.loader;
 
+import de.rhm176.silk.loader.cache.GameClassIndexCache;
+import de.rhm176.silk.loader.cache.GameDiscoveryCache;
+import de.rhm176.silk.loader.index.GameClassIndex;
+import de.rhm176.silk.loader.patch.CachingGameTransformer;
 import de.rhm176.silk.loader.patch.ModInitPatch;
 import de.rhm176.silk.loader.patch.WindowTitlePatch;
+import de.rhm176.silk.loader.trace.StartupTimeline;
+import de.rhm176.silk.loader.trace.StartupTimeline.Phase;
 import java.io.File;
 import java.io.IOException;
 import java.lang.invoke.MethodHandle;
@@ -26,11 +32,12 @@ import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
-import java.util.jar.JarFile;
 import java.util.stream.Stream;
+import net.fabricmc.accesswidener.AccessWidener;
+import net.fabricmc.loader.impl.FabricLoaderImpl;
 import net.fabricmc.loader.impl.game.GameProvider;
 import net.fabricmc.loader.impl.game.patch.GameTransformer;
 import net.fabricmc.loader.impl.launch.FabricLauncher;
@@ -39,8 +46,14 @@ import net.fabricmc.loader.impl.util.ExceptionUtil;
 import net.fabricmc.loader.impl.util.SystemProperties;
 
 public class EquilinoxGameProvider implements GameProvider {
-    private final GameTransformer transformer = new GameTransformer(new WindowTitlePatch(this), new ModInitPatch());
-    private final Set<String> gameClasses;
+    static final String ENTRYPOINT = "main.MainApp";
+
+    // getBuiltinTransforms is called for every class Knot loads, so don't allocate a new set each time
+    private static final Set<BuiltinTransform> GAME_CLASS_TRANSFORMS = Set.of(BuiltinTransform.CLASS_TWEAKS);
+
+    private final CachingGameTransformer transformer =
+            new CachingGameTransformer(this::getRawGameVersion, new WindowTitlePatch(this), new ModInitPatch());
+    private final GameClassIndex gameClasses;
 
     private List<Path> classPath;
 
@@ -50,26 +63,54 @@ public class EquilinoxGameProvider implements GameProvider {
     private EquilinoxVersion version;
 
     public EquilinoxGameProvider() {
-        gameClasses = new HashSet<>();
         String gameJar = System.getProperty(SystemProperties.GAME_JAR_PATH);
+        Optional<LaunchHandoff> handoff = LaunchHandoff.forGameJar(gameJar);
+        Optional<GameStartup> startup = GameStartup.forGameJar(gameJar);
 
-        if (gameJar != null) {
-            try (JarFile jarFile = new JarFile(System.getProperty(SystemProperties.GAME_JAR_PATH))) {
-                jarFile.stream()
-                        .filter(entry -> !entry.isDirectory() && entry.getName().endsWith(".class"))
-                        .forEach(entry -> {
-                            String className = entry.getName()
-                                    .replace('/', '.')
-                                    .replace('\\', '.')
-                                    .replace(".class", "");
-                            gameClasses.add(className);
-                        });
-            } catch (IOException e) {
-                throw ExceptionUtil.wrap(new RuntimeException("Failed to collect Equilinox game classes", e));
+        if (handoff.isPresent()) {
+            gameClasses = handoff.get().gameClasses();
+        } else if (startup.isPresent()) {
+            gameClasses = startup.get().gameClasses().join();
+        } else if (gameJar != null) {
+            gameClasses = collectGameClasses(Paths.get(gameJar), null);
+        } else {
+            gameClasses = GameClassIndex.EMPTY;
+        }
+    }
+
+    static GameClassIndex collectGameClasses(Path gameJar, String fingerprint) {
+        try {
+            if (fingerprint == null) {
+                // launched without Silk's main, the game jar always comes from fabric.gameJarPath
+                fingerprint = GameDiscoveryCache.resolve(gameJar, null, false).fingerprint();
             }
+            return GameClassIndexCache.getOrBuild(gameJar, fingerprint);
+        } catch (IOException e) {
+            throw ExceptionUtil.wrap(new RuntimeException("Failed to collect Equilinox game classes", e));
+        }
+    }
+
+    static Path resolveBase(String gameJar) {
+        try {
+            return Paths.get(gameJar).toRealPath();
+        } catch (IOException e) {
+            throw ExceptionUtil.wrap(new RuntimeException("Failed to find base", e));
         }
     }
 
+    static List<Path> toRealPaths(String classPath) {
+        return Stream.of(classPath.split(File.pathSeparator))
+                .map(Path::of)
+                .map((path) -> {
+                    try {
+                        return path.toRealPath();
+                    } catch (IOException e) {
+                        throw ExceptionUtil.wrap(new RuntimeException("Failed to get real path of " + path, e));
+                    }
+                })
+                .toList();
+    }
+
     @Override
     public String getGameId() {
         return "equilinox";
@@ -123,50 +164,62 @@ public class EquilinoxGameProvider implements GameProvider {
 
     @Override
     public boolean locateGame(FabricLauncher fabricLauncher, String[] args) {
-        this.arguments = new Arguments();
-        arguments.parse(args);
+        try (Phase ignored = StartupTimeline.phase("provider", "locateGame")) {
+            this.arguments = new Arguments();
+            arguments.parse(args);
 
-        var codeSource = EquilinoxGameProvider.class.getProtectionDomain().getCodeSource();
-        Path codePath;
-        try {
-            codePath = Paths.get(codeSource.getLocation().toURI());
-        } catch (URISyntaxException e) {
-            throw ExceptionUtil.wrap(
-                    new RuntimeException("Failed to find source of " + EquilinoxGameProvider.class.getName() + "?", e));
-        }
+            var codeSource = EquilinoxGameProvider.class.getProtectionDomain().getCodeSource();
+            Path codePath;
+            try {
+                codePath = Paths.get(codeSource.getLocation().toURI());
+            } catch (URISyntaxException e) {
+                throw ExceptionUtil.wrap(new RuntimeException(
+                        "Failed to find source of " + EquilinoxGameProvider.class.getName() + "?", e));
+            }
 
-        Path basePath;
-        try {
-            basePath = Paths.get(System.getProperty(SystemProperties.GAME_JAR_PATH))
-                    .toRealPath();
-        } catch (IOException e) {
-            throw ExceptionUtil.wrap(new RuntimeException("Failed to find base", e));
-        }
+            String gameJar = System.getProperty(SystemProperties.GAME_JAR_PATH);
+            Optional<LaunchHandoff> handoff = LaunchHandoff.forGameJar(gameJar);
+            Optional<GameStartup> startup = GameStartup.forGameJar(gameJar);
 
-        entryClass = "main.MainApp";
-        version = EquilinoxVersionLookup.getVersion(basePath, getEntrypoint());
-        classPath = List.of(codePath, basePath);
+            Path basePath;
+            entryClass = ENTRYPOINT;
+            if (handoff.isPresent()) {
+                basePath = handoff.get().realGameJar();
+                version = handoff.get().version();
+            } else if (startup.isPresent()) {
+                basePath = startup.get().realGameJar().join();
+                version = startup.get().version().join();
+            } else {
+                basePath = resolveBase(gameJar);
+                version = EquilinoxVersionLookup.getVersion(basePath, getEntrypoint());
+            }
+            classPath = List.of(codePath, basePath);
 
-        return true;
+            return true;
+        }
     }
 
     @Override
     public void initialize(FabricLauncher fabricLauncher) {
-        var parentClassPath = Stream.of(System.getProperty("java.class.path").split(File.pathSeparator))
-                .map(Path::of)
-                .map((path) -> {
-                    try {
-                        return path.toRealPath();
-                    } catch (IOException e) {
-                        throw ExceptionUtil.wrap(new RuntimeException("Failed to get real path of " + path, e));
-                    }
-                })
-                .filter((path) -> !classPath.contains(path))
-                .toList();
+        try (Phase ignored = StartupTimeline.phase("provider", "initialize")) {
+            String gameJar = System.getProperty(SystemProperties.GAME_JAR_PATH);
+            String javaClassPath = System.getProperty("java.class.path");
 
-        fabricLauncher.setValidParentClassPath(parentClassPath);
+            List<Path> realClassPath = LaunchHandoff.forGameJar(gameJar)
+                    .filter((handoff) -> handoff.classPath().equals(javaClassPath))
+                    .map(LaunchHandoff::realClassPath)
+                    .or(() -> GameStartup.forGameJar(gameJar)
+                            .filter((startup) -> startup.classPath().equals(javaClassPath))
+                            .map((startup) -> startup.realClassPath().join()))
+                    .orElseGet(() -> toRealPaths(javaClassPath));
+            var parentClassPath = realClassPath.stream()
+                    .filter((path) -> !classPath.contains(path))
+                    .toList();
 
-        transformer.locateEntrypoints(fabricLauncher, classPath);
+            fabricLauncher.setValidParentClassPath(parentClassPath);
+
+            transformer.locateEntrypoints(fabricLauncher, classPath);
+        }
     }
 
     @Override
@@ -190,6 +243,8 @@ public class EquilinoxGameProvider implements GameProvider {
             throw ExceptionUtil.wrap(new RuntimeException("Failed to find entry point", e));
         }
 
+        Main.knotInitialized();
+
         try {
             //noinspection ConfusingArgumentToVarargsMethod
             invoker.invokeExact(arguments.toArray());
@@ -211,6 +266,26 @@ public class EquilinoxGameProvider implements GameProvider {
 
     @Override
     public Set<BuiltinTransform> getBuiltinTransforms(String className) {
-        return gameClasses.contains(className) ? Set.of(BuiltinTransform.CLASS_TWEAKS) : Set.of();
+        return isTransformed(className) ? GAME_CLASS_TRANSFORMS : Set.of();
+    }
+
+    /**
+     * Only game classes targeted by a Silk patch or an access widener need Fabric's class tweaks, every other class
+     * is defined straight from the bytes in the game jar. Knot hands every class to Mixin regardless. If the
+     * transformer widens game classes itself, none of them need the class tweaks.
+     */
+    private boolean isTransformed(String className) {
+        if (!gameClasses.contains(className) || transformer.appliesAccessWideners()) {
+            return false;
+        }
+
+        Set<String> patchTargets = transformer.targetClasses();
+        if (patchTargets == null || patchTargets.contains(className)) {
+            return true;
+        }
+
+        // access wideners are only loaded once the game starts initializing, ask for the targets every time
+        AccessWidener accessWidener = FabricLoaderImpl.INSTANCE.getAccessWidener();
+        return accessWidener != null && accessWidener.getTargets().contains(className);
     }
 }
@@ -15,16 +15,15 @@
  */
 package de.rhm176.silk.loader;
 
-import java.io.DataInputStream;
+import de.rhm176.silk.loader.zip.GameJar;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
-import java.util.List;
 import java.util.Map;
 import net.fabricmc.loader.impl.FabricLoaderImpl;
 import net.fabricmc.loader.impl.util.ExceptionUtil;
 import net.fabricmc.loader.impl.util.LoaderUtil;
-import net.fabricmc.loader.impl.util.SimpleClassPath;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
@@ -67,42 +66,42 @@ public final class EquilinoxVersionLookup {
         Integer classPathVersion = null;
         final String[] version = {""};
 
-        try (SimpleClassPath cp = new SimpleClassPath(List.of(equilinoxJar))) {
-            try (InputStream is = cp.getInputStream(LoaderUtil.getClassFileName(entrypointClass))) {
-                DataInputStream dis = new DataInputStream(is);
+        try {
+            // read the class once, both the header and the fields are parsed from the same bytes
+            byte[] classBytes = GameJar.open(equilinoxJar).read(LoaderUtil.getClassFileName(entrypointClass));
+            if (classBytes.length < 8) {
+                throw new EOFException("Class file of " + entrypointClass + " is too short to hold a version");
+            }
 
-                if (dis.readInt() == 0xCAFEBABE) {
-                    dis.readUnsignedShort();
-                    classPathVersion = dis.readUnsignedShort();
-                }
+            ByteBuffer header = ByteBuffer.wrap(classBytes);
+            if (header.getInt(0) == 0xCAFEBABE) {
+                classPathVersion = header.getShort(6) & 0xFFFF;
             }
 
-            try (InputStream is = cp.getInputStream(LoaderUtil.getClassFileName(entrypointClass))) {
-                ClassReader classReader = new ClassReader(is);
-                classReader.accept(
-                        new ClassVisitor(FabricLoaderImpl.ASM_VERSION) {
-                            @Override
-                            public FieldVisitor visitField(
-                                    int access, String name, String descriptor, String signature, Object value) {
-                                boolean isPublic = (access & Opcodes.ACC_PUBLIC) != 0;
-                                boolean isStatic = (access & Opcodes.ACC_STATIC) != 0;
-                                boolean isFinal = (access & Opcodes.ACC_FINAL) != 0;
+            ClassReader classReader = new ClassReader(classBytes);
+            classReader.accept(
+                    new ClassVisitor(FabricLoaderImpl.ASM_VERSION) {
+                        @Override
+                        public FieldVisitor visitField(
+                                int access, String name, String descriptor, String signature, Object value) {
+                            boolean isPublic = (access & Opcodes.ACC_PUBLIC) != 0;
+                            boolean isStatic = (access & Opcodes.ACC_STATIC) != 0;
+                            boolean isFinal = (access & Opcodes.ACC_FINAL) != 0;
 
-                                if (isPublic
-                                        && isStatic
-                                        && isFinal
-                                        && "VERSION_STRING".equals(name)
-                                        && "Ljava/lang/String;".equals(descriptor)) {
+                            if (isPublic
+                                    && isStatic
+                                    && isFinal
+                                    && "VERSION_STRING".equals(name)
+                                    && "Ljava/lang/String;".equals(descriptor)) {
 
-                                    if (value instanceof String) {
-                                        version[0] = ((String) value).replaceFirst("Version ", "");
-                                    }
+                                if (value instanceof String) {
+                                    version[0] = ((String) value).replaceFirst("Version ", "");
                                 }
-                                return super.visitField(access, name, descriptor, signature, value);
                             }
-                        },
-                        ClassReader.SKIP_FRAMES | ClassReader.SKIP_DEBUG);
-            }
+                            return super.visitField(access, name, descriptor, signature, value);
+                        }
+                    },
+                    ClassReader.SKIP_FRAMES | ClassReader.SKIP_DEBUG);
         } catch (IOException e) {
             throw ExceptionUtil.wrap(e);
         }
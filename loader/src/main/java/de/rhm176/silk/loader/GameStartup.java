@@ -0,0 +1,171 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader;
+
+import de.rhm176.silk.loader.cache.CallSiteIndexCache;
+import de.rhm176.silk.loader.cache.GameDiscoveryCache;
+import de.rhm176.silk.loader.cache.NativesCache;
+import de.rhm176.silk.loader.index.CallSiteIndex;
+import de.rhm176.silk.loader.index.GameClassIndex;
+import de.rhm176.silk.loader.startup.StartupGraph;
+import de.rhm176.silk.loader.startup.StartupGraph.Node;
+import de.rhm176.silk.loader.zip.GameJar;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The launch steps that only need the game jar, started together as soon as its path is known.
+ * <p>
+ * {@link Main} waits for the natives and decides how to launch while the game class index, the game version
+ * and the real class path are prepared in the background. The {@link EquilinoxGameProvider} picks those up
+ * later in the same JVM, a relaunched JVM gets them through the {@link LaunchHandoff} instead.
+ */
+public final class GameStartup {
+    private static volatile GameStartup current;
+
+    private final String gameJarPath;
+    private final String classPath;
+    private final StartupGraph graph;
+
+    private final Node<GameDiscoveryCache.Entry> game;
+    private final Node<Path> natives;
+    private final Node<Boolean> launchInProcess;
+    private final Node<GameClassIndex> gameClasses;
+    private final Node<CallSiteIndex> callSites;
+    private final Node<Path> realGameJar;
+    private final Node<EquilinoxVersion> version;
+    private final Node<List<Path>> realClassPath;
+
+    private GameStartup(String gameJarPath, GameDiscoveryCache.Entry known, boolean discovered) {
+        this.gameJarPath = gameJarPath;
+        this.classPath = System.getProperty("java.class.path");
+        this.graph = new StartupGraph("Silk Startup");
+
+        Path gameJar = Paths.get(gameJarPath);
+
+        Node<GameJar> scan = graph.add("scan", () -> GameJar.open(gameJar));
+        game = graph.add("fingerprint", () -> GameDiscoveryCache.resolve(gameJar, known, discovered), scan);
+        natives = graph.add("natives", () -> NativesCache.getOrExtract(gameJar, game.join().fingerprint()), game);
+        launchInProcess = graph.add("launchMode", () -> Main.canLaunchInProcess(gameJar));
+        gameClasses = graph.add(
+                "classIndex",
+                () -> EquilinoxGameProvider.collectGameClasses(gameJar, game.join().fingerprint()),
+                game);
+        // nothing waits for this, it only has to be cached by the time the game classes are patched
+        callSites = graph.add(
+                "callSiteIndex", () -> CallSiteIndexCache.getOrBuild(gameJar, game.join().fingerprint()), game);
+        realGameJar = graph.add("realGameJar", () -> EquilinoxGameProvider.resolveBase(gameJarPath));
+        version = graph.add(
+                "version", () -> EquilinoxVersionLookup.getVersion(gameJar, EquilinoxGameProvider.ENTRYPOINT), scan);
+        realClassPath = graph.add("realClassPath", () -> EquilinoxGameProvider.toRealPaths(classPath));
+
+        graph.seal().thenRun(() -> {
+            if (Boolean.getBoolean(SilkProperties.LOG_STARTUP_TIMINGS)) {
+                graph.printTimings(System.out);
+            }
+        });
+    }
+
+    /**
+     * Starts the launch steps for a game jar and makes them available through {@link #forGameJar(String)}.
+     *
+     * @param gameJarPath The value of {@code fabric.gameJarPath}.
+     * @param known An entry of the game discovery cache that was already looked up, or {@code null}.
+     * @param discovered Whether discovery found the game jar, rather than {@code fabric.gameJarPath} giving it.
+     * @return The started launch steps.
+     */
+    public static GameStartup start(String gameJarPath, GameDiscoveryCache.Entry known, boolean discovered) {
+        GameStartup startup = new GameStartup(gameJarPath, known, discovered);
+        current = startup;
+        return startup;
+    }
+
+    /**
+     * Returns the launch steps started for the given game jar in this JVM.
+     *
+     * @param gameJarPath The value of {@code fabric.gameJarPath}, may be {@code null}.
+     * @return The launch steps, or an empty {@link Optional} if none were started for this game jar.
+     */
+    public static Optional<GameStartup> forGameJar(String gameJarPath) {
+        return Optional.ofNullable(current).filter(startup -> startup.gameJarPath.equals(gameJarPath));
+    }
+
+    /**
+     * @return The class path the {@link #realClassPath()} step resolved.
+     */
+    public String classPath() {
+        return classPath;
+    }
+
+    /**
+     * @return The discovery cache entry of the game jar, which holds its fingerprint.
+     */
+    public Node<GameDiscoveryCache.Entry> game() {
+        return game;
+    }
+
+    /**
+     * @return The directory the natives of the game were extracted to.
+     */
+    public Node<Path> natives() {
+        return natives;
+    }
+
+    /**
+     * @return Whether the game can be launched without relaunching the JVM, see
+     * {@link Main#canLaunchInProcess(Path)}.
+     */
+    public Node<Boolean> launchInProcess() {
+        return launchInProcess;
+    }
+
+    /**
+     * @return The index of all classes in the game jar.
+     */
+    public Node<GameClassIndex> gameClasses() {
+        return gameClasses;
+    }
+
+    /**
+     * @return The index of all method calls in the game jar.
+     */
+    public Node<CallSiteIndex> callSites() {
+        return callSites;
+    }
+
+    /**
+     * @return The real path of the game jar.
+     */
+    public Node<Path> realGameJar() {
+        return realGameJar;
+    }
+
+    /**
+     * @return The version of the game.
+     */
+    public Node<EquilinoxVersion> version() {
+        return version;
+    }
+
+    /**
+     * @return The real paths of all entries of {@link #classPath()}.
+     */
+    public Node<List<Path>> realClassPath() {
+        return realClassPath;
+    }
+}
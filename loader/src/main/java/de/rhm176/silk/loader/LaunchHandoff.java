@@ -0,0 +1,189 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader;
+
+import de.rhm176.silk.loader.index.GameClassIndex;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Work the launching JVM already did, handed to the JVM it relaunches.
+ * <p>
+ * When the game has to be relaunched, the parent writes this to a file and passes its location with
+ * {@value SilkProperties#HANDOFF}. The child memory-maps the file and uses it in place of building the game class
+ * index, looking up the game version and resolving real paths again. A handoff is only used for the game jar
+ * it was written for.
+ *
+ * @param gameJarPath The game jar path exactly as passed to the child with {@code -Dfabric.gameJarPath}.
+ * @param realGameJar The real path of the game jar.
+ * @param fingerprint The fingerprint of the game jar.
+ * @param nativesDirectory The directory the game natives were extracted to.
+ * @param version The version of the game.
+ * @param classPath The class path of the child JVM as found in {@code java.class.path}.
+ * @param realClassPath The real paths of all {@code classPath} entries.
+ * @param gameClasses The index of all classes in the game jar.
+ */
+public record LaunchHandoff(
+        String gameJarPath,
+        Path realGameJar,
+        String fingerprint,
+        Path nativesDirectory,
+        EquilinoxVersion version,
+        String classPath,
+        List<Path> realClassPath,
+        GameClassIndex gameClasses) {
+    private static final int MAGIC = 0x53484f31; // "SHO1"
+
+    private static LaunchHandoff current;
+    private static String currentFile;
+
+    /**
+     * Returns the handoff passed to this JVM, reading it on first use.
+     *
+     * @return The handoff, or an empty {@link Optional} if this JVM wasn't given one or it can't be read.
+     */
+    public static synchronized Optional<LaunchHandoff> current() {
+        String file = System.getProperty(SilkProperties.HANDOFF);
+        if (file == null) {
+            return Optional.empty();
+        }
+
+        if (!file.equals(currentFile)) {
+            try {
+                current = read(Paths.get(file));
+            } catch (IOException | RuntimeException e) {
+                System.err.println("[Silk] Ignoring unreadable launch handoff " + file + ": " + e.getMessage());
+                current = null;
+            }
+            currentFile = file;
+        }
+        return Optional.ofNullable(current);
+    }
+
+    /**
+     * Returns the handoff passed to this JVM if it was written for the given game jar.
+     *
+     * @param gameJarPath The value of {@code fabric.gameJarPath}, may be {@code null}.
+     * @return The handoff, or an empty {@link Optional} if there is none for this game jar.
+     */
+    public static Optional<LaunchHandoff> forGameJar(String gameJarPath) {
+        return current().filter(handoff -> handoff.gameJarPath().equals(gameJarPath));
+    }
+
+    /**
+     * Writes this handoff to a file.
+     *
+     * @param file The file to write to.
+     * @throws IOException if the file can't be written.
+     */
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            writeString(out, gameJarPath);
+            writeString(out, realGameJar.toString());
+            writeString(out, fingerprint);
+            writeString(out, nativesDirectory.toString());
+            writeString(out, version.rawName());
+            writeString(out, version.displayName());
+            out.writeInt(version.classVersion() != null ? version.classVersion() : -1);
+            writeString(out, classPath);
+            out.writeInt(realClassPath.size());
+            for (Path path : realClassPath) {
+                writeString(out, path.toString());
+            }
+
+            ByteBuffer index = gameClasses.buffer();
+            byte[] indexBytes = new byte[index.remaining()];
+            index.get(indexBytes);
+            out.writeInt(indexBytes.length);
+            out.write(indexBytes);
+        }
+    }
+
+    /**
+     * Reads a handoff from a file.
+     * <p>
+     * The file is memory-mapped and the class index is used straight from the mapping.
+     *
+     * @param file The file to read.
+     * @return The handoff.
+     * @throws IOException if the file can't be read.
+     * @throws IllegalArgumentException if the file is not a handoff.
+     */
+    public static LaunchHandoff read(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (UnsupportedOperationException e) {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        }
+
+        if (buffer.remaining() < 4 || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a launch handoff");
+        }
+
+        String gameJarPath = readString(buffer);
+        Path realGameJar = Paths.get(readString(buffer));
+        String fingerprint = readString(buffer);
+        Path nativesDirectory = Paths.get(readString(buffer));
+        String rawVersion = readString(buffer);
+        String displayVersion = readString(buffer);
+        int classVersion = buffer.getInt();
+        String classPath = readString(buffer);
+
+        int classPathSize = buffer.getInt();
+        List<Path> realClassPath = new ArrayList<>(classPathSize);
+        for (int i = 0; i < classPathSize; i++) {
+            realClassPath.add(Paths.get(readString(buffer)));
+        }
+
+        int indexLength = buffer.getInt();
+        GameClassIndex gameClasses = GameClassIndex.wrap(buffer.slice(buffer.position(), indexLength));
+
+        return new LaunchHandoff(
+                gameJarPath,
+                realGameJar,
+                fingerprint,
+                nativesDirectory,
+                new EquilinoxVersion(rawVersion, displayVersion, classVersion >= 0 ? classVersion : null),
+                classPath,
+                List.copyOf(realClassPath),
+                gameClasses);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
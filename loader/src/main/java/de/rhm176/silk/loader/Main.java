@@ -16,12 +16,24 @@
 package de.rhm176.silk.loader;
 
 import com.google.common.annotations.VisibleForTesting;
+import de.rhm176.silk.loader.cache.CacheDirectory;
+import de.rhm176.silk.loader.cache.GameDiscoveryCache;
+import de.rhm176.silk.loader.cache.NativesCache;
+import de.rhm176.silk.loader.patch.BakedGameJar;
+import de.rhm176.silk.loader.trace.StartupTimeline;
+import de.rhm176.silk.loader.trace.StartupTimeline.Phase;
+import de.rhm176.silk.loader.zip.CentralDirectory;
+import de.rhm176.silk.loader.zip.GameJar;
 import java.io.File;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.lang.management.RuntimeMXBean;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.loader.api.Version;
@@ -51,14 +63,25 @@ public final class Main {
     // the jar is determined to be the game.
     private static final List<String> equilinoxClassFiles = List.of("main/MainApp.class", "main/FirstScreenUi.class");
 
+    // LWJGL 2 and JInput resolve their natives through these before falling back to java.library.path
+    private static final String LWJGL_LIBRARY_PATH = "org.lwjgl.librarypath";
+    private static final String JINPUT_LIBRARY_PATH = "net.java.games.input.librarypath";
+
     private static final List<String> JVM_ARG_BLACKLIST_PREFIXES = List.of(
             "-Djava.library.path=",
-            "-Deqmodloader.loadedNatives",
+            "-D" + SilkProperties.LOADED_NATIVES,
+            "-D" + SilkProperties.HANDOFF,
             "-Xbootclasspath",
             "-javaagent",
             "-cp",
             "-classpath");
 
+    // writes a baked game jar instead of launching, see BakedGameJar
+    private static final String BAKE_ARGUMENT = "--bake";
+
+    // ended by the provider right before it hands over to the game
+    private static volatile Phase knotInit;
+
     @VisibleForTesting
     public static Optional<Path> findGameByName() {
         String currentJarName = null;
@@ -98,138 +121,325 @@ public final class Main {
     }
 
     public static Optional<Path> findGameByClasses() {
+        List<Path> candidates;
         try (Stream<Path> stream = Files.list(Paths.get("."))) {
-            return stream.filter(Files::isRegularFile)
+            candidates = stream.filter(Files::isRegularFile)
                     .filter(p ->
                             p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".jar"))
-                    .filter(jarPath -> {
-                        try (FileSystem jarFs = FileSystems.newFileSystem(jarPath, Map.of())) {
-                            for (String classEntry : equilinoxClassFiles) {
-                                if (classEntry == null || classEntry.trim().isEmpty()) {
-                                    System.err.println("[Silk] Encountered a null or empty class entry path.");
-                                    continue;
-                                }
-                                Path pathInJar = jarFs.getPath(classEntry);
-
-                                if (!Files.exists(pathInJar)) {
-                                    return false;
-                                }
-                            }
-                            return true;
-                        } catch (IOException e) {
-                            System.err.println("[Silk] IOException while checking JAR " + jarPath.getFileName()
-                                    + " for entries: " + e.getMessage());
-                        }
-                        return false;
-                    })
-                    .findFirst();
+                    .toList();
         } catch (IOException e) {
             System.err.println("[Silk] Error occurred while searching for game JAR in CWD: " + e.getMessage());
             e.printStackTrace(System.err);
+            return Optional.empty();
+        }
+
+        if (candidates.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // Only the central directory of each jar is read, so probing is cheap and mostly waiting on I/O.
+        // Results are taken in listing order and the remaining probes are cancelled once one matches.
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(candidates.size(), Runtime.getRuntime().availableProcessors()), runnable -> {
+                    Thread thread = new Thread(runnable, "Silk Jar Probe");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            List<Future<CentralDirectory>> probes = candidates.stream()
+                    .map(jarPath -> executor.submit(() -> probeGameClasses(jarPath)))
+                    .toList();
+
+            for (int i = 0; i < probes.size(); i++) {
+                CentralDirectory centralDirectory = probes.get(i).get();
+                if (centralDirectory != null) {
+                    shareScan(candidates.get(i), centralDirectory);
+                    return Optional.of(candidates.get(i));
+                }
+            }
+        } catch (ExecutionException e) {
+            System.err.println("[Silk] Error occurred while probing JARs in CWD: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
         }
 
         return Optional.empty();
     }
 
+    private static void shareScan(Path jarPath, CentralDirectory centralDirectory) {
+        // hand the directory over so the rest of the launch doesn't read it again
+        try {
+            GameJar.open(jarPath, centralDirectory);
+        } catch (IOException e) {
+            // not fatal, the jar is simply scanned again once it's needed
+        }
+    }
+
+    private static CentralDirectory probeGameClasses(Path jarPath) {
+        try {
+            CentralDirectory centralDirectory = CentralDirectory.read(jarPath);
+            for (String classEntry : equilinoxClassFiles) {
+                if (!centralDirectory.contains(classEntry)) {
+                    return null;
+                }
+            }
+            return centralDirectory;
+        } catch (IOException e) {
+            System.err.println("[Silk] IOException while checking JAR " + jarPath.getFileName() + " for entries: "
+                    + e.getMessage());
+        } catch (RuntimeException e) {
+            // a corrupt central directory can fail anywhere while it is parsed, it's just not the game
+            System.err.println("[Silk] Skipping malformed JAR " + jarPath.getFileName() + ": " + e);
+        }
+        return null;
+    }
+
     public static void main(String[] args) throws Exception {
         System.setProperty(SystemProperties.SKIP_MC_PROVIDER, "true");
 
-        if (!System.getProperties().containsKey(SystemProperties.GAME_JAR_PATH)) {
-            findGameByName()
-                    .or(Main::findGameByClasses)
-                    .ifPresentOrElse(
-                            (path) -> System.setProperty(
-                                    SystemProperties.GAME_JAR_PATH,
-                                    path.toAbsolutePath().toString()),
-                            () -> {
-                                System.err.println(
-                                        "[Silk]: Could not find the Equilinox jar. Please set one manually using"
-                                                + " the `-D" + SystemProperties.GAME_JAR_PATH
-                                                + "=<...>` JVM Argument.");
-                                System.exit(1);
-                            });
+        GameDiscoveryCache.Entry cachedGame = null;
+        boolean discovered = !System.getProperties().containsKey(SystemProperties.GAME_JAR_PATH);
+        if (discovered) {
+            try (Phase ignored = StartupTimeline.phase("launch", "discovery")) {
+                cachedGame = GameDiscoveryCache.lookup().orElse(null);
+
+                Optional.ofNullable(cachedGame)
+                        .map(GameDiscoveryCache.Entry::gameJar)
+                        .or(Main::findGameByName)
+                        .or(Main::findGameByClasses)
+                        .ifPresentOrElse(
+                                (path) -> System.setProperty(
+                                        SystemProperties.GAME_JAR_PATH,
+                                        path.toAbsolutePath().toString()),
+                                () -> {
+                                    System.err.println(
+                                            "[Silk]: Could not find the Equilinox jar. Please set one manually using"
+                                                    + " the `-D" + SystemProperties.GAME_JAR_PATH
+                                                    + "=<...>` JVM Argument.");
+                                    System.exit(1);
+                                });
+            }
         }
         System.out.println(
                 "[Silk] Game was identified to be located at: " + System.getProperty(SystemProperties.GAME_JAR_PATH));
 
-        if (System.getProperty("eqmodloader.loadedNatives") == null) {
-            RuntimeMXBean bean = ManagementFactory.getRuntimeMXBean();
-            Path file = Paths.get(System.getProperty(SystemProperties.GAME_JAR_PATH));
-            Path nativesDirectory = extractNatives(file);
-
-            List<String> command = new ArrayList<>();
-            command.add(ProcessHandle.current()
-                    .info()
-                    .command()
-                    .orElse(Paths.get(bean.getSystemProperties().get("java.home"), "bin", "java")
-                            .toAbsolutePath()
-                            .toString()));
+        if (args.length > 0 && args[0].equals(BAKE_ARGUMENT)) {
+            System.exit(bake(
+                    Paths.get(System.getProperty(SystemProperties.GAME_JAR_PATH)),
+                    Arrays.copyOfRange(args, 1, args.length)));
+        }
 
-            command.addAll(bean.getInputArguments().stream()
-                    .filter(i -> JVM_ARG_BLACKLIST_PREFIXES.stream().noneMatch(i::startsWith))
-                    .toList());
+        if (System.getProperty(SilkProperties.LOADED_NATIVES) == null) {
+            String gameJarPath = System.getProperty(SystemProperties.GAME_JAR_PATH);
+            GameStartup startup = GameStartup.start(gameJarPath, cachedGame, discovered);
+            Path nativesDirectory;
+            boolean launchInProcess;
+            try (Phase ignored = StartupTimeline.phase("launch", "natives")) {
+                nativesDirectory = startup.natives().get();
+                launchInProcess = startup.launchInProcess().get();
+            }
 
-            command.add("-cp");
-            command.add(bean.getClassPath());
+            if (launchInProcess) {
+                useNativesInProcess(nativesDirectory);
+            } else {
+                System.out.println("[Silk] Relaunching to put the game natives on java.library.path.");
+                System.exit(relaunch(args, Paths.get(gameJarPath), startup, nativesDirectory));
+            }
+        } else {
+            LaunchHandoff.forGameJar(System.getProperty(SystemProperties.GAME_JAR_PATH))
+                    .ifPresent(handoff -> useNativesInProcess(handoff.nativesDirectory()));
+        }
 
-            command.add("-Deqmodloader.loadedNatives=true");
-            command.add("-Djava.library.path=" + nativesDirectory.toAbsolutePath() + File.pathSeparator
-                    + file.getParent().toAbsolutePath());
-            command.add("-D" + SystemProperties.GAME_JAR_PATH + "=" + file.toAbsolutePath());
-            command.add(Main.class.getName());
+        System.getProperty(SystemProperties.GAME_JAR_PATH);
 
-            command.addAll(Arrays.asList(args));
+        knotInit = StartupTimeline.phase("launch", "knotInit");
+        Knot.launch(args, EnvType.CLIENT);
+    }
 
-            ProcessBuilder builder = new ProcessBuilder(command);
-            builder.inheritIO();
-            builder.redirectErrorStream(true);
+    /**
+     * Writes a {@link BakedGameJar} for the game and the mods in a directory.
+     *
+     * @param gameJarPath The path to the game jar.
+     * @param args The output jar, optionally followed by the mods directory, which defaults to {@code mods}.
+     * @return The exit code.
+     */
+    @VisibleForTesting
+    static int bake(Path gameJarPath, String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("[Silk] Usage: " + BAKE_ARGUMENT + " <output jar> [mods directory]");
+            return 1;
+        }
 
-            System.exit(builder.start().waitFor());
+        Path output = Paths.get(args[0]);
+        Path modsDirectory = Paths.get(args.length > 1 ? args[1] : "mods");
+        try {
+            Path realGameJar = gameJarPath.toRealPath();
+            BakedGameJar.bake(
+                    GameJar.open(realGameJar),
+                    output,
+                    EquilinoxVersionLookup.getVersion(realGameJar, EquilinoxGameProvider.ENTRYPOINT).rawName(),
+                    BakedGameJar.accessWideners(modsDirectory));
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("[Silk] Failed to bake the game jar: " + e.getMessage());
+            return 1;
         }
 
-        System.getProperty(SystemProperties.GAME_JAR_PATH);
+        System.out.println("[Silk] Wrote the baked game jar to " + output.toAbsolutePath()
+                + ". Bake it again whenever Silk, Fabric Loader or the mods change.");
+        return 0;
+    }
 
-        Knot.launch(args, EnvType.CLIENT);
+    /**
+     * Ends the {@code knotInit} phase started right before Knot is launched, called once the game is about to start.
+     */
+    static void knotInitialized() {
+        Phase phase = knotInit;
+        if (phase != null) {
+            knotInit = null;
+            phase.close();
+        }
     }
 
-    public static Path extractNatives(Path gameJarPath) throws Exception {
-        Path tempDir = Files.createTempDirectory("natives");
+    /**
+     * Checks whether the game can be launched inside the current JVM.
+     * <p>
+     * LWJGL and JInput are pointed at the natives through their own library path properties, but anything
+     * loaded with {@link System#loadLibrary(String)} from the game directory still needs
+     * {@code java.library.path}, which can't be changed once the JVM is running. If the game directory ships
+     * such libraries and isn't already on the library path, the JVM has to be relaunched.
+     *
+     * @param gameJarPath The path to the game jar.
+     * @return {@code true} if the natives can be made available without a second JVM.
+     */
+    @VisibleForTesting
+    static boolean canLaunchInProcess(Path gameJarPath) {
+        if (Boolean.getBoolean(SilkProperties.FORCE_RELAUNCH)) {
+            return false;
+        }
+
+        Path gameDirectory = gameJarPath.toAbsolutePath().getParent();
+        if (gameDirectory == null) {
+            return true;
+        }
+
+        for (String entry : System.getProperty("java.library.path", "").split(File.pathSeparator)) {
+            if (entry.isEmpty()) continue;
 
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             try {
-                if (Files.exists(tempDir)) {
-                    try (Stream<Path> files = Files.walk(tempDir)) {
-                        files.sorted(Comparator.reverseOrder()).forEach(path -> {
-                            try {
-                                Files.delete(path);
-                            } catch (IOException e) {
-                                System.err.println(
-                                        "[Silk] Failed to delete path in temp dir: " + path + " - " + e.getMessage());
-                            }
-                        });
-                    }
+                if (Paths.get(entry).toAbsolutePath().normalize().equals(gameDirectory.normalize())) {
+                    return true;
                 }
-            } catch (IOException e) {
-                e.printStackTrace(System.err);
+            } catch (InvalidPathException ignored) {
+                // not a path we can compare against
             }
-        }));
-
-        try (FileSystem jarFs = FileSystems.newFileSystem(gameJarPath, Map.of())) {
-            for (Path rootDirInJar : jarFs.getRootDirectories()) {
-                try (DirectoryStream<Path> stream = Files.newDirectoryStream(rootDirInJar)) {
-                    for (Path pathInJar : stream) {
-                        if (Files.isRegularFile(pathInJar)) {
-                            String entryName = pathInJar.getFileName().toString();
-                            if (isNativeFile(entryName)) {
-                                Path outputFile = tempDir.resolve(entryName);
-                                Files.copy(pathInJar, outputFile, StandardCopyOption.REPLACE_EXISTING);
-                            }
-                        }
-                    }
-                }
+        }
+
+        try (Stream<Path> stream = Files.list(gameDirectory)) {
+            return stream.noneMatch(p -> Files.isRegularFile(p) && isNativeFile(p.getFileName().toString()));
+        } catch (IOException e) {
+            System.err.println("[Silk] Could not check the game directory for natives: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void useNativesInProcess(Path nativesDirectory) {
+        String nativesPath = nativesDirectory.toAbsolutePath().toString();
+
+        System.setProperty(LWJGL_LIBRARY_PATH, nativesPath);
+        System.setProperty(JINPUT_LIBRARY_PATH, nativesPath);
+        System.setProperty(SilkProperties.LOADED_NATIVES, "true");
+    }
+
+    private static int relaunch(String[] args, Path gameJarPath, GameStartup startup, Path nativesDirectory)
+            throws IOException, InterruptedException {
+        RuntimeMXBean bean = ManagementFactory.getRuntimeMXBean();
+
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current()
+                .info()
+                .command()
+                .orElse(Paths.get(bean.getSystemProperties().get("java.home"), "bin", "java")
+                        .toAbsolutePath()
+                        .toString()));
+
+        command.addAll(bean.getInputArguments().stream()
+                .filter(i -> JVM_ARG_BLACKLIST_PREFIXES.stream().noneMatch(i::startsWith))
+                .toList());
+
+        command.add("-cp");
+        command.add(bean.getClassPath());
+
+        command.add("-D" + SilkProperties.LOADED_NATIVES + "=true");
+        command.add("-Djava.library.path=" + nativesDirectory.toAbsolutePath() + File.pathSeparator
+                + gameJarPath.getParent().toAbsolutePath());
+        command.add("-D" + SystemProperties.GAME_JAR_PATH + "=" + gameJarPath.toAbsolutePath());
+
+        Path handoffFile = writeHandoff(gameJarPath, startup, nativesDirectory, bean.getClassPath());
+        if (handoffFile != null) {
+            command.add("-D" + SilkProperties.HANDOFF + "=" + handoffFile.toAbsolutePath());
+        }
+
+        command.add(Main.class.getName());
+
+        command.addAll(Arrays.asList(args));
+
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.inheritIO();
+        builder.redirectErrorStream(true);
+
+        try (Phase ignored = StartupTimeline.phase("launch", "relaunch")) {
+            return builder.start().waitFor();
+        } finally {
+            // the relaunched JVM wrote its trace to the same file, keep it when writing ours on exit
+            StartupTimeline.includeExistingTrace();
+            if (handoffFile != null) {
+                Files.deleteIfExists(handoffFile);
+            }
+        }
+    }
+
+    /**
+     * Writes what the relaunched JVM would otherwise compute again to a {@link LaunchHandoff} file.
+     *
+     * @return The handoff file, or {@code null} if it couldn't be written. The child then does the work itself.
+     */
+    private static Path writeHandoff(
+            Path gameJarPath, GameStartup startup, Path nativesDirectory, String classPath) {
+        try {
+            // the steps were started along with the natives, so these are usually done already
+            LaunchHandoff handoff = new LaunchHandoff(
+                    gameJarPath.toAbsolutePath().toString(),
+                    startup.realGameJar().get(),
+                    startup.game().get().fingerprint(),
+                    nativesDirectory.toAbsolutePath(),
+                    startup.version().get(),
+                    classPath,
+                    classPath.equals(startup.classPath())
+                            ? startup.realClassPath().get()
+                            : EquilinoxGameProvider.toRealPaths(classPath),
+                    startup.gameClasses().get());
+
+            Path handoffFile = Files.createTempFile(CacheDirectory.resolve("handoff"), "launch", ".bin");
+            try {
+                handoff.write(handoffFile);
+            } catch (IOException e) {
+                Files.deleteIfExists(handoffFile);
+                throw e;
             }
+            return handoffFile;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            System.err.println("[Silk] Failed to write the launch handoff: " + e);
+            return null;
         }
-        return tempDir;
+    }
+
+    public static Path extractNatives(Path gameJarPath) throws Exception {
+        return NativesCache.getOrExtract(gameJarPath);
     }
 
     public static boolean isNativeFile(String entryName) {
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader;
+
+/**
+ * System properties understood by Silk Loader.
+ */
+public final class SilkProperties {
+    private SilkProperties() {}
+
+    // set once the game natives are reachable, either in-process or on the relaunched JVM
+    public static final String LOADED_NATIVES = "eqmodloader.loadedNatives";
+    // always spawn a second JVM with -Djava.library.path instead of launching in-process
+    public static final String FORCE_RELAUNCH = "silk.forceRelaunch";
+    // directory for Silk's persistent caches, defaults to .silk/cache in the working directory
+    public static final String CACHE_DIR = "silk.cacheDir";
+    // size in bytes the natives cache may grow to before old entries are evicted
+    public static final String NATIVES_CACHE_MAX_SIZE = "silk.nativesCacheMaxSize";
+    // handoff file written by the launching JVM for the relaunched one, see LaunchHandoff
+    public static final String HANDOFF = "silk.handoff";
+    // print how long each concurrent startup step took
+    public static final String LOG_STARTUP_TIMINGS = "silk.logStartupTimings";
+    // write the startup phases to this file as a Chrome trace when the JVM exits
+    public static final String TRACE_FILE = "silk.traceFile";
+    // patch the game classes one after another on the launching thread instead of in parallel
+    public static final String SINGLE_THREADED_PATCHING = "silk.singleThreadedPatching";
+    // cache the game classes with the access wideners of the active mods applied across launches
+    public static final String WARM_START = "silk.warmStart";
+    // don't read the game classes ahead of time in the order they were loaded on the last launch
+    public static final String DISABLE_CLASS_PREFETCH = "silk.disableClassPrefetch";
+    // warn about mods whose entrypoints take longer than this many milliseconds to run, 0 disables the warning
+    public static final String ENTRYPOINT_TIME_BUDGET = "silk.entrypointTimeBudget";
+    // initialize every mod on the game's main thread, even those that declare their initializer thread-safe
+    public static final String SINGLE_THREADED_MOD_INIT = "silk.singleThreadedModInit";
+    // run the main entrypoints of mods on a background thread while the game initializes, joined before the first frame
+    public static final String OVERLAP_MOD_INIT = "silk.overlapModInit";
+}
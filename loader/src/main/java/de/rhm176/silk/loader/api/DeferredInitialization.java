@@ -0,0 +1,100 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.api;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tells when the {@link DeferredInitializer deferred entrypoints} of mods finished.
+ * <p>
+ * All futures are completed by Silk, the ones returned to callers are copies that can't complete the originals.
+ */
+public final class DeferredInitialization {
+    private static final Map<String, CompletableFuture<Void>> MOD_COMPLETIONS = new ConcurrentHashMap<>();
+
+    private static volatile CompletableFuture<Void> completion = new CompletableFuture<>();
+    private static volatile boolean finished;
+
+    private DeferredInitialization() {}
+
+    /**
+     * @return A future completed once the deferred entrypoints of all mods finished, or completed exceptionally
+     * with the first failure if any of them threw.
+     */
+    public static CompletableFuture<Void> completion() {
+        return completion.copy();
+    }
+
+    /**
+     * @param modId The id of a mod.
+     * @return A future completed once the deferred entrypoints of the mod finished, or completed exceptionally if
+     * one of them threw. Completed as soon as all deferred entrypoints finished if the mod has none.
+     */
+    public static CompletableFuture<Void> completion(String modId) {
+        CompletableFuture<Void> completion = modCompletion(modId);
+        if (finished) {
+            completion.complete(null);
+        }
+        return completion.copy();
+    }
+
+    private static CompletableFuture<Void> modCompletion(String modId) {
+        return MOD_COMPLETIONS.computeIfAbsent(modId, (id) -> new CompletableFuture<>());
+    }
+
+    /**
+     * Records that the deferred entrypoints of a mod finished. Only called by Silk.
+     *
+     * @param modId The id of the mod.
+     * @param failure What the entrypoints threw, or {@code null} if they returned normally.
+     */
+    public static void modFinished(String modId, Throwable failure) {
+        if (failure != null) {
+            modCompletion(modId).completeExceptionally(failure);
+        } else {
+            modCompletion(modId).complete(null);
+        }
+    }
+
+    /**
+     * Records that the deferred entrypoints of all mods finished, which completes the futures of mods without any.
+     * Only called by Silk.
+     *
+     * @param failure The first failure of any deferred entrypoint, or {@code null} if none threw.
+     */
+    public static void finished(Throwable failure) {
+        finished = true;
+        MOD_COMPLETIONS.values().forEach((completion) -> completion.complete(null));
+        if (failure != null) {
+            completion.completeExceptionally(failure);
+        } else {
+            completion.complete(null);
+        }
+    }
+
+    /**
+     * Forgets all completions. Only called by tests.
+     */
+    @VisibleForTesting
+    public static void reset() {
+        MOD_COMPLETIONS.clear();
+        completion = new CompletableFuture<>();
+        finished = false;
+    }
+}
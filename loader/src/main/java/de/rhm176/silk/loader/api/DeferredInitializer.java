@@ -0,0 +1,37 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.api;
+
+/**
+ * A mod entrypoint run on a background thread once the game finished initializing.
+ * <p>
+ * Declared as {@value #ENTRYPOINT} in the entrypoints of a {@code fabric.mod.json}. Work that isn't needed for the
+ * first frame, like building caches or warming up indexes, belongs here instead of in a {@code main} entrypoint,
+ * which delays the game until it returns. Deferred entrypoints run after those of the mods they depend on, and
+ * {@link DeferredInitialization} tells when they finished.
+ */
+@FunctionalInterface
+public interface DeferredInitializer {
+    /**
+     * The key of the entrypoint in {@code fabric.mod.json}.
+     */
+    String ENTRYPOINT = "silk:deferred";
+
+    /**
+     * Runs the deferred initialization of the mod, never on the game's main thread.
+     */
+    void onDeferredInitialize();
+}
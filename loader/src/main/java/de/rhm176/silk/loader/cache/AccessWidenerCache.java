@@ -0,0 +1,242 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Consumer;
+import net.fabricmc.accesswidener.AccessWidenerReader.AccessType;
+import net.fabricmc.accesswidener.AccessWidenerVisitor;
+
+/**
+ * A persistent, pre-parsed copy of the access wideners of all mods.
+ * <p>
+ * Every entry the access widener reader visits is recorded in a compact binary form and stored once per mod set as
+ * {@code accesswideners/<key hash>.saw} below the {@link CacheDirectory}. The next launch with the same mods
+ * memory-maps the file and replays the entries into the loader's access widener without parsing any text.
+ */
+public final class AccessWidenerCache {
+    private static final String FILE_SUFFIX = ".saw";
+    private static final int MAGIC = 0x53415731; // "SAW1"
+
+    private static final int HEADER = 0;
+    private static final int CLASS = 1;
+    private static final int METHOD = 2;
+    private static final int FIELD = 3;
+
+    private static final AccessType[] ACCESS_TYPES = AccessType.values();
+
+    private AccessWidenerCache() {}
+
+    /**
+     * Replays the cached access wideners of a mod set into a visitor.
+     * <p>
+     * The whole file is decoded before the first entry is replayed, so the visitor sees either all entries or none.
+     *
+     * @param key Everything that changes the access wideners, like the mods and their jars.
+     * @param visitor The visitor to replay the entries into.
+     * @return {@code true} if the entries were replayed, {@code false} if there are none cached for the key.
+     */
+    public static boolean replay(String key, AccessWidenerVisitor visitor) {
+        Path file = file(key);
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+
+        List<Consumer<AccessWidenerVisitor>> entries;
+        try {
+            ByteBuffer buffer = IndexFiles.map(file);
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not an access widener cache");
+            }
+            int keyLength = buffer.getInt();
+            if (keyLength < 0 || keyLength > buffer.remaining()) {
+                throw new IllegalArgumentException("Truncated access widener cache");
+            }
+            byte[] storedKey = new byte[keyLength];
+            buffer.get(storedKey);
+            if (!new String(storedKey, StandardCharsets.UTF_8).equals(key)) {
+                // a different mod set with the same key hash
+                return false;
+            }
+
+            int count = buffer.getInt();
+            entries = new ArrayList<>(Math.min(count, buffer.remaining() / 5));
+            for (int i = 0; i < count; i++) {
+                entries.add(readEntry(buffer));
+            }
+        } catch (IOException | IllegalArgumentException | BufferUnderflowException e) {
+            System.err.println("[Silk] Ignoring unreadable access widener cache " + file + ": " + e.getMessage());
+            return false;
+        }
+
+        for (Consumer<AccessWidenerVisitor> entry : entries) {
+            entry.accept(visitor);
+        }
+        return true;
+    }
+
+    /**
+     * Stores the access wideners of a mod set, replacing the ones of any other mod set.
+     *
+     * @param key Everything that changes the access wideners, like the mods and their jars.
+     * @param recorder The recorder the access wideners of all mods were read into.
+     * @throws IOException if the cache can't be written.
+     */
+    public static void store(String key, Recorder recorder) throws IOException {
+        if (recorder.failure != null) {
+            throw recorder.failure;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(keyBytes.length);
+            out.write(keyBytes);
+            out.writeInt(recorder.count);
+            out.write(recorder.bytes.toByteArray());
+        }
+
+        IndexFiles.store(
+                directory(), file(key), ByteBuffer.wrap(bytes.toByteArray()), FILE_SUFFIX, "access widener caches");
+    }
+
+    private static Consumer<AccessWidenerVisitor> readEntry(ByteBuffer buffer) {
+        int kind = buffer.get();
+        if (kind == HEADER) {
+            String namespace = readString(buffer);
+            return (visitor) -> visitor.visitHeader(namespace);
+        }
+
+        int access = buffer.get();
+        if (access < 0 || access >= ACCESS_TYPES.length) {
+            throw new IllegalArgumentException("Unknown access type " + access);
+        }
+        AccessType accessType = ACCESS_TYPES[access];
+        boolean transitive = buffer.get() != 0;
+
+        if (kind == CLASS) {
+            String name = readString(buffer);
+            return (visitor) -> visitor.visitClass(name, accessType, transitive);
+        }
+
+        String owner = readString(buffer);
+        String name = readString(buffer);
+        String descriptor = readString(buffer);
+        return switch (kind) {
+            case METHOD -> (visitor) -> visitor.visitMethod(owner, name, descriptor, accessType, transitive);
+            case FIELD -> (visitor) -> visitor.visitField(owner, name, descriptor, accessType, transitive);
+            default -> throw new IllegalArgumentException("Unknown entry kind " + kind);
+        };
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("String too long for the access widener cache: " + bytes.length + " bytes");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static Path directory() {
+        return CacheDirectory.get().resolve("accesswideners");
+    }
+
+    private static Path file(String key) {
+        return directory().resolve(hash(key) + FILE_SUFFIX);
+    }
+
+    private static String hash(String key) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)), 0, 16);
+    }
+
+    /**
+     * Records every entry visited, in order, for {@link #store(String, Recorder)}.
+     */
+    public static final class Recorder implements AccessWidenerVisitor {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int count;
+        // recording must never fail loading the access wideners, a failure only prevents storing them
+        private IOException failure;
+
+        @Override
+        public void visitHeader(String namespace) {
+            record(HEADER, null, false, namespace);
+        }
+
+        @Override
+        public void visitClass(String name, AccessType access, boolean transitive) {
+            record(CLASS, access, transitive, name);
+        }
+
+        @Override
+        public void visitMethod(String owner, String name, String descriptor, AccessType access, boolean transitive) {
+            record(METHOD, access, transitive, owner, name, descriptor);
+        }
+
+        @Override
+        public void visitField(String owner, String name, String descriptor, AccessType access, boolean transitive) {
+            record(FIELD, access, transitive, owner, name, descriptor);
+        }
+
+        private void record(int kind, AccessType access, boolean transitive, String... strings) {
+            if (failure != null) {
+                return;
+            }
+
+            try {
+                out.writeByte(kind);
+                if (access != null) {
+                    out.writeByte(access.ordinal());
+                    out.writeBoolean(transitive);
+                }
+                for (String string : strings) {
+                    writeString(out, string);
+                }
+                count++;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+}
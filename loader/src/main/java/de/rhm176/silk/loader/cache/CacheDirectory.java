@@ -0,0 +1,69 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.cache;
+
+import de.rhm176.silk.loader.SilkProperties;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Locates the directory Silk keeps its persistent caches in.
+ * <p>
+ * Defaults to {@code .silk/cache} relative to the working directory, which the game is also launched in, and can
+ * be moved with the {@value SilkProperties#CACHE_DIR} system property.
+ */
+public final class CacheDirectory {
+    private CacheDirectory() {}
+
+    /**
+     * @return The root cache directory. It is not created by this method.
+     */
+    public static Path get() {
+        String configured = System.getProperty(SilkProperties.CACHE_DIR);
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+
+        return Paths.get(".").resolve(".silk").resolve("cache");
+    }
+
+    /**
+     * Resolves and creates a named subdirectory of the cache directory.
+     *
+     * @param name The name of the subdirectory.
+     * @return The created subdirectory.
+     * @throws IOException if the directory can't be created.
+     */
+    public static Path resolve(String name) throws IOException {
+        return Files.createDirectories(get().resolve(name));
+    }
+
+    static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
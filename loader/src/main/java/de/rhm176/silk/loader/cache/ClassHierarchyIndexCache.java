@@ -0,0 +1,85 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.cache;
+
+import de.rhm176.silk.loader.index.ClassHierarchyIndex;
+import de.rhm176.silk.loader.zip.CentralDirectory;
+import de.rhm176.silk.loader.zip.GameJar;
+import java.io.IOException;
+import java.nio.file.*;
+
+/**
+ * A persistent cache of the {@link ClassHierarchyIndex} of the game jar.
+ * <p>
+ * Building the index reads the header of every class of the game jar, so it is built once per game jar and stored
+ * as {@code hierarchy/<fingerprint>.sch} below the {@link CacheDirectory}. Later launches memory-map the file.
+ */
+public final class ClassHierarchyIndexCache {
+    private static final String FILE_SUFFIX = ".sch";
+
+    private ClassHierarchyIndexCache() {}
+
+    /**
+     * Returns the class hierarchy index of a game jar with a known fingerprint, building and storing it if needed.
+     *
+     * @param gameJarPath The path to the game jar.
+     * @param fingerprint The {@link CentralDirectory#fingerprint() fingerprint} of the game jar.
+     * @return The class hierarchy index of the game jar.
+     * @throws IOException if the game jar can't be read.
+     */
+    public static ClassHierarchyIndex getOrBuild(Path gameJarPath, String fingerprint) throws IOException {
+        ClassHierarchyIndex cached = lookup(fingerprint);
+        if (cached != null) {
+            return cached;
+        }
+
+        ClassHierarchyIndex index = ClassHierarchyIndex.build(GameJar.open(gameJarPath));
+        try {
+            IndexFiles.store(directory(), file(fingerprint), index.buffer(), FILE_SUFFIX, "class hierarchy indexes");
+        } catch (IOException e) {
+            System.err.println("[Silk] Failed to update the class hierarchy index cache: " + e.getMessage());
+        }
+        return index;
+    }
+
+    /**
+     * Returns the class hierarchy index of a game jar if it was already built, without building it.
+     *
+     * @param fingerprint The {@link CentralDirectory#fingerprint() fingerprint} of the game jar.
+     * @return The class hierarchy index of the game jar, or {@code null} if it isn't cached.
+     */
+    public static ClassHierarchyIndex lookup(String fingerprint) {
+        Path file = file(fingerprint);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try {
+            return ClassHierarchyIndex.wrap(IndexFiles.map(file));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("[Silk] Ignoring unreadable class hierarchy index " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Path directory() {
+        return CacheDirectory.get().resolve("hierarchy");
+    }
+
+    private static Path file(String fingerprint) {
+        return directory().resolve(fingerprint + FILE_SUFFIX);
+    }
+}
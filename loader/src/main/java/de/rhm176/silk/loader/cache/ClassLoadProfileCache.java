@@ -0,0 +1,108 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.cache;
+
+import de.rhm176.silk.loader.zip.CentralDirectory;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A persistent record of the order in which the game loads its classes.
+ * <p>
+ * The order barely changes between launches, so the classes loaded until the game is initialized are stored once
+ * per game jar as {@code profiles/<fingerprint>.profile} below the {@link CacheDirectory} and read ahead of time on
+ * the next launch.
+ */
+public final class ClassLoadProfileCache {
+    private static final String FILE_SUFFIX = ".profile";
+    private static final int MAGIC = 0x53435031; // "SCP1"
+
+    private ClassLoadProfileCache() {}
+
+    /**
+     * Returns the recorded load order of a game jar.
+     *
+     * @param fingerprint The {@link CentralDirectory#fingerprint() fingerprint} of the game jar.
+     * @return The binary names of the classes in load order, or {@code null} if none were recorded.
+     */
+    public static List<String> lookup(String fingerprint) {
+        Path file = file(fingerprint);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try {
+            ByteBuffer buffer = IndexFiles.map(file);
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a class load profile");
+            }
+
+            int count = buffer.getInt();
+            List<String> classNames = new ArrayList<>(Math.min(count, buffer.remaining() / 2));
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(name);
+                classNames.add(new String(name, StandardCharsets.UTF_8));
+            }
+            return classNames;
+        } catch (IOException | IllegalArgumentException | BufferUnderflowException e) {
+            System.err.println("[Silk] Ignoring unreadable class load profile " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the load order of a game jar, replacing the one of any other game jar.
+     *
+     * @param fingerprint The {@link CentralDirectory#fingerprint() fingerprint} of the game jar.
+     * @param classNames The binary names of the classes in load order.
+     * @throws IOException if the profile can't be written.
+     */
+    public static void store(String fingerprint, List<String> classNames) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(classNames.size());
+            for (String className : classNames) {
+                byte[] name = className.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(name.length);
+                out.write(name);
+            }
+        }
+
+        IndexFiles.store(
+                directory(),
+                file(fingerprint),
+                ByteBuffer.wrap(bytes.toByteArray()),
+                FILE_SUFFIX,
+                "class load profiles");
+    }
+
+    private static Path directory() {
+        return CacheDirectory.get().resolve("profiles");
+    }
+
+    private static Path file(String fingerprint) {
+        return directory().resolve(fingerprint + FILE_SUFFIX);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.cache;
+
+import de.rhm176.silk.loader.index.GameClassIndex;
+import de.rhm176.silk.loader.zip.CentralDirectory;
+import de.rhm176.silk.loader.zip.GameJar;
+import java.io.IOException;
+import java.nio.file.*;
+
+/**
+ * A persistent cache of the {@link GameClassIndex} of the game jar.
+ * <p>
+ * The index is stored as {@code classes/<fingerprint>.idx} below the {@link CacheDirectory} and memory-mapped
+ * on later launches, so loading it doesn't depend on the number of classes in the game jar. A game update
+ * changes the fingerprint, which makes the old file unreachable; it is deleted once the new one is written.
+ */
+public final class GameClassIndexCache {
+    private static final String FILE_SUFFIX = ".idx";
+
+    private GameClassIndexCache() {}
+
+    /**
+     * Returns the class index of a game jar with a known fingerprint, building and storing it if needed.
+     *
+     * @param gameJarPath The path to the game jar.
+     * @param fingerprint The {@link CentralDirectory#fingerprint() fingerprint} of the game jar.
+     * @return The class index of the game jar.
+     * @throws IOException if the game jar can't be read.
+     */
+    public static GameClassIndex getOrBuild(Path gameJarPath, String fingerprint) throws IOException {
+        Path directory = CacheDirectory.get().resolve("classes");
+        Path file = directory.resolve(fingerprint + FILE_SUFFIX);
+
+        if (Files.isRegularFile(file)) {
+            try {
+                return GameClassIndex.wrap(IndexFiles.map(file));
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("[Silk] Ignoring unreadable game class index " + file + ": " + e.getMessage());
+            }
+        }
+
+        GameClassIndex index = GameClassIndex.build(GameJar.open(gameJarPath).centralDirectory());
+        try {
+            IndexFiles.store(directory, file, index.buffer(), FILE_SUFFIX, "game class indexes");
+        } catch (IOException e) {
+            System.err.println("[Silk] Failed to update the game class index cache: " + e.getMessage());
+        }
+        return index;
+    }
+}
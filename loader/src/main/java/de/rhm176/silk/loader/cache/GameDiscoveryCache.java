@@ -0,0 +1,166 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.cache;
+
+import de.rhm176.silk.loader.zip.CentralDirectory;
+import de.rhm176.silk.loader.zip.GameJar;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Remembers where the game jar was found in a launch directory.
+ * <p>
+ * An entry is only trusted while the jar's size and modification time still match what was recorded, which
+ * costs a single stat call. Anything else makes {@link #lookup()} come up empty so the caller falls back to
+ * scanning the launch directory.
+ */
+public final class GameDiscoveryCache {
+    private static final String FILE_NAME = "discovery.properties";
+
+    private static final String LAUNCH_DIRECTORY_KEY = "launchDirectory";
+    private static final String GAME_JAR_KEY = "gameJar";
+    private static final String SIZE_KEY = "size";
+    private static final String LAST_MODIFIED_KEY = "lastModified";
+    private static final String FINGERPRINT_KEY = "fingerprint";
+
+    private GameDiscoveryCache() {}
+
+    /**
+     * A discovered game jar.
+     *
+     * @param gameJar The absolute, normalized path to the game jar.
+     * @param size The size of the game jar in bytes when it was recorded.
+     * @param lastModified The modification time of the game jar in milliseconds when it was recorded.
+     * @param fingerprint The {@link CentralDirectory#fingerprint() fingerprint} of the game jar.
+     */
+    public record Entry(Path gameJar, long size, long lastModified, String fingerprint) {}
+
+    /**
+     * Looks up the game jar recorded for the current launch directory.
+     *
+     * @return The recorded entry, or an empty {@link Optional} if there is none or the jar has changed since.
+     */
+    public static Optional<Entry> lookup() {
+        Path file = CacheDirectory.get().resolve(FILE_NAME);
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+
+        try {
+            Properties properties = new Properties();
+            try (InputStream is = Files.newInputStream(file)) {
+                properties.load(is);
+            }
+
+            if (!launchDirectory().equals(properties.getProperty(LAUNCH_DIRECTORY_KEY))) {
+                return Optional.empty();
+            }
+
+            Entry entry = new Entry(
+                    Paths.get(properties.getProperty(GAME_JAR_KEY)),
+                    Long.parseLong(properties.getProperty(SIZE_KEY)),
+                    Long.parseLong(properties.getProperty(LAST_MODIFIED_KEY)),
+                    properties.getProperty(FINGERPRINT_KEY));
+            if (entry.fingerprint() == null) {
+                return Optional.empty();
+            }
+
+            BasicFileAttributes attributes = Files.readAttributes(entry.gameJar(), BasicFileAttributes.class);
+            if (!attributes.isRegularFile()
+                    || attributes.size() != entry.size()
+                    || attributes.lastModifiedTime().toMillis() != entry.lastModified()) {
+                return Optional.empty();
+            }
+
+            return Optional.of(entry);
+        } catch (IOException | RuntimeException e) {
+            // missing jar, unreadable or corrupt cache file: all mean "scan again"
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns the entry for the given game jar, recording a new one if no valid entry exists for it and discovery
+     * found the jar.
+     * <p>
+     * A jar given through {@code fabric.gameJarPath} is never recorded, later launches without it would otherwise
+     * prefer it over discovering the game by name.
+     *
+     * @param gameJar The path to the game jar.
+     * @param known An entry that was already looked up by the caller, or {@code null}.
+     * @param discovered Whether discovery found the game jar.
+     * @return An entry describing the current state of the game jar.
+     * @throws IOException if the game jar can't be read.
+     */
+    public static Entry resolve(Path gameJar, Entry known, boolean discovered) throws IOException {
+        Path absoluteGameJar = gameJar.toAbsolutePath().normalize();
+        Optional<Entry> cached = (known != null ? Optional.of(known) : lookup())
+                .filter(entry -> entry.gameJar().equals(absoluteGameJar));
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(absoluteGameJar, BasicFileAttributes.class);
+        Entry entry = new Entry(
+                absoluteGameJar,
+                attributes.size(),
+                attributes.lastModifiedTime().toMillis(),
+                GameJar.open(absoluteGameJar).fingerprint());
+        if (!discovered) {
+            return entry;
+        }
+
+        try {
+            store(entry);
+        } catch (IOException e) {
+            System.err.println("[Silk] Failed to update the game discovery cache: " + e.getMessage());
+        }
+        return entry;
+    }
+
+    private static void store(Entry entry) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(LAUNCH_DIRECTORY_KEY, launchDirectory());
+        properties.setProperty(GAME_JAR_KEY, entry.gameJar().toString());
+        properties.setProperty(SIZE_KEY, Long.toString(entry.size()));
+        properties.setProperty(LAST_MODIFIED_KEY, Long.toString(entry.lastModified()));
+        properties.setProperty(FINGERPRINT_KEY, entry.fingerprint());
+
+        Path directory = Files.createDirectories(CacheDirectory.get());
+        Path temporaryFile = Files.createTempFile(directory, FILE_NAME, ".tmp");
+        try {
+            try (OutputStream os = Files.newOutputStream(temporaryFile)) {
+                properties.store(os, "Silk game discovery cache");
+            }
+            Files.move(
+                    temporaryFile,
+                    directory.resolve(FILE_NAME),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private static String launchDirectory() {
+        return Paths.get(".").toAbsolutePath().normalize().toString();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.cache;
+
+import de.rhm176.silk.loader.zip.GameJar;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * A persistent cache of the classes Silk's built-in game patches produce.
+ * <p>
+ * Every entry is stored as {@code transforms/<key hash>.bin} below the {@link CacheDirectory} and holds the names
+ * and CRC-32s of the game classes the patches read, next to the patched class bytes. The key covers everything
+ * else that can change the output, like the patch set, Silk and the Fabric Loader version. An entry is only used
+ * while all of its input classes are unchanged in the game jar, which is checked against the central directory
+ * without reading any class.
+ */
+public final class GameTransformerCache {
+    private static final String FILE_SUFFIX = ".bin";
+    private static final int MAGIC = 0x53544331; // "STC1"
+
+    private GameTransformerCache() {}
+
+    /**
+     * Looks up the patched classes for a key.
+     *
+     * @param gameJar The game jar the patches read their input classes from.
+     * @param key Everything besides the input classes that changes the patched classes.
+     * @return The patched classes by binary name, or {@code null} if there is no entry or one of its inputs
+     * changed.
+     */
+    public static Map<String, byte[]> lookup(GameJar gameJar, String key) {
+        Path file = CacheDirectory.get().resolve("transforms").resolve(fileName(key));
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+            if (in.readInt() != MAGIC || !in.readUTF().equals(key)) {
+                return null;
+            }
+
+            int inputCount = in.readInt();
+            for (int i = 0; i < inputCount; i++) {
+                String input = in.readUTF();
+                if (gameJar.crc(classFileName(input)) != in.readLong()) {
+                    return null;
+                }
+            }
+
+            int outputCount = in.readInt();
+            Map<String, byte[]> outputs = new HashMap<>();
+            for (int i = 0; i < outputCount; i++) {
+                String name = in.readUTF();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                outputs.put(name, bytes);
+            }
+            return outputs;
+        } catch (IOException e) {
+            System.err.println("[Silk] Ignoring unreadable patched classes " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the patched classes for a key.
+     * <p>
+     * Nothing is stored if one of the inputs isn't part of the game jar, as it couldn't be checked for changes.
+     *
+     * @param gameJar The game jar the patches read their input classes from.
+     * @param key Everything besides the input classes that changes the patched classes.
+     * @param inputs The binary names of all classes the patches read.
+     * @param outputs The patched classes by binary name.
+     * @return {@code true} if the classes were stored.
+     * @throws IOException if the cache can't be written.
+     */
+    public static boolean store(GameJar gameJar, String key, Collection<String> inputs, Map<String, byte[]> outputs)
+            throws IOException {
+        Map<String, Long> inputCrcs = new HashMap<>();
+        for (String input : inputs) {
+            long crc = gameJar.crc(classFileName(input));
+            if (crc < 0) {
+                return false;
+            }
+            inputCrcs.put(input, crc);
+        }
+
+        Path directory = CacheDirectory.resolve("transforms");
+        Path file = directory.resolve(fileName(key));
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                out.writeInt(MAGIC);
+                out.writeUTF(key);
+
+                out.writeInt(inputCrcs.size());
+                for (Map.Entry<String, Long> input : inputCrcs.entrySet()) {
+                    out.writeUTF(input.getKey());
+                    out.writeLong(input.getValue());
+                }
+
+                out.writeInt(outputs.size());
+                for (Map.Entry<String, byte[]> output : outputs.entrySet()) {
+                    out.writeUTF(output.getKey());
+                    out.writeInt(output.getValue().length);
+                    out.write(output.getValue());
+                }
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+
+        deleteOthers(directory, file);
+        return true;
+    }
+
+    private static void deleteOthers(Path directory, Path keep) {
+        // a different key means a different Silk, Fabric Loader or game version, its entry won't be used again
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path other : stream) {
+                if (!other.equals(keep)) {
+                    Files.deleteIfExists(other);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[Silk] Failed to delete old patched classes: " + e.getMessage());
+        }
+    }
+
+    private static String fileName(String key) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hash, 0, 16) + FILE_SUFFIX;
+    }
+
+    private static String classFileName(String binaryName) {
+        return binaryName.replace('.', '/') + ".class";
+    }
+}
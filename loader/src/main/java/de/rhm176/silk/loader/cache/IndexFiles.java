@@ -0,0 +1,77 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * File handling shared by the caches that keep one memory-mapped index per game jar fingerprint.
+ */
+final class IndexFiles {
+    private IndexFiles() {}
+
+    static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (UnsupportedOperationException e) {
+            return ByteBuffer.wrap(Files.readAllBytes(file)).asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * Atomically replaces {@code file} with the given bytes and deletes all other files with the same suffix.
+     *
+     * @param kind What the files hold in plural, for error messages.
+     */
+    static void store(Path directory, Path file, ByteBuffer buffer, String suffix, String kind) throws IOException {
+        Files.createDirectories(directory);
+
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+
+        deleteOthers(directory, file, suffix, kind);
+    }
+
+    private static void deleteOthers(Path directory, Path keep, String suffix, String kind) {
+        // only the index of the current game jar is ever looked up again
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + suffix)) {
+            for (Path other : stream) {
+                if (!other.equals(keep)) {
+                    try {
+                        Files.deleteIfExists(other);
+                    } catch (IOException e) {
+                        // still mapped by another running instance, try again on the next update
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[Silk] Failed to delete old " + kind + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import de.rhm176.silk.loader.Main;
+import de.rhm176.silk.loader.SilkProperties;
+import de.rhm176.silk.loader.zip.CentralDirectory;
+import de.rhm176.silk.loader.zip.GameJar;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * A persistent cache of the native libraries shipped inside the game jar.
+ * <p>
+ * Natives are extracted once per game jar content, operating system and architecture into
+ * {@code natives/<fingerprint>-<os>-<arch>} below the {@link CacheDirectory}. Later launches with the same
+ * game jar reuse that directory without any extraction. Directories that haven't been used recently are
+ * evicted once the cache grows beyond the size in bytes given by {@value SilkProperties#NATIVES_CACHE_MAX_SIZE}
+ * (128 MiB by default).
+ */
+public final class NativesCache {
+    private static final String COMPLETE_MARKER = ".complete";
+    private static final String STAGING_SUFFIX = ".tmp";
+    private static final long DEFAULT_MAX_SIZE = 128L * 1024 * 1024;
+    // staging directories older than this are leftovers of a launch that died while extracting
+    private static final long ABANDONED_STAGING_AGE_MILLIS = 24L * 60 * 60 * 1000;
+
+    private NativesCache() {}
+
+    /**
+     * Returns the cached natives directory for the given game jar, extracting the natives if needed.
+     *
+     * @param gameJarPath The path to the game jar.
+     * @return A directory containing the natives for the current platform.
+     * @throws IOException if the game jar can't be read or the natives can't be written.
+     */
+    public static Path getOrExtract(Path gameJarPath) throws IOException {
+        return getOrExtract(gameJarPath, GameJar.open(gameJarPath).fingerprint());
+    }
+
+    /**
+     * Returns the cached natives directory for a game jar with a known fingerprint, extracting the natives
+     * if needed.
+     *
+     * @param gameJarPath The path to the game jar.
+     * @param fingerprint The {@link CentralDirectory#fingerprint() fingerprint} of the game jar.
+     * @return A directory containing the natives for the current platform.
+     * @throws IOException if the game jar can't be read or the natives can't be written.
+     */
+    public static Path getOrExtract(Path gameJarPath, String fingerprint) throws IOException {
+        Path root = CacheDirectory.resolve("natives");
+        String key = fingerprint + "-" + platformKey();
+        Path directory = root.resolve(key);
+        Path marker = directory.resolve(COMPLETE_MARKER);
+
+        if (Files.isRegularFile(marker)) {
+            Files.setLastModifiedTime(marker, FileTime.from(Instant.now()));
+            return directory;
+        }
+
+        Path staging = Files.createTempDirectory(root, key + STAGING_SUFFIX);
+        try {
+            extract(gameJarPath, staging);
+            // written before publishing, so a published directory is always complete
+            Files.createFile(staging.resolve(COMPLETE_MARKER));
+            publish(staging, directory);
+        } catch (IOException e) {
+            CacheDirectory.deleteRecursively(staging);
+            throw e;
+        }
+
+        evict(root, directory);
+        return directory;
+    }
+
+    /**
+     * Moves a complete staging directory into place.
+     * <p>
+     * If the directory already exists and is complete, a concurrent launch published it first and it is used as it
+     * is. Only a manual edit leaves a directory without the marker behind, which is moved out of the way before it is
+     * deleted, so a directory another launch publishes meanwhile is never touched.
+     */
+    @VisibleForTesting
+    static void publish(Path staging, Path directory) throws IOException {
+        try {
+            Files.move(staging, directory, StandardCopyOption.ATOMIC_MOVE);
+            return;
+        } catch (FileSystemException e) {
+            // moving onto an existing directory isn't always reported as FileAlreadyExistsException
+            if (!Files.exists(directory)) {
+                throw e;
+            }
+            if (Files.isRegularFile(directory.resolve(COMPLETE_MARKER))) {
+                CacheDirectory.deleteRecursively(staging);
+                return;
+            }
+        }
+
+        Path incomplete = staging.resolveSibling(staging.getFileName() + "-incomplete");
+        try {
+            Files.move(directory, incomplete, StandardCopyOption.ATOMIC_MOVE);
+            CacheDirectory.deleteRecursively(incomplete);
+        } catch (NoSuchFileException e) {
+            // another launch moved it out of the way first
+        }
+
+        try {
+            Files.move(staging, directory, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileSystemException e) {
+            if (!Files.exists(directory)) {
+                throw e;
+            }
+            // a concurrent launch replaced it first, use its directory
+            CacheDirectory.deleteRecursively(staging);
+        }
+    }
+
+    private static void extract(Path gameJarPath, Path outputDirectory) throws IOException {
+        GameJar gameJar = GameJar.open(gameJarPath);
+        CentralDirectory centralDirectory = gameJar.centralDirectory();
+
+        // natives live in the root of the jar, directories end with a slash and are skipped along with them
+        Map<String, Integer> natives = new LinkedHashMap<>();
+        for (int entry : centralDirectory.entryOffsets()) {
+            String entryName = centralDirectory.name(entry);
+            if (entryName.indexOf('/') < 0 && Main.isNativeFile(entryName)) {
+                natives.put(entryName, entry);
+            }
+        }
+
+        for (Map.Entry<String, Integer> nativeEntry : natives.entrySet()) {
+            String entryName = nativeEntry.getKey();
+            if (!isForOtherArchitecture(entryName, natives.keySet())) {
+                // stored natives are written straight from the mapped jar
+                ByteBuffer contents = gameJar.readBuffer(nativeEntry.getValue());
+                try (FileChannel channel = FileChannel.open(
+                        outputDirectory.resolve(entryName),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE)) {
+                    while (contents.hasRemaining()) {
+                        channel.write(contents);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether a native is the variant for the other architecture of a library that ships
+     * both a 32-bit and a 64-bit build (e.g. {@code lwjgl.dll} and {@code lwjgl64.dll}).
+     * <p>
+     * Natives are only skipped if their counterpart is present, so single-architecture libraries are never
+     * dropped.
+     *
+     * @param entryName The file name of the native.
+     * @param names The file names of all natives of the current platform.
+     * @return {@code true} if the native is not needed on the current architecture.
+     */
+    @VisibleForTesting
+    static boolean isForOtherArchitecture(String entryName, Set<String> names) {
+        int dot = entryName.lastIndexOf('.');
+        String base = dot < 0 ? entryName : entryName.substring(0, dot);
+        String extension = dot < 0 ? "" : entryName.substring(dot);
+
+        boolean named64 = base.endsWith("64");
+        if (System.getProperty("os.arch", "").contains("64")) {
+            if (named64) {
+                return false;
+            }
+
+            String stem = base.endsWith("32") ? base.substring(0, base.length() - 2) : base;
+            return names.contains(stem + "64" + extension) || names.contains(stem + "_64" + extension);
+        }
+
+        if (!named64) {
+            return false;
+        }
+
+        String stem = base.substring(0, base.length() - (base.endsWith("_64") ? 3 : 2));
+        return names.contains(stem + extension) || names.contains(stem + "32" + extension);
+    }
+
+    private static String platformKey() {
+        String os = System.getProperty("os.name", "unknown").toLowerCase(Locale.ROOT);
+        String arch = System.getProperty("os.arch", "unknown").toLowerCase(Locale.ROOT);
+
+        return (os + "-" + arch).replaceAll("[^a-z0-9_-]+", "");
+    }
+
+    private static void evict(Path root, Path keep) {
+        long maxSize = Long.getLong(SilkProperties.NATIVES_CACHE_MAX_SIZE, DEFAULT_MAX_SIZE);
+
+        try {
+            List<CachedNatives> candidates = new ArrayList<>();
+            long totalSize = sizeOf(keep);
+            long now = System.currentTimeMillis();
+
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(root, Files::isDirectory)) {
+                for (Path directory : stream) {
+                    if (directory.equals(keep)) continue;
+
+                    Path marker = directory.resolve(COMPLETE_MARKER);
+                    long lastUsed = Files.getLastModifiedTime(Files.exists(marker) ? marker : directory).toMillis();
+                    if (directory.getFileName().toString().contains(STAGING_SUFFIX)
+                            && now - lastUsed < ABANDONED_STAGING_AGE_MILLIS) {
+                        // probably being extracted by a concurrent launch
+                        continue;
+                    }
+
+                    long size = sizeOf(directory);
+                    candidates.add(new CachedNatives(directory, lastUsed, size));
+                    totalSize += size;
+                }
+            }
+
+            candidates.sort(Comparator.comparingLong(CachedNatives::lastUsed));
+            for (CachedNatives candidate : candidates) {
+                if (totalSize <= maxSize) break;
+
+                CacheDirectory.deleteRecursively(candidate.directory());
+                totalSize -= candidate.size();
+            }
+        } catch (IOException e) {
+            System.err.println("[Silk] Failed to evict old natives from the cache: " + e.getMessage());
+        }
+    }
+
+    private static long sizeOf(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            long size = 0;
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                size += Files.size(file);
+            }
+            return size;
+        }
+    }
+
+    private record CachedNatives(Path directory, long lastUsed, long size) {}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * A persistent cache of game classes with the access wideners of the active mods applied.
+ * <p>
+ * Every mod set gets its own {@code warmstart/<key hash>} directory below the {@link CacheDirectory}, holding one
+ * file per class with the CRC-32 of the class in the game jar next to the widened bytes. The key covers everything
+ * else that changes the widened class, like the mods and their access wideners, Silk and the Fabric Loader version.
+ * Opening the cache for a new key deletes the directories of all other keys.
+ */
+public final class WarmStartCache {
+    private static final String FILE_SUFFIX = ".bin";
+    private static final int MAGIC = 0x53575331; // "SWS1"
+    private static final int HEADER_LENGTH = 12;
+
+    private final Path directory;
+
+    private WarmStartCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the cache for a key, creating its directory if needed.
+     *
+     * @param key Everything besides the game class itself that changes the cached bytes.
+     * @return The cache for the key.
+     * @throws IOException if the cache directory can't be created.
+     */
+    public static WarmStartCache open(String key) throws IOException {
+        Path root = CacheDirectory.resolve("warmstart");
+        Path directory = root.resolve(hash(key));
+        if (!Files.isDirectory(directory)) {
+            deleteOthers(root, directory);
+            Files.createDirectories(directory);
+        }
+        return new WarmStartCache(directory);
+    }
+
+    /**
+     * Looks up the cached bytes of a class.
+     *
+     * @param className The binary name of the class.
+     * @param crc The CRC-32 of the class in the game jar.
+     * @return The cached bytes, or {@code null} if there are none for this version of the class.
+     */
+    public byte[] lookup(String className, long crc) {
+        Path file = directory.resolve(className + FILE_SUFFIX);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.remaining() < HEADER_LENGTH || buffer.getInt() != MAGIC || buffer.getLong() != crc) {
+                return null;
+            }
+
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        } catch (IOException e) {
+            System.err.println("[Silk] Ignoring unreadable warm start class " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the bytes of a class, replacing what was cached for an older version of it.
+     *
+     * @param className The binary name of the class.
+     * @param crc The CRC-32 of the class in the game jar.
+     * @param bytes The bytes to cache.
+     * @throws IOException if the cache can't be written.
+     */
+    public void store(String className, long crc, byte[] bytes) throws IOException {
+        Path file = directory.resolve(className + FILE_SUFFIX);
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + bytes.length);
+            buffer.putInt(MAGIC).putLong(crc).put(bytes);
+            Files.write(temporaryFile, buffer.array());
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private static void deleteOthers(Path root, Path keep) {
+        // a different key means the mod set changed, none of the old classes will be used again
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
+            for (Path other : stream) {
+                if (!other.equals(keep)) {
+                    CacheDirectory.deleteRecursively(other);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[Silk] Failed to delete old warm start classes: " + e.getMessage());
+        }
+    }
+
+    private static String hash(String key) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)), 0, 16);
+    }
+}
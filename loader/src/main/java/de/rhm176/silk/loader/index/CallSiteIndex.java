@@ -0,0 +1,477 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.index;
+
+import de.rhm176.silk.loader.zip.CentralDirectory;
+import de.rhm176.silk.loader.zip.GameJar;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * A read-only index of every method call in the game jar, keyed by the called method.
+ * <p>
+ * Patches use it to find their injection points without reading the instructions of every method, and to skip
+ * classes that don't contain any. The index lives in a single buffer that can be memory-mapped as is: an open
+ * addressing table keyed by the hash of the called method points to fixed size records, and all names are stored
+ * once in a string pool.
+ */
+public final class CallSiteIndex {
+    public static final CallSiteIndex EMPTY = new Builder().build();
+
+    // layout: [int magic][int stringCount][int targetCount][int tableSize][int siteCount]
+    //         [int string offset]*stringCount [int target + 1]*tableSize
+    //         [target: int owner][int name][int descriptor][int firstSite][int siteCount]*targetCount
+    //         [site: int class][int method name][int method descriptor][int instruction]*siteCount
+    //         [string: u2 length][UTF-8 bytes]*stringCount
+    // the magic doubles as a format version, change it whenever the layout changes
+    private static final int MAGIC = 0x43534931; // "CSI1"
+    private static final int HEADER_LENGTH = 20;
+    private static final int TARGET_LENGTH = 20;
+    private static final int SITE_LENGTH = 16;
+
+    private final ByteBuffer buffer;
+    private final int stringCount;
+    private final int targetCount;
+    private final int tableSize;
+    private final int siteCount;
+
+    private CallSiteIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.stringCount = buffer.getInt(4);
+        this.targetCount = buffer.getInt(8);
+        this.tableSize = buffer.getInt(12);
+        this.siteCount = buffer.getInt(16);
+    }
+
+    /**
+     * A call of a method.
+     *
+     * @param className The internal name of the calling class (e.g. {@code main/MainApp}).
+     * @param methodName The name of the calling method.
+     * @param methodDescriptor The descriptor of the calling method.
+     * @param instruction The index of the call among the instructions of the calling method, not counting labels,
+     * line numbers and frames.
+     */
+    public record CallSite(String className, String methodName, String methodDescriptor, int instruction) {}
+
+    /**
+     * Builds the index by reading every class of a jar once.
+     *
+     * @param gameJar The jar to index.
+     * @return An index of all method calls in the jar.
+     * @throws IOException if the jar or one of its classes can't be read.
+     */
+    public static CallSiteIndex build(GameJar gameJar) throws IOException {
+        Builder builder = new Builder();
+        CentralDirectory centralDirectory = gameJar.centralDirectory();
+        for (int entry : centralDirectory.entryOffsets()) {
+            if (!centralDirectory.name(entry).endsWith(".class")) continue;
+
+            new ClassReader(gameJar.read(entry))
+                    .accept(new IndexingClassVisitor(builder), ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Wraps a buffer previously obtained from {@link #buffer()}, e.g. after reading it back from disk.
+     * <p>
+     * Only the header is validated, the buffer is used as is without copying.
+     *
+     * @param buffer The serialized index.
+     * @return An index backed by the given buffer.
+     * @throws IllegalArgumentException if the buffer doesn't hold an index in the current format.
+     */
+    public static CallSiteIndex wrap(ByteBuffer buffer) {
+        buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (buffer.limit() < HEADER_LENGTH || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a call site index");
+        }
+
+        long stringCount = buffer.getInt(4);
+        long targetCount = buffer.getInt(8);
+        long tableSize = buffer.getInt(12);
+        long siteCount = buffer.getInt(16);
+        if (stringCount < 0
+                || targetCount < 0
+                || siteCount < 0
+                || tableSize <= targetCount
+                || Long.bitCount(tableSize) != 1
+                || HEADER_LENGTH
+                                + (stringCount + tableSize) * 4
+                                + targetCount * TARGET_LENGTH
+                                + siteCount * SITE_LENGTH
+                                + stringCount * 2
+                        > buffer.limit()) {
+            throw new IllegalArgumentException("Malformed call site index header");
+        }
+
+        return new CallSiteIndex(buffer);
+    }
+
+    /**
+     * @return A read-only view of the serialized index that can be passed to {@link #wrap(ByteBuffer)}.
+     */
+    public ByteBuffer buffer() {
+        return buffer.duplicate();
+    }
+
+    /**
+     * @return The number of calls in the index.
+     */
+    public int size() {
+        return siteCount;
+    }
+
+    /**
+     * Looks up all calls of a method.
+     *
+     * @param owner The internal name of the class declaring the called method.
+     * @param name The name of the called method.
+     * @param descriptor The descriptor of the called method.
+     * @return All calls of the method in the order they appear in the jar.
+     */
+    public List<CallSite> callers(String owner, String name, String descriptor) {
+        int target = findTarget(owner, name, descriptor);
+        if (target < 0) {
+            return List.of();
+        }
+
+        int firstSite = buffer.getInt(target + 12);
+        int count = buffer.getInt(target + 16);
+        List<CallSite> callers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int site = sitesOffset() + (firstSite + i) * SITE_LENGTH;
+            callers.add(new CallSite(
+                    string(buffer.getInt(site)),
+                    string(buffer.getInt(site + 4)),
+                    string(buffer.getInt(site + 8)),
+                    buffer.getInt(site + 12)));
+        }
+        return callers;
+    }
+
+    /**
+     * Checks whether a method is called from a class without decoding any call sites.
+     *
+     * @param owner The internal name of the class declaring the called method.
+     * @param name The name of the called method.
+     * @param descriptor The descriptor of the called method.
+     * @param className The internal name of the calling class.
+     * @param methodName The name of the calling method, or {@code null} to accept calls from any method.
+     * @param methodDescriptor The descriptor of the calling method, or {@code null} to accept any descriptor.
+     * @return {@code true} if the class contains at least one matching call.
+     */
+    public boolean isCalledFrom(
+            String owner,
+            String name,
+            String descriptor,
+            String className,
+            String methodName,
+            String methodDescriptor) {
+        int target = findTarget(owner, name, descriptor);
+        if (target < 0) {
+            return false;
+        }
+
+        byte[] classBytes = utf8(className);
+        byte[] methodNameBytes = methodName != null ? utf8(methodName) : null;
+        byte[] methodDescriptorBytes = methodDescriptor != null ? utf8(methodDescriptor) : null;
+
+        int firstSite = buffer.getInt(target + 12);
+        int count = buffer.getInt(target + 16);
+        for (int i = 0; i < count; i++) {
+            int site = sitesOffset() + (firstSite + i) * SITE_LENGTH;
+            if (stringEquals(buffer.getInt(site), classBytes)
+                    && (methodNameBytes == null || stringEquals(buffer.getInt(site + 4), methodNameBytes))
+                    && (methodDescriptorBytes == null
+                            || stringEquals(buffer.getInt(site + 8), methodDescriptorBytes))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int findTarget(String owner, String name, String descriptor) {
+        if (targetCount == 0) {
+            return -1;
+        }
+
+        byte[] ownerBytes = utf8(owner);
+        byte[] nameBytes = utf8(name);
+        byte[] descriptorBytes = utf8(descriptor);
+
+        int mask = tableSize - 1;
+        for (int slot = hash(owner, name, descriptor) & mask; ; slot = (slot + 1) & mask) {
+            int entry = buffer.getInt(tableOffset() + slot * 4);
+            if (entry == 0) {
+                return -1;
+            }
+
+            int target = targetsOffset() + (entry - 1) * TARGET_LENGTH;
+            if (stringEquals(buffer.getInt(target), ownerBytes)
+                    && stringEquals(buffer.getInt(target + 4), nameBytes)
+                    && stringEquals(buffer.getInt(target + 8), descriptorBytes)) {
+                return target;
+            }
+        }
+    }
+
+    private int tableOffset() {
+        return HEADER_LENGTH + stringCount * 4;
+    }
+
+    private int targetsOffset() {
+        return tableOffset() + tableSize * 4;
+    }
+
+    private int sitesOffset() {
+        return targetsOffset() + targetCount * TARGET_LENGTH;
+    }
+
+    private String string(int id) {
+        int offset = buffer.getInt(HEADER_LENGTH + id * 4);
+        byte[] bytes = new byte[buffer.getShort(offset) & 0xFFFF];
+        buffer.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean stringEquals(int id, byte[] expected) {
+        int offset = buffer.getInt(HEADER_LENGTH + id * 4);
+        if ((buffer.getShort(offset) & 0xFFFF) != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(offset + 2 + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int hash(String owner, String name, String descriptor) {
+        int hash = (owner.hashCode() * 31 + name.hashCode()) * 31 + descriptor.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Collects call sites and lays them out in the serialized format.
+     */
+    static final class Builder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        // called method as owner, name and descriptor ids -> sites as class, method name, descriptor and instruction
+        private final Map<List<Integer>, List<int[]>> targets = new LinkedHashMap<>();
+
+        private int string(String value) {
+            return ids.computeIfAbsent(value, (key) -> {
+                strings.add(key);
+                return strings.size() - 1;
+            });
+        }
+
+        void add(String owner, String name, String descriptor, CallSite site) {
+            List<Integer> target = List.of(string(owner), string(name), string(descriptor));
+            targets.computeIfAbsent(target, (key) -> new ArrayList<>())
+                    .add(new int[] {
+                        string(site.className()),
+                        string(site.methodName()),
+                        string(site.methodDescriptor()),
+                        site.instruction()
+                    });
+        }
+
+        CallSiteIndex build() {
+            byte[][] encoded = new byte[strings.size()][];
+            int stringsLength = 0;
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = utf8(strings.get(i));
+                if (encoded[i].length > 0xFFFF) {
+                    throw new IllegalArgumentException("Name too long to index: " + strings.get(i));
+                }
+                stringsLength += 2 + encoded[i].length;
+            }
+
+            int siteCount = 0;
+            for (List<int[]> sites : targets.values()) {
+                siteCount += sites.size();
+            }
+            int tableSize = Integer.highestOneBit(Math.max(targets.size(), 1) * 2) * 2;
+
+            int tableOffset = HEADER_LENGTH + encoded.length * 4;
+            int targetsOffset = tableOffset + tableSize * 4;
+            int sitesOffset = targetsOffset + targets.size() * TARGET_LENGTH;
+            int stringsOffset = sitesOffset + siteCount * SITE_LENGTH;
+            ByteBuffer buffer = ByteBuffer.allocate(stringsOffset + stringsLength);
+
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, encoded.length);
+            buffer.putInt(8, targets.size());
+            buffer.putInt(12, tableSize);
+            buffer.putInt(16, siteCount);
+
+            int stringOffset = stringsOffset;
+            for (int i = 0; i < encoded.length; i++) {
+                buffer.putInt(HEADER_LENGTH + i * 4, stringOffset);
+                buffer.putShort(stringOffset, (short) encoded[i].length);
+                buffer.put(stringOffset + 2, encoded[i]);
+                stringOffset += 2 + encoded[i].length;
+            }
+
+            int mask = tableSize - 1;
+            int targetIndex = 0;
+            int site = 0;
+            for (Map.Entry<List<Integer>, List<int[]>> target : targets.entrySet()) {
+                List<Integer> key = target.getKey();
+                int slot = hash(strings.get(key.get(0)), strings.get(key.get(1)), strings.get(key.get(2))) & mask;
+                while (buffer.getInt(tableOffset + slot * 4) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                buffer.putInt(tableOffset + slot * 4, targetIndex + 1);
+
+                int targetOffset = targetsOffset + targetIndex * TARGET_LENGTH;
+                buffer.putInt(targetOffset, key.get(0));
+                buffer.putInt(targetOffset + 4, key.get(1));
+                buffer.putInt(targetOffset + 8, key.get(2));
+                buffer.putInt(targetOffset + 12, site);
+                buffer.putInt(targetOffset + 16, target.getValue().size());
+
+                for (int[] values : target.getValue()) {
+                    int siteOffset = sitesOffset + site * SITE_LENGTH;
+                    for (int i = 0; i < values.length; i++) {
+                        buffer.putInt(siteOffset + i * 4, values[i]);
+                    }
+                    site++;
+                }
+                targetIndex++;
+            }
+
+            return new CallSiteIndex(buffer.asReadOnlyBuffer());
+        }
+    }
+
+    private static final class IndexingClassVisitor extends ClassVisitor {
+        private final Builder builder;
+        private String className;
+
+        private IndexingClassVisitor(Builder builder) {
+            super(Opcodes.ASM9);
+            this.builder = builder;
+        }
+
+        @Override
+        public void visit(
+                int version, int access, String name, String signature, String superName, String[] interfaces) {
+            className = name;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(
+                int access, String name, String descriptor, String signature, String[] exceptions) {
+            return new MethodVisitor(Opcodes.ASM9) {
+                private int instruction;
+
+                @Override
+                public void visitMethodInsn(
+                        int opcode, String owner, String methodName, String methodDescriptor, boolean isInterface) {
+                    CallSite site = new CallSite(className, name, descriptor, instruction++);
+                    builder.add(owner, methodName, methodDescriptor, site);
+                }
+
+                @Override
+                public void visitInsn(int opcode) {
+                    instruction++;
+                }
+
+                @Override
+                public void visitIntInsn(int opcode, int operand) {
+                    instruction++;
+                }
+
+                @Override
+                public void visitVarInsn(int opcode, int varIndex) {
+                    instruction++;
+                }
+
+                @Override
+                public void visitTypeInsn(int opcode, String type) {
+                    instruction++;
+                }
+
+                @Override
+                public void visitFieldInsn(int opcode, String owner, String fieldName, String fieldDescriptor) {
+                    instruction++;
+                }
+
+                @Override
+                public void visitInvokeDynamicInsn(
+                        String indyName,
+                        String indyDescriptor,
+                        Handle bootstrapMethodHandle,
+                        Object... bootstrapMethodArguments) {
+                    instruction++;
+                }
+
+                @Override
+                public void visitJumpInsn(int opcode, Label label) {
+                    instruction++;
+                }
+
+                @Override
+                public void visitLdcInsn(Object value) {
+                    instruction++;
+                }
+
+                @Override
+                public void visitIincInsn(int varIndex, int increment) {
+                    instruction++;
+                }
+
+                @Override
+                public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+                    instruction++;
+                }
+
+                @Override
+                public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+                    instruction++;
+                }
+
+                @Override
+                public void visitMultiANewArrayInsn(String arrayDescriptor, int numDimensions) {
+                    instruction++;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.index;
+
+import de.rhm176.silk.loader.zip.CentralDirectory;
+import de.rhm176.silk.loader.zip.GameJar;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * A read-only index of the superclass and interfaces of every class in the game jar.
+ * <p>
+ * Computing stack map frames needs the common superclass of types, which ASM answers by loading classes. With
+ * this index the hierarchy of game classes is known without loading or even reading them. Like the
+ * {@link CallSiteIndex} it lives in a single buffer that can be memory-mapped as is: an open addressing table
+ * keyed by the hash of the class name points to fixed size records, and all names are stored once in a string
+ * pool.
+ */
+public final class ClassHierarchyIndex {
+    public static final ClassHierarchyIndex EMPTY = new Builder().build();
+
+    // layout: [int magic][int stringCount][int classCount][int tableSize][int interfaceCount]
+    //         [int string offset]*stringCount [int class + 1]*tableSize
+    //         [class: int name][int superName or -1][int access][int firstInterface][int interfaceCount]*classCount
+    //         [interface: int name]*interfaceCount
+    //         [string: u2 length][UTF-8 bytes]*stringCount
+    // the magic doubles as a format version, change it whenever the layout changes
+    private static final int MAGIC = 0x53434831; // "SCH1"
+    private static final int HEADER_LENGTH = 20;
+    private static final int CLASS_LENGTH = 20;
+
+    private final ByteBuffer buffer;
+    private final int stringCount;
+    private final int classCount;
+    private final int tableSize;
+
+    private ClassHierarchyIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.stringCount = buffer.getInt(4);
+        this.classCount = buffer.getInt(8);
+        this.tableSize = buffer.getInt(12);
+    }
+
+    /**
+     * The position of a class in the class hierarchy.
+     *
+     * @param name The internal name of the class (e.g. {@code main/MainApp}).
+     * @param superName The internal name of the superclass, or {@code null} for {@code java/lang/Object}.
+     * @param interfaces The internal names of the interfaces the class directly implements.
+     * @param isInterface {@code true} if the class is an interface.
+     */
+    public record ClassInfo(String name, String superName, List<String> interfaces, boolean isInterface) {
+        public ClassInfo {
+            interfaces = List.copyOf(interfaces);
+        }
+
+        /**
+         * Reads the hierarchy of a class from its header, without parsing any fields or methods.
+         *
+         * @param reader A reader of the class.
+         * @return The position of the class in the class hierarchy.
+         */
+        public static ClassInfo read(ClassReader reader) {
+            return new ClassInfo(
+                    reader.getClassName(),
+                    reader.getSuperName(),
+                    List.of(reader.getInterfaces()),
+                    (reader.getAccess() & Opcodes.ACC_INTERFACE) != 0);
+        }
+    }
+
+    /**
+     * Builds the index by reading the header of every class of a jar once.
+     *
+     * @param gameJar The jar to index.
+     * @return An index of the hierarchy of all classes in the jar.
+     * @throws IOException if the jar or one of its classes can't be read.
+     */
+    public static ClassHierarchyIndex build(GameJar gameJar) throws IOException {
+        Builder builder = new Builder();
+        CentralDirectory centralDirectory = gameJar.centralDirectory();
+        for (int entry : centralDirectory.entryOffsets()) {
+            if (!centralDirectory.name(entry).endsWith(".class")) continue;
+
+            builder.add(ClassInfo.read(new ClassReader(gameJar.read(entry))));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Wraps a buffer previously obtained from {@link #buffer()}, e.g. after reading it back from disk.
+     * <p>
+     * Only the header is validated, the buffer is used as is without copying.
+     *
+     * @param buffer The serialized index.
+     * @return An index backed by the given buffer.
+     * @throws IllegalArgumentException if the buffer doesn't hold an index in the current format.
+     */
+    public static ClassHierarchyIndex wrap(ByteBuffer buffer) {
+        buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (buffer.limit() < HEADER_LENGTH || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a class hierarchy index");
+        }
+
+        long stringCount = buffer.getInt(4);
+        long classCount = buffer.getInt(8);
+        long tableSize = buffer.getInt(12);
+        long interfaceCount = buffer.getInt(16);
+        if (stringCount < 0
+                || classCount < 0
+                || interfaceCount < 0
+                || tableSize <= classCount
+                || Long.bitCount(tableSize) != 1
+                || HEADER_LENGTH
+                                + (stringCount + tableSize + interfaceCount) * 4
+                                + classCount * CLASS_LENGTH
+                                + stringCount * 2
+                        > buffer.limit()) {
+            throw new IllegalArgumentException("Malformed class hierarchy index header");
+        }
+
+        return new ClassHierarchyIndex(buffer);
+    }
+
+    /**
+     * @return A read-only view of the serialized index that can be passed to {@link #wrap(ByteBuffer)}.
+     */
+    public ByteBuffer buffer() {
+        return buffer.duplicate();
+    }
+
+    /**
+     * @return The number of classes in the index.
+     */
+    public int size() {
+        return classCount;
+    }
+
+    /**
+     * Looks up the hierarchy of a class.
+     *
+     * @param className The internal name of the class (e.g. {@code main/MainApp}).
+     * @return The position of the class in the class hierarchy, or {@code null} if it isn't part of the index.
+     */
+    public ClassInfo get(String className) {
+        if (classCount == 0) {
+            return null;
+        }
+
+        byte[] nameBytes = utf8(className);
+        int mask = tableSize - 1;
+        for (int slot = hash(className) & mask; ; slot = (slot + 1) & mask) {
+            int entry = buffer.getInt(tableOffset() + slot * 4);
+            if (entry == 0) {
+                return null;
+            }
+
+            int record = classesOffset() + (entry - 1) * CLASS_LENGTH;
+            if (stringEquals(buffer.getInt(record), nameBytes)) {
+                int superName = buffer.getInt(record + 4);
+                int firstInterface = buffer.getInt(record + 12);
+                int interfaceCount = buffer.getInt(record + 16);
+                List<String> interfaces = new ArrayList<>(interfaceCount);
+                for (int i = 0; i < interfaceCount; i++) {
+                    interfaces.add(string(buffer.getInt(interfacesOffset() + (firstInterface + i) * 4)));
+                }
+                return new ClassInfo(
+                        className,
+                        superName >= 0 ? string(superName) : null,
+                        interfaces,
+                        (buffer.getInt(record + 8) & Opcodes.ACC_INTERFACE) != 0);
+            }
+        }
+    }
+
+    private int tableOffset() {
+        return HEADER_LENGTH + stringCount * 4;
+    }
+
+    private int classesOffset() {
+        return tableOffset() + tableSize * 4;
+    }
+
+    private int interfacesOffset() {
+        return classesOffset() + classCount * CLASS_LENGTH;
+    }
+
+    private String string(int id) {
+        int offset = buffer.getInt(HEADER_LENGTH + id * 4);
+        byte[] bytes = new byte[buffer.getShort(offset) & 0xFFFF];
+        buffer.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean stringEquals(int id, byte[] expected) {
+        int offset = buffer.getInt(HEADER_LENGTH + id * 4);
+        if ((buffer.getShort(offset) & 0xFFFF) != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(offset + 2 + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int hash(String className) {
+        int hash = className.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Collects class headers and lays them out in the serialized format.
+     */
+    static final class Builder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, ClassInfo> classes = new HashMap<>();
+        private final List<ClassInfo> order = new ArrayList<>();
+
+        private int string(String value) {
+            return ids.computeIfAbsent(value, (key) -> {
+                strings.add(key);
+                return strings.size() - 1;
+            });
+        }
+
+        void add(ClassInfo info) {
+            // a jar may hold the same class twice, the class loader only ever sees the first one
+            if (classes.putIfAbsent(info.name(), info) == null) {
+                order.add(info);
+            }
+        }
+
+        ClassHierarchyIndex build() {
+            int interfaceCount = 0;
+            for (ClassInfo info : order) {
+                string(info.name());
+                if (info.superName() != null) {
+                    string(info.superName());
+                }
+                for (String name : info.interfaces()) {
+                    string(name);
+                }
+                interfaceCount += info.interfaces().size();
+            }
+
+            byte[][] encoded = new byte[strings.size()][];
+            int stringsLength = 0;
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = utf8(strings.get(i));
+                if (encoded[i].length > 0xFFFF) {
+                    throw new IllegalArgumentException("Name too long to index: " + strings.get(i));
+                }
+                stringsLength += 2 + encoded[i].length;
+            }
+
+            int tableSize = Integer.highestOneBit(Math.max(order.size(), 1) * 2) * 2;
+
+            int tableOffset = HEADER_LENGTH + encoded.length * 4;
+            int classesOffset = tableOffset + tableSize * 4;
+            int interfacesOffset = classesOffset + order.size() * CLASS_LENGTH;
+            int stringsOffset = interfacesOffset + interfaceCount * 4;
+            ByteBuffer buffer = ByteBuffer.allocate(stringsOffset + stringsLength);
+
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, encoded.length);
+            buffer.putInt(8, order.size());
+            buffer.putInt(12, tableSize);
+            buffer.putInt(16, interfaceCount);
+
+            int stringOffset = stringsOffset;
+            for (int i = 0; i < encoded.length; i++) {
+                buffer.putInt(HEADER_LENGTH + i * 4, stringOffset);
+                buffer.putShort(stringOffset, (short) encoded[i].length);
+                buffer.put(stringOffset + 2, encoded[i]);
+                stringOffset += 2 + encoded[i].length;
+            }
+
+            int mask = tableSize - 1;
+            int interfaceIndex = 0;
+            for (int classIndex = 0; classIndex < order.size(); classIndex++) {
+                ClassInfo info = order.get(classIndex);
+                int slot = hash(info.name()) & mask;
+                while (buffer.getInt(tableOffset + slot * 4) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                buffer.putInt(tableOffset + slot * 4, classIndex + 1);
+
+                int classOffset = classesOffset + classIndex * CLASS_LENGTH;
+                buffer.putInt(classOffset, string(info.name()));
+                buffer.putInt(classOffset + 4, info.superName() != null ? string(info.superName()) : -1);
+                buffer.putInt(classOffset + 8, info.isInterface() ? Opcodes.ACC_INTERFACE : 0);
+                buffer.putInt(classOffset + 12, interfaceIndex);
+                buffer.putInt(classOffset + 16, info.interfaces().size());
+
+                for (String name : info.interfaces()) {
+                    buffer.putInt(interfacesOffset + interfaceIndex * 4, string(name));
+                    interfaceIndex++;
+                }
+            }
+
+            return new ClassHierarchyIndex(buffer.asReadOnlyBuffer());
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.index;
+
+import de.rhm176.silk.loader.zip.CentralDirectory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.ZipException;
+
+/**
+ * A compact, read-only set of the binary names of all classes in the game jar.
+ * <p>
+ * Names are kept sorted and front-coded in a single buffer: every entry stores how many leading bytes it
+ * shares with its predecessor followed by the remaining bytes. Every {@value #BLOCK_SIZE}th entry is stored
+ * in full so lookups can binary search those restart points before scanning a single block.
+ * <p>
+ * Lookups don't allocate for ASCII class names, which covers every class in the game.
+ */
+public final class GameClassIndex {
+    public static final GameClassIndex EMPTY = fromSortedNames(new byte[0][]);
+
+    private static final int BLOCK_SIZE = 16;
+    private static final byte[] CLASS_SUFFIX = ".class".getBytes(StandardCharsets.US_ASCII);
+
+    // layout: [int magic][int count][int blockSize][int restartCount][int restart offset]*[entry]*
+    // entry:  [u2 shared prefix length][u2 suffix length][suffix bytes]
+    // the magic doubles as a format version, change it whenever the layout changes
+    private static final int MAGIC = 0x53434931; // "SCI1"
+    private static final int MAGIC_OFFSET = 0;
+    private static final int COUNT_OFFSET = 4;
+    private static final int BLOCK_SIZE_OFFSET = 8;
+    private static final int RESTART_COUNT_OFFSET = 12;
+    private static final int RESTARTS_OFFSET = 16;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int blockSize;
+    private final int restartCount;
+
+    private GameClassIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.count = buffer.getInt(COUNT_OFFSET);
+        this.blockSize = buffer.getInt(BLOCK_SIZE_OFFSET);
+        this.restartCount = buffer.getInt(RESTART_COUNT_OFFSET);
+    }
+
+    /**
+     * Builds the index from the {@code .class} entries of a jar.
+     *
+     * @param centralDirectory The central directory of the jar.
+     * @return An index of the binary names (e.g. {@code main.MainApp}) of all classes in the jar.
+     * @throws ZipException if the central directory is malformed.
+     */
+    public static GameClassIndex build(CentralDirectory centralDirectory) throws ZipException {
+        int[] entries = centralDirectory.entryOffsets();
+        byte[][] names = new byte[entries.length][];
+        int count = 0;
+
+        for (int entry : entries) {
+            int nameLength = centralDirectory.nameLength(entry);
+            if (nameLength <= CLASS_SUFFIX.length) continue;
+
+            byte[] name = new byte[nameLength];
+            centralDirectory.getName(entry, name, 0);
+            if (!Arrays.equals(
+                    name, nameLength - CLASS_SUFFIX.length, nameLength, CLASS_SUFFIX, 0, CLASS_SUFFIX.length)) {
+                continue;
+            }
+
+            byte[] className = Arrays.copyOf(name, nameLength - CLASS_SUFFIX.length);
+            for (int i = 0; i < className.length; i++) {
+                if (className[i] == '/' || className[i] == '\\') {
+                    className[i] = '.';
+                }
+            }
+            names[count++] = className;
+        }
+
+        names = Arrays.copyOf(names, count);
+        Arrays.sort(names, Arrays::compareUnsigned);
+        return fromSortedNames(names);
+    }
+
+    /**
+     * Wraps a buffer previously obtained from {@link #buffer()}, e.g. after reading it back from disk.
+     * <p>
+     * Only the header and the restart points are validated, the buffer is used as is without copying.
+     *
+     * @param buffer The serialized index.
+     * @return An index backed by the given buffer.
+     * @throws IllegalArgumentException if the buffer doesn't hold an index in the current format.
+     */
+    public static GameClassIndex wrap(ByteBuffer buffer) {
+        buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        int limit = buffer.limit();
+        if (limit < RESTARTS_OFFSET || buffer.getInt(MAGIC_OFFSET) != MAGIC) {
+            throw new IllegalArgumentException("Not a game class index");
+        }
+
+        int count = buffer.getInt(COUNT_OFFSET);
+        int blockSize = buffer.getInt(BLOCK_SIZE_OFFSET);
+        int restartCount = buffer.getInt(RESTART_COUNT_OFFSET);
+        if (count < 0
+                || blockSize <= 0
+                || restartCount != (int) ((count + (long) blockSize - 1) / blockSize)
+                || RESTARTS_OFFSET + (long) restartCount * 4 > limit) {
+            throw new IllegalArgumentException("Malformed game class index header");
+        }
+        for (int i = 0; i < restartCount; i++) {
+            int restart = buffer.getInt(RESTARTS_OFFSET + i * 4);
+            if (restart < RESTARTS_OFFSET + restartCount * 4 || restart + 4 > limit) {
+                throw new IllegalArgumentException("Malformed game class index restart point " + i);
+            }
+        }
+
+        return new GameClassIndex(buffer);
+    }
+
+    private static GameClassIndex fromSortedNames(byte[][] names) {
+        byte[] data = new byte[64];
+        int dataLength = 0;
+        int[] restarts = new int[(names.length + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        int count = 0;
+
+        byte[] previous = null;
+        for (byte[] name : names) {
+            if (previous != null && Arrays.equals(previous, name)) continue;
+
+            int shared = 0;
+            if (count % BLOCK_SIZE == 0) {
+                restarts[count / BLOCK_SIZE] = dataLength;
+            } else {
+                shared = Arrays.mismatch(previous, name);
+            }
+
+            int suffixLength = name.length - shared;
+            if (dataLength + 4 + suffixLength > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, dataLength + 4 + suffixLength));
+            }
+            data[dataLength++] = (byte) (shared >>> 8);
+            data[dataLength++] = (byte) shared;
+            data[dataLength++] = (byte) (suffixLength >>> 8);
+            data[dataLength++] = (byte) suffixLength;
+            System.arraycopy(name, shared, data, dataLength, suffixLength);
+            dataLength += suffixLength;
+
+            previous = name;
+            count++;
+        }
+
+        int restartCount = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int dataOffset = RESTARTS_OFFSET + restartCount * 4;
+        ByteBuffer buffer = ByteBuffer.allocate(dataOffset + dataLength);
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(COUNT_OFFSET, count);
+        buffer.putInt(BLOCK_SIZE_OFFSET, BLOCK_SIZE);
+        buffer.putInt(RESTART_COUNT_OFFSET, restartCount);
+        for (int i = 0; i < restartCount; i++) {
+            buffer.putInt(RESTARTS_OFFSET + i * 4, dataOffset + restarts[i]);
+        }
+        buffer.put(dataOffset, data, 0, dataLength);
+
+        return new GameClassIndex(buffer.asReadOnlyBuffer());
+    }
+
+    /**
+     * @return The number of classes in the index.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return A read-only view of the serialized index that can be passed to {@link #wrap(ByteBuffer)}.
+     */
+    public ByteBuffer buffer() {
+        return buffer.duplicate();
+    }
+
+    /**
+     * Checks whether the game jar contains a class.
+     *
+     * @param className The binary name of the class (e.g. {@code main.MainApp}).
+     * @return {@code true} if the class is part of the game jar.
+     */
+    public boolean contains(String className) {
+        if (count == 0) {
+            return false;
+        }
+
+        for (int i = 0; i < className.length(); i++) {
+            if (className.charAt(i) >= 0x80) {
+                return find(null, className.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return find(className, null);
+    }
+
+    private boolean find(String key, byte[] keyBytes) {
+        int keyLength = keyBytes != null ? keyBytes.length : key.length();
+
+        // find the last restart point whose name is <= key
+        int low = 0;
+        int high = restartCount - 1;
+        int block = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int position = buffer.getInt(RESTARTS_OFFSET + mid * 4);
+            int comparison = compare(key, keyBytes, keyLength, position + 4, buffer.getShort(position + 2) & 0xFFFF);
+
+            if (comparison == 0) {
+                return true;
+            } else if (comparison < 0) {
+                high = mid - 1;
+            } else {
+                block = mid;
+                low = mid + 1;
+            }
+        }
+
+        if (block < 0) {
+            return false;
+        }
+
+        // scan the block, matched is the length of the common prefix of key and the previous entry
+        int position = buffer.getInt(RESTARTS_OFFSET + block * 4);
+        int end = Math.min(count, (block + 1) * blockSize) - block * blockSize;
+        int matched = 0;
+        for (int i = 0; i < end; i++) {
+            int shared = buffer.getShort(position) & 0xFFFF;
+            int suffixLength = buffer.getShort(position + 2) & 0xFFFF;
+            int suffix = position + 4;
+            position = suffix + suffixLength;
+
+            if (shared < matched) {
+                // diverges from the previous entry before the key does, so it sorts after the key
+                return false;
+            } else if (shared > matched) {
+                // differs from the key at the same position as the previous entry, still before the key
+                continue;
+            }
+
+            int j = 0;
+            while (j < suffixLength && matched + j < keyLength) {
+                int keyByte = keyBytes != null ? keyBytes[matched + j] & 0xFF : key.charAt(matched + j);
+                int entryByte = buffer.get(suffix + j) & 0xFF;
+                if (keyByte != entryByte) {
+                    if (entryByte > keyByte) {
+                        return false;
+                    }
+                    break;
+                }
+                j++;
+            }
+
+            if (j == suffixLength && matched + j == keyLength) {
+                return true;
+            } else if (j < suffixLength && matched + j == keyLength) {
+                // key is a prefix of this entry
+                return false;
+            }
+            matched += j;
+        }
+
+        return false;
+    }
+
+    private int compare(String key, byte[] keyBytes, int keyLength, int position, int length) {
+        int common = Math.min(keyLength, length);
+        for (int i = 0; i < common; i++) {
+            int keyByte = keyBytes != null ? keyBytes[i] & 0xFF : key.charAt(i);
+            int entryByte = buffer.get(position + i) & 0xFF;
+            if (keyByte != entryByte) {
+                return keyByte - entryByte;
+            }
+        }
+        return keyLength - length;
+    }
+}
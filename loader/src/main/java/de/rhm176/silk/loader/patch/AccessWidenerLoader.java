@@ -0,0 +1,196 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.patch;
+
+import de.rhm176.silk.loader.cache.AccessWidenerCache;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import net.fabricmc.accesswidener.AccessWidenerReader;
+import net.fabricmc.accesswidener.AccessWidenerVisitor;
+import net.fabricmc.loader.api.metadata.ModOrigin;
+import net.fabricmc.loader.impl.FabricLoaderImpl;
+import net.fabricmc.loader.impl.ModContainerImpl;
+import net.fabricmc.loader.impl.metadata.LoaderModMetadata;
+
+/**
+ * Loads the access wideners of all mods like {@link FabricLoaderImpl#loadAccessWideners()}, but from the
+ * {@link AccessWidenerCache} whenever the mods contributing access wideners are unchanged since the last launch.
+ * <p>
+ * Mods loaded from jars are identified by the size and modification time of their jars, all other mods by the
+ * contents of their access widener files.
+ */
+final class AccessWidenerLoader {
+    private AccessWidenerLoader() {}
+
+    static void load(FabricLoaderImpl loader) {
+        String namespace = loader.getMappingResolver().getCurrentRuntimeNamespace();
+
+        String key;
+        try {
+            key = cacheKey(loader, namespace);
+        } catch (IOException e) {
+            System.err.println("[Silk] Not caching access wideners, the mods can't be read: " + e.getMessage());
+            read(loader, namespace, loader.getAccessWidener());
+            return;
+        }
+
+        if (AccessWidenerCache.replay(key, loader.getAccessWidener())) {
+            return;
+        }
+
+        AccessWidenerCache.Recorder recorder = new AccessWidenerCache.Recorder();
+        read(loader, namespace, new AccessWidenerVisitor() {
+            @Override
+            public void visitHeader(String namespace) {
+                loader.getAccessWidener().visitHeader(namespace);
+                recorder.visitHeader(namespace);
+            }
+
+            @Override
+            public void visitClass(String name, AccessWidenerReader.AccessType access, boolean transitive) {
+                loader.getAccessWidener().visitClass(name, access, transitive);
+                recorder.visitClass(name, access, transitive);
+            }
+
+            @Override
+            public void visitMethod(
+                    String owner,
+                    String name,
+                    String descriptor,
+                    AccessWidenerReader.AccessType access,
+                    boolean transitive) {
+                loader.getAccessWidener().visitMethod(owner, name, descriptor, access, transitive);
+                recorder.visitMethod(owner, name, descriptor, access, transitive);
+            }
+
+            @Override
+            public void visitField(
+                    String owner,
+                    String name,
+                    String descriptor,
+                    AccessWidenerReader.AccessType access,
+                    boolean transitive) {
+                loader.getAccessWidener().visitField(owner, name, descriptor, access, transitive);
+                recorder.visitField(owner, name, descriptor, access, transitive);
+            }
+        });
+
+        try {
+            AccessWidenerCache.store(key, recorder);
+        } catch (IOException e) {
+            System.err.println("[Silk] Failed to update the access widener cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the access widener files of all mods without parsing them.
+     *
+     * @param loader The loader holding the mods.
+     * @return The contents of the access wideners, in mod load order.
+     */
+    static List<byte[]> contents(FabricLoaderImpl loader) {
+        List<byte[]> contents = new ArrayList<>();
+        for (ModContainerImpl mod : loader.getModsInternal()) {
+            String accessWidener = mod.getMetadata().getAccessWidener();
+            if (accessWidener == null) {
+                continue;
+            }
+
+            Path path = path(mod, accessWidener);
+            try {
+                contents.add(Files.readAllBytes(path));
+            } catch (IOException e) {
+                throw new RuntimeException(
+                        "Failed to read accessWidener file from mod " + mod.getMetadata().getId(), e);
+            }
+        }
+        return contents;
+    }
+
+    private static void read(FabricLoaderImpl loader, String namespace, AccessWidenerVisitor visitor) {
+        AccessWidenerReader reader = new AccessWidenerReader(visitor);
+        for (ModContainerImpl mod : loader.getModsInternal()) {
+            LoaderModMetadata metadata = mod.getMetadata();
+            String accessWidener = metadata.getAccessWidener();
+            if (accessWidener == null) {
+                continue;
+            }
+
+            Path path = path(mod, accessWidener);
+            try (BufferedReader file = Files.newBufferedReader(path)) {
+                reader.read(file, namespace);
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to read accessWidener file from mod " + metadata.getId(), e);
+            }
+        }
+    }
+
+    private static Path path(ModContainerImpl mod, String accessWidener) {
+        return mod.findPath(accessWidener)
+                .orElseThrow(() -> new RuntimeException(String.format(
+                        "Missing accessWidener file %s from mod %s", accessWidener, mod.getMetadata().getId())));
+    }
+
+    // the access wideners only depend on the runtime namespace and the mods that contribute one, in load order
+    private static String cacheKey(FabricLoaderImpl loader, String namespace) throws IOException {
+        StringBuilder key = new StringBuilder("namespace=").append(namespace);
+        for (ModContainerImpl mod : loader.getModsInternal()) {
+            LoaderModMetadata metadata = mod.getMetadata();
+            String accessWidener = metadata.getAccessWidener();
+            if (accessWidener == null) {
+                continue;
+            }
+
+            key.append("\nmod=")
+                    .append(metadata.getId())
+                    .append(' ')
+                    .append(metadata.getVersion().getFriendlyString())
+                    .append(' ')
+                    .append(accessWidener);
+
+            ModOrigin origin = mod.getOrigin();
+            if (origin.getKind() == ModOrigin.Kind.PATH && origin.getPaths().stream().allMatch(Files::isRegularFile)) {
+                for (Path jar : origin.getPaths()) {
+                    BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+                    key.append("\njar=")
+                            .append(jar.toAbsolutePath().normalize())
+                            .append(' ')
+                            .append(attributes.size())
+                            .append(' ')
+                            .append(attributes.lastModifiedTime().toMillis());
+                }
+            } else {
+                // nested jars and directories have no reliable modification time, hash the file itself
+                Path path = mod.findPath(accessWidener).orElse(null);
+                if (path == null) {
+                    // let reading the access wideners report the missing file
+                    throw new IOException("Missing accessWidener file " + accessWidener);
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(Files.readAllBytes(path));
+                key.append("\ncontents=").append(Long.toHexString(crc.getValue()));
+            }
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.patch;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import de.rhm176.silk.loader.Main;
+import de.rhm176.silk.loader.zip.CentralDirectory;
+import de.rhm176.silk.loader.zip.GameJar;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import net.fabricmc.accesswidener.AccessWidener;
+import net.fabricmc.accesswidener.AccessWidenerClassVisitor;
+import net.fabricmc.accesswidener.AccessWidenerReader;
+import net.fabricmc.loader.impl.FabricLoaderImpl;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+
+/**
+ * A copy of the game jar with Silk's built-in patches and the access wideners of a fixed set of mods applied ahead
+ * of time.
+ * <p>
+ * Baked jars carry the {@value #MANIFEST_ATTRIBUTE} manifest attribute, naming the patch set, Silk and the Fabric
+ * Loader version they were baked with and a hash of the access wideners baked into them. When the game is launched
+ * from such a jar, the {@link CachingGameTransformer} doesn't patch or widen any game class. All entries are stored
+ * uncompressed, so reading a class is a plain copy.
+ */
+public final class BakedGameJar {
+    public static final String MANIFEST_ATTRIBUTE = "Silk-Baked";
+
+    private static final String MANIFEST_NAME = JarFile.MANIFEST_NAME;
+    private static final String MOD_METADATA_NAME = "fabric.mod.json";
+    private static final String ACCESS_WIDENERS_KEY = ";accesswideners=";
+
+    private BakedGameJar() {}
+
+    /**
+     * @return The start of the value of {@value #MANIFEST_ATTRIBUTE} in jars baked by this version of Silk, the hash of
+     * the baked access wideners follows it.
+     */
+    static String marker() {
+        return "patches=" + CachingGameTransformer.PATCH_SET_VERSION
+                + ";silk=" + Main.VERSION.getFriendlyString()
+                + ";fabricloader=" + WindowTitlePatch.fabricLoaderVersion();
+    }
+
+    /**
+     * Hashes the contents of a set of access wideners, independent of the order they are read in.
+     *
+     * @param accessWideners The contents of the access wideners.
+     * @return The hex encoded hash.
+     */
+    static String accessWidenersHash(List<byte[]> accessWideners) {
+        List<String> hashes = new ArrayList<>(accessWideners.size());
+        for (byte[] content : accessWideners) {
+            hashes.add(HexFormat.of().formatHex(sha256().digest(content)));
+        }
+        hashes.sort(null);
+
+        MessageDigest digest = sha256();
+        for (String hash : hashes) {
+            digest.update(hash.getBytes(StandardCharsets.US_ASCII));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Checks whether a game jar was baked by this version of Silk.
+     *
+     * @param gameJar The game jar.
+     * @return {@code true} if the jar is baked, {@code false} if it is the plain game jar.
+     * @throws IllegalStateException if the jar was baked by a different Silk or Fabric Loader version. Its classes
+     * can't be patched again, so it has to be baked again.
+     * @throws IOException if the manifest can't be read.
+     */
+    public static boolean isBaked(GameJar gameJar) throws IOException {
+        String baked = bakedValue(gameJar);
+        if (baked == null) {
+            return false;
+        }
+        if (!baked.startsWith(marker() + ACCESS_WIDENERS_KEY)) {
+            throw new IllegalStateException("The game jar " + gameJar.path() + " was baked for " + baked
+                    + ", but this is " + marker() + ". Bake it again from the original game jar.");
+        }
+        return true;
+    }
+
+    /**
+     * Checks that a baked game jar was baked with the access wideners of the loaded mods.
+     * <p>
+     * Fabric doesn't widen the classes of a baked jar, so an access widener added or changed after baking would
+     * otherwise be ignored.
+     *
+     * @param gameJar The baked game jar.
+     * @param accessWideners The contents of the access wideners of all loaded mods.
+     * @throws IllegalStateException if the jar was baked with different access wideners.
+     * @throws IOException if the manifest can't be read.
+     */
+    public static void checkAccessWideners(GameJar gameJar, List<byte[]> accessWideners) throws IOException {
+        String baked = bakedValue(gameJar);
+        String expected = marker() + ACCESS_WIDENERS_KEY + accessWidenersHash(accessWideners);
+        if (!expected.equals(baked)) {
+            throw new IllegalStateException("The game jar " + gameJar.path()
+                    + " was baked with different access wideners than the loaded mods declare. Bake it again from"
+                    + " the original game jar whenever the mods change.");
+        }
+    }
+
+    private static String bakedValue(GameJar gameJar) throws IOException {
+        if (gameJar.crc(MANIFEST_NAME) < 0) {
+            return null;
+        }
+
+        Manifest manifest = new Manifest(new ByteArrayInputStream(gameJar.read(MANIFEST_NAME)));
+        return manifest.getMainAttributes().getValue(MANIFEST_ATTRIBUTE);
+    }
+
+    /**
+     * Bakes a game jar.
+     *
+     * @param gameJar The original game jar.
+     * @param output The file to write the baked jar to. It is replaced if it exists.
+     * @param gameVersion The raw game version shown in the window title.
+     * @param accessWideners The contents of the access wideners to apply.
+     * @throws IllegalStateException if the game jar is already baked.
+     * @throws IOException if the game jar can't be read or the baked jar can't be written.
+     */
+    public static void bake(GameJar gameJar, Path output, String gameVersion, List<byte[]> accessWideners)
+            throws IOException {
+        if (isBaked(gameJar)) {
+            throw new IllegalStateException("The game jar " + gameJar.path() + " is already baked");
+        }
+
+        PatchEngine engine = new PatchEngine(List.of(new WindowTitlePatch(() -> gameVersion), new ModInitPatch()));
+        Map<String, byte[]> patchedClasses = engine.apply((className) -> {
+            try {
+                return gameJar.read(className.replace('.', '/') + ".class");
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        });
+
+        AccessWidener accessWidener = new AccessWidener();
+        AccessWidenerReader reader = new AccessWidenerReader(accessWidener);
+        for (byte[] content : accessWideners) {
+            reader.read(content);
+        }
+
+        Path temporaryFile = Files.createTempFile(output.toAbsolutePath().getParent(), "baked", ".tmp");
+        try {
+            try (ZipOutputStream out =
+                    new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                out.setMethod(ZipOutputStream.STORED);
+                writeEntry(out, MANIFEST_NAME, manifest(gameJar, accessWidenersHash(accessWideners)));
+
+                CentralDirectory centralDirectory = gameJar.centralDirectory();
+                for (int entry : centralDirectory.entryOffsets()) {
+                    String name = centralDirectory.name(entry);
+                    if (name.equalsIgnoreCase(MANIFEST_NAME)) continue;
+
+                    byte[] bytes = gameJar.read(entry);
+                    if (name.endsWith(".class")) {
+                        String className = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+                        bytes = patchedClasses.getOrDefault(className, bytes);
+                        if (accessWidener.getTargets().contains(className)) {
+                            bytes = widen(bytes, accessWidener);
+                        }
+                    }
+                    writeEntry(out, name, bytes);
+                }
+            }
+            Files.move(temporaryFile, output, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Reads the access wideners of all mods in a directory.
+     * <p>
+     * Only mods directly in the directory are considered, mods nested inside other mods are not.
+     *
+     * @param modsDirectory The directory holding the mod jars.
+     * @return The contents of all access wideners, or an empty list if the directory doesn't exist.
+     * @throws IOException if a mod can't be read or declares an access widener it doesn't contain.
+     */
+    public static List<byte[]> accessWideners(Path modsDirectory) throws IOException {
+        List<byte[]> accessWideners = new ArrayList<>();
+        if (!Files.isDirectory(modsDirectory)) {
+            return accessWideners;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(modsDirectory)) {
+            List<Path> mods = new ArrayList<>();
+            for (Path mod : stream) {
+                if (Files.isRegularFile(mod)
+                        && mod.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".jar")) {
+                    mods.add(mod);
+                }
+            }
+            mods.sort(null);
+
+            for (Path mod : mods) {
+                try (ZipFile zip = new ZipFile(mod.toFile())) {
+                    String accessWidener = accessWidenerPath(zip);
+                    if (accessWidener == null) continue;
+
+                    ZipEntry entry = zip.getEntry(accessWidener);
+                    if (entry == null) {
+                        throw new NoSuchFileException(mod + "!/" + accessWidener);
+                    }
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        accessWideners.add(in.readAllBytes());
+                    }
+                }
+            }
+        }
+        return accessWideners;
+    }
+
+    private static String accessWidenerPath(ZipFile mod) throws IOException {
+        ZipEntry metadata = mod.getEntry(MOD_METADATA_NAME);
+        if (metadata == null) {
+            return null;
+        }
+
+        try (InputStreamReader reader = new InputStreamReader(mod.getInputStream(metadata), StandardCharsets.UTF_8)) {
+            JsonElement root = JsonParser.parseReader(reader);
+            if (!root.isJsonObject()) {
+                return null;
+            }
+
+            JsonObject object = root.getAsJsonObject();
+            return object.has("accessWidener") ? object.get("accessWidener").getAsString() : null;
+        } catch (JsonParseException | IllegalStateException | UnsupportedOperationException e) {
+            throw new IOException("Malformed " + MOD_METADATA_NAME + " in " + mod.getName(), e);
+        }
+    }
+
+    private static byte[] manifest(GameJar gameJar, String accessWidenersHash) throws IOException {
+        Manifest manifest = gameJar.crc(MANIFEST_NAME) >= 0
+                ? new Manifest(new ByteArrayInputStream(gameJar.read(MANIFEST_NAME)))
+                : new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.putIfAbsent(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue(MANIFEST_ATTRIBUTE, marker() + ACCESS_WIDENERS_KEY + accessWidenersHash);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        manifest.write(bytes);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] widen(byte[] bytes, AccessWidener accessWidener) {
+        ClassReader reader = new ClassReader(bytes);
+        ClassWriter writer = new ClassWriter(reader, 0);
+        ClassVisitor visitor =
+                AccessWidenerClassVisitor.createClassVisitor(FabricLoaderImpl.ASM_VERSION, writer, accessWidener);
+        reader.accept(visitor, 0);
+        return writer.toByteArray();
+    }
+
+    private static void writeEntry(ZipOutputStream out, String name, byte[] bytes) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(bytes.length);
+        entry.setCompressedSize(bytes.length);
+        entry.setCrc(crc.getValue());
+        out.putNextEntry(entry);
+        out.write(bytes);
+        out.closeEntry();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
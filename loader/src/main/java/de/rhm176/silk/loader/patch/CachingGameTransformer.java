@@ -0,0 +1,518 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.patch;
+
+import com.google.common.annotations.VisibleForTesting;
+import de.rhm176.silk.loader.Main;
+import de.rhm176.silk.loader.SilkProperties;
+import de.rhm176.silk.loader.cache.CallSiteIndexCache;
+import de.rhm176.silk.loader.cache.ClassHierarchyIndexCache;
+import de.rhm176.silk.loader.cache.ClassLoadProfileCache;
+import de.rhm176.silk.loader.cache.GameTransformerCache;
+import de.rhm176.silk.loader.cache.WarmStartCache;
+import de.rhm176.silk.loader.index.ClassHierarchyIndex;
+import de.rhm176.silk.loader.trace.StartupTimeline;
+import de.rhm176.silk.loader.trace.StartupTimeline.Phase;
+import de.rhm176.silk.loader.zip.GameJar;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import net.fabricmc.accesswidener.AccessWidener;
+import net.fabricmc.accesswidener.AccessWidenerClassVisitor;
+import net.fabricmc.loader.impl.FabricLoaderImpl;
+import net.fabricmc.loader.impl.ModContainerImpl;
+import net.fabricmc.loader.impl.game.patch.GamePatch;
+import net.fabricmc.loader.impl.game.patch.GameTransformer;
+import net.fabricmc.loader.impl.launch.FabricLauncher;
+import net.fabricmc.loader.impl.metadata.LoaderModMetadata;
+import net.fabricmc.loader.impl.util.ExceptionUtil;
+import net.fabricmc.loader.impl.util.SystemProperties;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.ClassNode;
+
+/**
+ * A {@link GameTransformer} that keeps the classes its patches produce in the {@link GameTransformerCache}.
+ * <p>
+ * On the first launch the patches run while the classes they read and emit are recorded. If all of them are
+ * {@link DeclarativePatch}es, the {@link PatchEngine} patches every target class in a single pass over the game jar,
+ * otherwise they run as regular {@link GamePatch}es. Later launches serve the stored classes as long as none of the
+ * read classes changed in the game jar, without running the patches or parsing a single class. All other game
+ * classes are served straight from the memory-mapped game jar.
+ * <p>
+ * With {@value SilkProperties#WARM_START} set, this transformer also applies the access wideners of all mods to the
+ * game classes they target and keeps the result in the {@link WarmStartCache}, so later launches with the same mods
+ * don't widen those classes again. Game jars baked with {@link BakedGameJar} are served as they are.
+ */
+public class CachingGameTransformer extends GameTransformer {
+    // bump whenever a built-in patch changes the classes it emits
+    static final int PATCH_SET_VERSION = 2;
+    // how far a class may move from where it was prefetched before it counts as reordered
+    private static final int REORDER_WINDOW = 64;
+
+    private final Supplier<String> gameVersion;
+    private final Recorder recorder;
+    // null unless every patch is declarative
+    private final PatchEngine engine;
+
+    private boolean entrypointsLocated;
+    // the game jar was baked ahead of time, its classes are already patched and widened
+    private boolean baked;
+    private volatile Map<String, byte[]> patchedClasses;
+    // null if the game jar can't be read
+    private GameJar gameJar;
+    // set if the warm start cache is enabled and the game jar can be read
+    private boolean warmStart;
+    // game classes served from the game jar in load order, null once the game is initialized
+    private volatile Queue<String> loadOrder = new ConcurrentLinkedQueue<>();
+    private List<String> replayedLoadOrder;
+    private ClassPrefetcher prefetcher;
+    private volatile CompletableFuture<Void> profileStore = CompletableFuture.completedFuture(null);
+    // opened for the active mod set on the first class an access widener targets
+    private volatile WarmStartCache warmStartCache;
+
+    /**
+     * @param gameVersion Supplies the raw game version once the game has been located, patches may embed it.
+     * @param patches The patches to apply.
+     */
+    public CachingGameTransformer(Supplier<String> gameVersion, GamePatch... patches) {
+        this(gameVersion, new Recorder(), patches);
+    }
+
+    private CachingGameTransformer(Supplier<String> gameVersion, Recorder recorder, GamePatch[] patches) {
+        super(recorder.wrap(patches));
+        this.gameVersion = gameVersion;
+        this.recorder = recorder;
+        this.engine = engineFor(patches);
+    }
+
+    private static PatchEngine engineFor(GamePatch[] patches) {
+        List<DeclarativePatch> declarativePatches = new ArrayList<>(patches.length);
+        for (GamePatch patch : patches) {
+            if (!(patch instanceof DeclarativePatch declarativePatch)) {
+                return null;
+            }
+            declarativePatches.add(declarativePatch);
+        }
+        return new PatchEngine(declarativePatches);
+    }
+
+    @Override
+    public void locateEntrypoints(FabricLauncher launcher, List<Path> gameJars) {
+        if (entrypointsLocated) {
+            return;
+        }
+        entrypointsLocated = true;
+
+        GameJar gameJar = openGameJar();
+        this.gameJar = gameJar;
+        startPrefetching();
+        if (gameJar != null && isBaked(gameJar)) {
+            Log.info(LogCategory.GAME_PATCH, "Game jar is baked, not patching any game class");
+            baked = true;
+            patchedClasses = Map.of();
+            return;
+        }
+
+        String key = cacheKey();
+        warmStart = gameJar != null && Boolean.getBoolean(SilkProperties.WARM_START);
+        if (gameJar != null) {
+            try (Phase ignored = StartupTimeline.phase("patch", "cachedClasses")) {
+                patchedClasses = GameTransformerCache.lookup(gameJar, key);
+            }
+            if (patchedClasses != null) {
+                Log.debug(LogCategory.GAME_PATCH, "Using %d cached patched classes", patchedClasses.size());
+                return;
+            }
+        }
+
+        Collection<String> inputs;
+        Map<String, byte[]> outputs;
+        if (engine != null && gameJar != null) {
+            try {
+                outputs = engine.apply(
+                        (className) -> readClass(gameJar, className),
+                        CallSiteIndexCache.lookup(gameJar.fingerprint()),
+                        () -> classHierarchy(gameJar));
+            } catch (IOException e) {
+                throw ExceptionUtil.wrap(new RuntimeException("Failed to read game classes to patch", e));
+            }
+            inputs = engine.targetClasses();
+            patchedClasses = outputs;
+        } else {
+            super.locateEntrypoints(launcher, gameJars);
+
+            inputs = recorder.inputs;
+            outputs = new HashMap<>();
+            for (String className : recorder.outputs) {
+                byte[] bytes = super.transform(className);
+                if (bytes != null) {
+                    outputs.put(className, bytes);
+                }
+            }
+        }
+
+        if (gameJar != null) {
+            try {
+                GameTransformerCache.store(gameJar, key, inputs, outputs);
+            } catch (IOException e) {
+                System.err.println("[Silk] Failed to update the patched class cache: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return The binary names of all classes the patches may change, or {@code null} if a patch isn't declarative
+     * and any class may be changed.
+     */
+    public Set<String> targetClasses() {
+        return engine != null ? engine.targetClasses() : null;
+    }
+
+    /**
+     * @return {@code true} if this transformer applies the access wideners to game classes itself or they were
+     * applied when baking the game jar, in which case Fabric must not apply them again.
+     */
+    public boolean appliesAccessWideners() {
+        return baked || warmStart;
+    }
+
+    /**
+     * Called once the access wideners of all mods are loaded. Fails if the game jar was baked with different access
+     * wideners, as Fabric doesn't widen the classes of a baked jar and would silently ignore the new ones.
+     *
+     * @param accessWideners Supplies the contents of the access wideners of all loaded mods, only used if the game
+     * jar is baked.
+     * @throws IllegalStateException if the game jar was baked with different access wideners.
+     */
+    public void accessWidenersLoaded(Supplier<List<byte[]>> accessWideners) {
+        if (!baked) {
+            return;
+        }
+
+        try {
+            BakedGameJar.checkAccessWideners(gameJar, accessWideners.get());
+        } catch (IOException e) {
+            throw ExceptionUtil.wrap(new RuntimeException("Failed to read the manifest of the game jar", e));
+        }
+    }
+
+    @Override
+    public byte[] transform(String className) {
+        Map<String, byte[]> patched = patchedClasses;
+        byte[] bytes = patched != null ? patched.get(className) : super.transform(className);
+        if (warmStart) {
+            byte[] widened = widen(className, bytes);
+            if (widened != null) {
+                return widened;
+            }
+        }
+        if (bytes != null || gameJar == null) {
+            return bytes;
+        }
+
+        ClassPrefetcher classPrefetcher = prefetcher;
+        bytes = classPrefetcher != null ? classPrefetcher.take(className) : null;
+        if (bytes == null) {
+            try {
+                bytes = readGameClass(className);
+            } catch (IOException e) {
+                throw ExceptionUtil.wrap(new RuntimeException("Failed to read game class " + className, e));
+            }
+        }
+
+        Queue<String> recording = loadOrder;
+        if (bytes != null && recording != null) {
+            recording.add(className);
+        }
+        return bytes;
+    }
+
+    /**
+     * Called once the game is initialized. Stops prefetching and stores the order in which the game classes were
+     * loaded until now on a background thread, so they can be prefetched on the next launch.
+     */
+    public void gameInitialized() {
+        Queue<String> recorded = loadOrder;
+        if (recorded == null) {
+            return;
+        }
+        loadOrder = null;
+
+        if (prefetcher != null) {
+            prefetcher.stop();
+        }
+
+        List<String> classNames = List.copyOf(recorded);
+        if (gameJar == null || !profileChanged(replayedLoadOrder, classNames)) {
+            return;
+        }
+
+        // the profile only matters for the next launch, don't delay the first frame for it
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        Thread thread = new Thread(
+                () -> {
+                    try {
+                        ClassLoadProfileCache.store(gameJar.fingerprint(), classNames);
+                    } catch (IOException e) {
+                        System.err.println("[Silk] Failed to update the class load profile: " + e.getMessage());
+                    } finally {
+                        completion.complete(null);
+                    }
+                },
+                "Silk Class Load Profile");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        profileStore = completion;
+        thread.start();
+    }
+
+    /**
+     * Compares the load order of this launch with the one that was prefetched.
+     * <p>
+     * Knot loads classes on several threads, so the exact order differs slightly between launches. Only a different
+     * set of classes or a noticeable share of classes far from where they were prefetched is worth storing again.
+     *
+     * @param replayed The prefetched load order, or {@code null} if there was none.
+     * @param recorded The load order of this launch.
+     * @return {@code true} if the recorded load order should replace the prefetched one.
+     */
+    @VisibleForTesting
+    static boolean profileChanged(List<String> replayed, List<String> recorded) {
+        if (replayed == null || replayed.size() != recorded.size()) {
+            return true;
+        }
+
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < replayed.size(); i++) {
+            positions.put(replayed.get(i), i);
+        }
+
+        int reordered = 0;
+        for (int i = 0; i < recorded.size(); i++) {
+            Integer position = positions.remove(recorded.get(i));
+            if (position == null) {
+                return true;
+            }
+            if (Math.abs(position - i) > REORDER_WINDOW) {
+                reordered++;
+            }
+        }
+        return reordered > recorded.size() / 10;
+    }
+
+    /**
+     * @return Completes once the class load profile started by {@link #gameInitialized()} is stored.
+     */
+    @VisibleForTesting
+    CompletableFuture<Void> profileStore() {
+        return profileStore;
+    }
+
+    private void startPrefetching() {
+        if (gameJar == null || Boolean.getBoolean(SilkProperties.DISABLE_CLASS_PREFETCH)) {
+            loadOrder = null;
+            return;
+        }
+
+        replayedLoadOrder = ClassLoadProfileCache.lookup(gameJar.fingerprint());
+        if (replayedLoadOrder != null) {
+            prefetcher = ClassPrefetcher.start(replayedLoadOrder, this::readGameClass);
+        }
+    }
+
+    // serves the game classes from the mapped game jar, so Knot doesn't open a stream for every class it loads
+    private byte[] readGameClass(String className) throws IOException {
+        String fileName = classFileName(className);
+        return gameJar.crc(fileName) >= 0 ? gameJar.read(fileName) : null;
+    }
+
+    // null if no access widener targets the game class
+    private byte[] widen(String className, byte[] patchedBytes) {
+        AccessWidener accessWidener = FabricLoaderImpl.INSTANCE.getAccessWidener();
+        if (!accessWidener.getTargets().contains(className)) {
+            return null;
+        }
+
+        try {
+            long crc = gameJar.crc(classFileName(className));
+            if (crc < 0) {
+                return null;
+            }
+
+            WarmStartCache cache = warmStartCache();
+            byte[] cached = cache.lookup(className, crc);
+            if (cached != null) {
+                return cached;
+            }
+
+            ClassReader reader =
+                    new ClassReader(patchedBytes != null ? patchedBytes : gameJar.read(classFileName(className)));
+            ClassWriter writer = new ClassWriter(reader, 0);
+            ClassVisitor visitor =
+                    AccessWidenerClassVisitor.createClassVisitor(FabricLoaderImpl.ASM_VERSION, writer, accessWidener);
+            reader.accept(visitor, 0);
+            byte[] widened = writer.toByteArray();
+
+            try {
+                cache.store(className, crc, widened);
+            } catch (IOException e) {
+                System.err.println("[Silk] Failed to update the warm start cache: " + e.getMessage());
+            }
+            return widened;
+        } catch (IOException e) {
+            throw ExceptionUtil.wrap(new RuntimeException("Failed to widen game class " + className, e));
+        }
+    }
+
+    private WarmStartCache warmStartCache() throws IOException {
+        WarmStartCache cache = warmStartCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = warmStartCache;
+                if (cache == null) {
+                    cache = WarmStartCache.open(warmStartKey());
+                    warmStartCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    // the widened classes only depend on the patched classes and the access wideners of all mods
+    private String warmStartKey() throws IOException {
+        StringBuilder key = new StringBuilder(cacheKey()).append("\ngameJar=").append(gameJar.fingerprint());
+
+        List<ModContainerImpl> mods = new ArrayList<>(FabricLoaderImpl.INSTANCE.getModsInternal());
+        mods.sort(Comparator.comparing((mod) -> mod.getMetadata().getId()));
+        for (ModContainerImpl mod : mods) {
+            LoaderModMetadata metadata = mod.getMetadata();
+            key.append("\nmod=").append(metadata.getId()).append(' ').append(metadata.getVersion().getFriendlyString());
+
+            String accessWidener = metadata.getAccessWidener();
+            if (accessWidener != null) {
+                Path file = mod.findPath(accessWidener)
+                        .orElseThrow(() -> new NoSuchFileException(metadata.getId() + "!/" + accessWidener));
+                key.append('\n').append(Files.readString(file));
+            }
+        }
+        return key.toString();
+    }
+
+    private static boolean isBaked(GameJar gameJar) {
+        try {
+            return BakedGameJar.isBaked(gameJar);
+        } catch (IOException e) {
+            throw ExceptionUtil.wrap(new RuntimeException("Failed to read the manifest of the game jar", e));
+        }
+    }
+
+    // only built once a branching insertion needs frames, which none of the built-in patches has
+    private static ClassHierarchyIndex classHierarchy(GameJar gameJar) {
+        try {
+            return ClassHierarchyIndexCache.getOrBuild(gameJar.path(), gameJar.fingerprint());
+        } catch (IOException e) {
+            System.err.println("[Silk] Reading class headers instead of the class hierarchy index: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] readClass(GameJar gameJar, String className) throws IOException {
+        try {
+            return gameJar.read(classFileName(className));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static String classFileName(String className) {
+        return className.replace('.', '/') + ".class";
+    }
+
+    private String cacheKey() {
+        return "patches=" + PATCH_SET_VERSION
+                + "\nsilk=" + Main.VERSION.getFriendlyString()
+                + "\nfabricloader=" + WindowTitlePatch.fabricLoaderVersion()
+                + "\ngame=" + gameVersion.get();
+    }
+
+    private static GameJar openGameJar() {
+        String gameJarPath = System.getProperty(SystemProperties.GAME_JAR_PATH);
+        if (gameJarPath == null) {
+            return null;
+        }
+
+        try {
+            return GameJar.open(Paths.get(gameJarPath));
+        } catch (IOException e) {
+            System.err.println("[Silk] Not caching patched classes, the game jar can't be read: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Records the classes all patches read and emit, and traces every patch.
+     */
+    private static final class Recorder {
+        private final Set<String> inputs = new LinkedHashSet<>();
+        private final Set<String> outputs = new LinkedHashSet<>();
+
+        private GamePatch[] wrap(GamePatch[] patches) {
+            GamePatch[] wrapped = new GamePatch[patches.length];
+            for (int i = 0; i < patches.length; i++) {
+                GamePatch patch = new TracedGamePatch(patches[i]);
+                wrapped[i] = new GamePatch() {
+                    @Override
+                    public void process(
+                            FabricLauncher launcher,
+                            Function<String, ClassNode> classSource,
+                            Consumer<ClassNode> classEmitter) {
+                        patch.process(
+                                launcher,
+                                (name) -> {
+                                    inputs.add(name);
+                                    return classSource.apply(name);
+                                },
+                                (classNode) -> {
+                                    outputs.add(classNode.name.replace('/', '.'));
+                                    classEmitter.accept(classNode);
+                                });
+                    }
+                };
+            }
+            return wrapped;
+        }
+    }
+}
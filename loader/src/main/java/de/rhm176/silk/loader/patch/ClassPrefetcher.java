@@ -0,0 +1,98 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.patch;
+
+import de.rhm176.silk.loader.trace.StartupTimeline;
+import de.rhm176.silk.loader.trace.StartupTimeline.Phase;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the classes of a recorded load order on a background thread, ahead of the thread that loads them.
+ * <p>
+ * Classes are handed over with {@link #take(String)}. A class that was taken before the prefetcher got to it is
+ * skipped, so every class is read at most once by either side.
+ */
+final class ClassPrefetcher {
+    // marks classes that were already taken, so the prefetcher doesn't read them again
+    private static final byte[] TAKEN = new byte[0];
+
+    private final ConcurrentHashMap<String, byte[]> classes = new ConcurrentHashMap<>();
+    private volatile boolean stopped;
+
+    private ClassPrefetcher() {}
+
+    /**
+     * Starts prefetching.
+     *
+     * @param classNames The binary names of the classes in the order they are expected to be loaded.
+     * @param classSource Reads a class, returning {@code null} if it doesn't exist.
+     * @return The running prefetcher.
+     */
+    static ClassPrefetcher start(List<String> classNames, PatchEngine.ClassSource classSource) {
+        ClassPrefetcher prefetcher = new ClassPrefetcher();
+        Thread thread = new Thread(() -> prefetcher.run(classNames, classSource), "Silk Class Prefetch");
+        thread.setDaemon(true);
+        thread.start();
+        return prefetcher;
+    }
+
+    private void run(List<String> classNames, PatchEngine.ClassSource classSource) {
+        try (Phase ignored = StartupTimeline.phase("patch", "prefetch")) {
+            for (String className : classNames) {
+                if (stopped) {
+                    break;
+                }
+                if (classes.containsKey(className)) continue;
+
+                byte[] bytes = classSource.read(className);
+                if (bytes != null) {
+                    classes.putIfAbsent(className, bytes);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // only a head start, the loading thread reads the classes itself
+        }
+
+        if (stopped) {
+            classes.clear();
+        }
+    }
+
+    /**
+     * Takes a prefetched class.
+     *
+     * @param className The binary name of the class.
+     * @return The bytes of the class, or {@code null} if it wasn't prefetched (yet).
+     */
+    byte[] take(String className) {
+        if (stopped) {
+            return null;
+        }
+
+        byte[] bytes = classes.put(className, TAKEN);
+        return bytes != TAKEN ? bytes : null;
+    }
+
+    /**
+     * Stops prefetching and drops all classes that weren't taken.
+     */
+    void stop() {
+        stopped = true;
+        classes.clear();
+    }
+}
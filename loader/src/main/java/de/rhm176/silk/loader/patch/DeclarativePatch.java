@@ -0,0 +1,94 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.patch;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import net.fabricmc.loader.impl.game.patch.GamePatch;
+import net.fabricmc.loader.impl.launch.FabricLauncher;
+import org.objectweb.asm.tree.ClassNode;
+
+/**
+ * A {@link GamePatch} described by {@link PatchDescriptor}s instead of code walking class trees.
+ * <p>
+ * The {@link PatchEngine} applies the descriptors of all patches targeting a class in a single pass over its
+ * bytes. When run as a plain {@link GamePatch}, the descriptors are applied to the class nodes of the class source
+ * and a patched copy is emitted.
+ * <p>
+ * The engine may patch several classes at once, so {@link #methodFound} and {@link #finished} can be called from
+ * different threads at the same time, though never concurrently for the same class.
+ */
+public abstract class DeclarativePatch extends GamePatch {
+    /**
+     * @return The changes this patch makes, applied in order.
+     */
+    public abstract List<PatchDescriptor> descriptors();
+
+    /**
+     * Called for every method a descriptor targets, before its instructions are matched.
+     *
+     * @param descriptor The descriptor targeting the method.
+     * @param className The internal name of the class declaring the method.
+     * @param methodName The name of the method.
+     * @param methodDescriptor The descriptor of the method.
+     */
+    protected void methodFound(
+            PatchDescriptor descriptor, String className, String methodName, String methodDescriptor) {}
+
+    /**
+     * Called once for every descriptor after its target class was processed.
+     *
+     * @param descriptor The descriptor.
+     * @param className The internal name of the target class, or {@code null} if the class wasn't found.
+     * @param outcome Whether and why not the descriptor was applied.
+     */
+    protected void finished(PatchDescriptor descriptor, String className, Outcome outcome) {}
+
+    @Override
+    public void process(
+            FabricLauncher launcher, Function<String, ClassNode> classSource, Consumer<ClassNode> classEmitter) {
+        Map<String, List<PatchClassVisitor.Target>> targetsByClass = new LinkedHashMap<>();
+        PatchClassVisitor.group(List.of(this), targetsByClass);
+
+        targetsByClass.forEach((className, targets) -> {
+            ClassNode classNode = classSource.apply(className);
+            if (classNode == null) {
+                PatchClassVisitor.classNotFound(targets);
+                return;
+            }
+
+            ClassNode patched = new ClassNode();
+            PatchClassVisitor visitor = new PatchClassVisitor(patched, targets, null);
+            classNode.accept(visitor);
+            if (visitor.applied()) {
+                classEmitter.accept(patched);
+            }
+        });
+    }
+
+    /**
+     * What became of a descriptor once its target class was processed.
+     */
+    public enum Outcome {
+        APPLIED,
+        PATTERN_NOT_FOUND,
+        METHOD_NOT_FOUND,
+        CLASS_NOT_FOUND
+    }
+}
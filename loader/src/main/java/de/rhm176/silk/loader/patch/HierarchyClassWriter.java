@@ -0,0 +1,134 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.patch;
+
+import com.google.common.base.Suppliers;
+import de.rhm176.silk.loader.index.ClassHierarchyIndex;
+import de.rhm176.silk.loader.index.ClassHierarchyIndex.ClassInfo;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+
+/**
+ * A {@link ClassWriter} that computes stack map frames without loading any class.
+ * <p>
+ * {@link ClassWriter#getCommonSuperClass(String, String)} loads both types to compare them, which is slow and can
+ * load game classes before they are transformed. This writer answers from a {@link ClassHierarchyIndex} of the game
+ * jar instead, and reads the header of any other class from its class file.
+ */
+final class HierarchyClassWriter extends ClassWriter {
+    private static final String OBJECT = "java/lang/Object";
+
+    private final Hierarchy hierarchy;
+
+    /**
+     * @param classReader The reader of the class to patch, whose constant pool is reused.
+     * @param hierarchy Where to look up the hierarchy of the types in the class.
+     */
+    HierarchyClassWriter(ClassReader classReader, Hierarchy hierarchy) {
+        super(classReader, COMPUTE_FRAMES);
+        this.hierarchy = hierarchy;
+    }
+
+    @Override
+    protected String getCommonSuperClass(String type1, String type2) {
+        if (isAssignableFrom(type1, type2)) {
+            return type1;
+        }
+        if (isAssignableFrom(type2, type1)) {
+            return type2;
+        }
+        if (hierarchy.get(type1).isInterface() || hierarchy.get(type2).isInterface()) {
+            return OBJECT;
+        }
+
+        String superName = type1;
+        do {
+            superName = hierarchy.get(superName).superName();
+            if (superName == null) {
+                return OBJECT;
+            }
+        } while (!isAssignableFrom(superName, type2));
+        return superName;
+    }
+
+    private boolean isAssignableFrom(String type, String subType) {
+        if (type.equals(subType) || type.equals(OBJECT)) {
+            return true;
+        }
+
+        ClassInfo info = hierarchy.get(subType);
+        if (info.superName() != null && isAssignableFrom(type, info.superName())) {
+            return true;
+        }
+        for (String name : info.interfaces()) {
+            if (isAssignableFrom(type, name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The class hierarchy shared by all classes patched together, safe to use from several threads at once.
+     */
+    static final class Hierarchy {
+        private final Supplier<ClassHierarchyIndex> index;
+        private final PatchEngine.ClassSource classSource;
+        private final ClassLoader classLoader;
+        private final Map<String, ClassInfo> resolved = new ConcurrentHashMap<>();
+
+        /**
+         * @param index Supplies the hierarchy of the game classes on the first lookup, or {@code null} to read their
+         * headers instead.
+         * @param classSource Reads the original game classes.
+         * @param classLoader Finds the class files of all other classes as resources.
+         */
+        Hierarchy(Supplier<ClassHierarchyIndex> index, PatchEngine.ClassSource classSource, ClassLoader classLoader) {
+            this.index = Suppliers.memoize(index::get);
+            this.classSource = classSource;
+            this.classLoader = classLoader;
+        }
+
+        ClassInfo get(String type) {
+            ClassHierarchyIndex index = this.index.get();
+            ClassInfo info = index != null ? index.get(type) : null;
+            return info != null ? info : resolved.computeIfAbsent(type, this::read);
+        }
+
+        private ClassInfo read(String type) {
+            try {
+                byte[] bytes = index.get() == null ? classSource.read(type.replace('/', '.')) : null;
+                if (bytes == null) {
+                    try (InputStream in = classLoader.getResourceAsStream(type + ".class")) {
+                        if (in == null) {
+                            throw new TypeNotPresentException(type.replace('/', '.'), null);
+                        }
+                        bytes = in.readAllBytes();
+                    }
+                }
+                return ClassInfo.read(new ClassReader(bytes));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read the class hierarchy of " + type, e);
+            }
+        }
+    }
+}
@@ -16,19 +16,41 @@
 package de.rhm176.silk.loader.patch;
 
 import com.google.common.annotations.VisibleForTesting;
+import de.rhm176.silk.loader.SilkProperties;
+import de.rhm176.silk.loader.api.DeferredInitialization;
+import de.rhm176.silk.loader.api.DeferredInitializer;
+import de.rhm176.silk.loader.trace.EntrypointProfiler;
+import de.rhm176.silk.loader.trace.StartupTimeline;
+import de.rhm176.silk.loader.trace.StartupTimeline.Phase;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
-import java.util.function.Function;
+import java.util.function.Supplier;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.loader.api.FabricLoader;
+import net.fabricmc.loader.api.ModContainer;
+import net.fabricmc.loader.api.entrypoint.EntrypointContainer;
+import net.fabricmc.loader.api.metadata.CustomValue;
+import net.fabricmc.loader.api.metadata.ModDependency;
+import net.fabricmc.loader.api.metadata.ModMetadata;
 import net.fabricmc.loader.impl.FabricLoaderImpl;
-import net.fabricmc.loader.impl.game.patch.GamePatch;
-import net.fabricmc.loader.impl.launch.FabricLauncher;
+import net.fabricmc.loader.impl.game.GameProvider;
+import net.fabricmc.loader.impl.util.ExceptionUtil;
 import net.fabricmc.loader.impl.util.log.Log;
 import net.fabricmc.loader.impl.util.log.LogCategory;
 import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.tree.*;
 
-public class ModInitPatch extends GamePatch {
+public class ModInitPatch extends DeclarativePatch {
     @VisibleForTesting
     static final String TARGET_CLASS_INTERNAL_NAME = "main/MainApp";
 
@@ -53,81 +75,509 @@ public class ModInitPatch extends GamePatch {
     @VisibleForTesting
     static final String BEFORE_TARGET_METHOD_DESCRIPTOR = "()V";
 
+    @VisibleForTesting
+    static final String GAME_INITIALIZED_METHOD_NAME = "gameInitialized";
+
     private static final String INIT_METHOD_DESCRIPTOR = "(Ljava/lang/Object;)V";
+    private static final String GAME_INITIALIZED_METHOD_DESCRIPTOR = "()V";
+
+    private static final long DEFAULT_ENTRYPOINT_TIME_BUDGET_MILLIS = 1000;
+
+    /**
+     * The custom value a mod sets to {@code true} in its {@code fabric.mod.json} to declare that its main
+     * entrypoints are thread-safe and may run concurrently with those of other mods.
+     */
+    public static final String PARALLEL_INIT_CUSTOM_VALUE = "silk:parallelInit";
+
+    // Knot loads its own copy of this class for the patched game code, which can't see the classes of the provider's
+    // transformer. That copy forwards to the copy of the system class loader, which can.
+    private static final MethodHandle SHARED_ACCESS_WIDENERS_LOADED =
+            findShared("accessWidenersLoaded", MethodType.methodType(void.class, Supplier.class));
+    private static final MethodHandle SHARED_TRANSFORMER_GAME_INITIALIZED =
+            findShared("transformerGameInitialized", MethodType.methodType(void.class));
+
+    // the first GameManager.init call, started after the mods are initialized and ended once it returns
+    private static volatile Phase gameInit;
+    private static volatile boolean deferredStarted;
+    // the main entrypoints while they run alongside the game's initialization
+    private static volatile CompletableFuture<Void> modInit;
 
     @Override
-    public void process(
-            FabricLauncher launcher, Function<String, ClassNode> classSource, Consumer<ClassNode> classEmitter) {
-        ClassNode mainAppClass = classSource.apply(TARGET_CLASS_INTERNAL_NAME.replace('/', '.'));
-        if (mainAppClass == null) {
-            Log.error(LogCategory.GAME_PATCH, "Could not find main class for mod init hook.");
-            System.exit(1);
-        }
-
-        boolean patched = false;
-        for (MethodNode methodNode : mainAppClass.methods) {
-            if (TARGET_METHOD_NAME.equals(methodNode.name) && TARGET_METHOD_DESCRIPTOR.equals(methodNode.desc)) {
-                Log.debug(
-                        LogCategory.GAME_PATCH,
-                        "Found target method %s::%s%s. Attempting to apply mod init hook.",
-                        mainAppClass.name,
-                        methodNode.name,
-                        methodNode.desc);
-                if (injectModInitCall(mainAppClass, methodNode)) {
-                    classEmitter.accept(mainAppClass);
-                } else {
-                    Log.warn(
-                            LogCategory.GAME_PATCH,
-                            "Failed to apply mod init hook to %s::%s%s. Injection point not found or failed.",
-                            mainAppClass.name,
-                            methodNode.name,
-                            methodNode.desc);
-                }
-                return;
-            }
-        }
+    public List<PatchDescriptor> descriptors() {
+        return List.of(new PatchDescriptor(
+                TARGET_CLASS_INTERNAL_NAME,
+                TARGET_METHOD_NAME,
+                TARGET_METHOD_DESCRIPTOR,
+                List.of(PatchDescriptor.invokeStatic(
+                        BEFORE_TARGET_OWNER_INTERNAL_NAME, BEFORE_TARGET_METHOD_NAME, BEFORE_TARGET_METHOD_DESCRIPTOR)),
+                List.of(
+                        PatchDescriptor.Insertion.before(0, 2, (methodVisitor) -> {
+                            methodVisitor.visitTypeInsn(Opcodes.NEW, TARGET_CLASS_INTERNAL_NAME);
+                            methodVisitor.visitInsn(Opcodes.DUP);
+                            methodVisitor.visitMethodInsn(
+                                    Opcodes.INVOKESPECIAL, TARGET_CLASS_INTERNAL_NAME, "<init>", "()V", false);
+                            methodVisitor.visitMethodInsn(
+                                    Opcodes.INVOKESTATIC,
+                                    PATCH_CLASS_INTERNAL_NAME,
+                                    INIT_METHOD_NAME,
+                                    INIT_METHOD_DESCRIPTOR,
+                                    false);
+                        }),
+                        PatchDescriptor.Insertion.after(
+                                0,
+                                0,
+                                (methodVisitor) -> methodVisitor.visitMethodInsn(
+                                        Opcodes.INVOKESTATIC,
+                                        PATCH_CLASS_INTERNAL_NAME,
+                                        GAME_INITIALIZED_METHOD_NAME,
+                                        GAME_INITIALIZED_METHOD_DESCRIPTOR,
+                                        false)))));
+    }
+
+    @Override
+    protected void methodFound(
+            PatchDescriptor descriptor, String className, String methodName, String methodDescriptor) {
+        Log.debug(
+                LogCategory.GAME_PATCH,
+                "Found target method %s::%s%s. Attempting to apply mod init hook.",
+                className,
+                methodName,
+                methodDescriptor);
+    }
 
-        if (!patched) {
-            Log.error(
+    @Override
+    protected void finished(PatchDescriptor descriptor, String className, Outcome outcome) {
+        switch (outcome) {
+            case APPLIED -> {}
+            case PATTERN_NOT_FOUND -> Log.warn(
+                    LogCategory.GAME_PATCH,
+                    "Failed to apply mod init hook to %s::%s%s. Injection point not found or failed.",
+                    className,
+                    TARGET_METHOD_NAME,
+                    TARGET_METHOD_DESCRIPTOR);
+            case METHOD_NOT_FOUND -> Log.error(
                     LogCategory.GAME_PATCH,
                     "ModInitPatch: Target method %s::%s%s not found in class %s. Patch not applied.",
                     TARGET_METHOD_NAME,
                     TARGET_METHOD_DESCRIPTOR,
                     TARGET_CLASS_INTERNAL_NAME,
-                    mainAppClass.name);
+                    className);
+            case CLASS_NOT_FOUND -> {
+                Log.error(LogCategory.GAME_PATCH, "Could not find main class for mod init hook.");
+                System.exit(1);
+            }
         }
     }
 
-    private boolean injectModInitCall(ClassNode classNode, MethodNode methodNode) {
-        InsnList newInstructions = new InsnList();
+    /**
+     * Initializes all mods, called right before the game initializes.
+     * <p>
+     * With {@value SilkProperties#OVERLAP_MOD_INIT} the main entrypoints run on a background thread while the game
+     * initializes, and {@link #gameInitialized()} waits for them before the first frame. The access wideners are
+     * always loaded first, every game class loaded from here on needs them. They are replayed from the
+     * {@link de.rhm176.silk.loader.cache.AccessWidenerCache} if no mod contributing one changed.
+     */
+    public static void init(Object gameInstance) {
+        FabricLoaderImpl loader = (FabricLoaderImpl) FabricLoader.getInstance();
 
-        newInstructions.add(new TypeInsnNode(Opcodes.NEW, classNode.name));
-        newInstructions.add(new InsnNode(Opcodes.DUP));
-        newInstructions.add(new MethodInsnNode(Opcodes.INVOKESPECIAL, classNode.name, "<init>", "()V", false));
+        try (Phase ignored = StartupTimeline.phase("mod", "loadAccessWideners")) {
+            AccessWidenerLoader.load(loader);
+        }
+        accessWidenersLoaded(() -> AccessWidenerLoader.contents(loader));
+        loader.prepareModInit(loader.getGameDir(), gameInstance);
+        startModInit(() -> invokeEntrypoints("main", ModInitializer.class, ModInitializer::onInitialize));
 
-        newInstructions.add(new MethodInsnNode(
-                Opcodes.INVOKESTATIC, PATCH_CLASS_INTERNAL_NAME, INIT_METHOD_NAME, INIT_METHOD_DESCRIPTOR, false));
+        gameInit = StartupTimeline.phase("game", "GameManager.init");
+    }
+
+    /**
+     * Lets the provider's transformer check the access wideners of all mods, if it is a
+     * {@link CachingGameTransformer}.
+     * <p>
+     * Only public so the copy of this class loaded by Knot can reach the one of the system class loader.
+     *
+     * @param accessWideners Supplies the contents of the access wideners of all loaded mods.
+     */
+    public static void accessWidenersLoaded(Supplier<List<byte[]>> accessWideners) {
+        if (SHARED_ACCESS_WIDENERS_LOADED != null) {
+            try {
+                SHARED_ACCESS_WIDENERS_LOADED.invokeExact(accessWideners);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw ExceptionUtil.wrap(t);
+            }
+            return;
+        }
+
+        CachingGameTransformer transformer = transformer();
+        if (transformer != null) {
+            transformer.accessWidenersLoaded(accessWideners);
+        }
+    }
 
-        for (AbstractInsnNode instruction : methodNode.instructions) {
-            if (instruction instanceof MethodInsnNode methodCall) {
-                if (methodCall.getOpcode() == Opcodes.INVOKESTATIC
-                        && BEFORE_TARGET_OWNER_INTERNAL_NAME.equals(methodCall.owner)
-                        && BEFORE_TARGET_METHOD_NAME.equals(methodCall.name)
-                        && BEFORE_TARGET_METHOD_DESCRIPTOR.equals(methodCall.desc)) {
-                    methodNode.instructions.insertBefore(methodCall, newInstructions);
-                    return true;
+    /**
+     * Runs the main entrypoints, on a background thread with {@value SilkProperties#OVERLAP_MOD_INIT} and right away
+     * otherwise.
+     */
+    @VisibleForTesting
+    static void startModInit(Runnable entrypoints) {
+        if (!Boolean.getBoolean(SilkProperties.OVERLAP_MOD_INIT)) {
+            entrypoints.run();
+            return;
+        }
+
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        Thread thread = new Thread(
+                () -> {
+                    try {
+                        entrypoints.run();
+                        completion.complete(null);
+                    } catch (Throwable t) {
+                        completion.completeExceptionally(t);
+                    }
+                },
+                "Silk Mod Init");
+        thread.setDaemon(true);
+        thread.setContextClassLoader(Thread.currentThread().getContextClassLoader());
+        modInit = completion;
+        thread.start();
+    }
+
+    /**
+     * Waits for the main entrypoints if they run in the background, then lets the transformer know the game is
+     * initialized and starts the deferred entrypoints on the first call.
+     */
+    public static void gameInitialized() {
+        Phase phase = gameInit;
+        if (phase != null) {
+            gameInit = null;
+            phase.close();
+        }
+        awaitModInit();
+
+        transformerGameInitialized();
+
+        if (!deferredStarted) {
+            deferredStarted = true;
+            startDeferredEntrypoints();
+        }
+    }
+
+    /**
+     * Lets the provider's transformer know the game is initialized, if it is a {@link CachingGameTransformer}.
+     * <p>
+     * Only public so the copy of this class loaded by Knot can reach the one of the system class loader.
+     */
+    public static void transformerGameInitialized() {
+        if (SHARED_TRANSFORMER_GAME_INITIALIZED != null) {
+            try {
+                SHARED_TRANSFORMER_GAME_INITIALIZED.invokeExact();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw ExceptionUtil.wrap(t);
+            }
+            return;
+        }
+
+        CachingGameTransformer transformer = transformer();
+        if (transformer != null) {
+            transformer.gameInitialized();
+        }
+    }
+
+    private static CachingGameTransformer transformer() {
+        GameProvider provider = ((FabricLoaderImpl) FabricLoader.getInstance()).getGameProvider();
+        return provider != null && provider.getEntrypointTransformer() instanceof CachingGameTransformer transformer
+                ? transformer
+                : null;
+    }
+
+    private static MethodHandle findShared(String name, MethodType type) {
+        ClassLoader systemClassLoader = ClassLoader.getSystemClassLoader();
+        if (ModInitPatch.class.getClassLoader() == systemClassLoader) {
+            return null;
+        }
+
+        try {
+            Class<?> shared = Class.forName(ModInitPatch.class.getName(), false, systemClassLoader);
+            if (shared == ModInitPatch.class) {
+                return null;
+            }
+
+            return MethodHandles.publicLookup().findStatic(shared, name, type);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // not on the class path of the system class loader, so neither is the transformer
+            return null;
+        }
+    }
+
+    /**
+     * Waits for the main entrypoints started on a background thread by {@link #init(Object)}, rethrowing what they
+     * threw on the game's main thread.
+     */
+    private static void awaitModInit() {
+        CompletableFuture<Void> completion = modInit;
+        if (completion == null) {
+            return;
+        }
+        modInit = null;
+
+        try (Phase ignored = StartupTimeline.phase("mod", "awaitModInit")) {
+            completion.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException exception) {
+                throw exception;
+            } else if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw ExceptionUtil.wrap(e.getCause());
+        }
+    }
+
+    /**
+     * Same as {@link FabricLoaderImpl#invokeEntrypoints}, but records every entrypoint as a phase of the
+     * {@link StartupTimeline} and reports how long the entrypoints of each mod took.
+     * <p>
+     * Mods that declare {@value #PARALLEL_INIT_CUSTOM_VALUE} in the custom values of their {@code fabric.mod.json}
+     * are initialized on a fork-join pool once their dependencies are, see {@link ModInitScheduler}. Failures are
+     * still reported in entrypoint order.
+     */
+    private static <T> void invokeEntrypoints(String key, Class<T> type, Consumer<? super T> invoker) {
+        EntrypointProfiler profiler = new EntrypointProfiler(key);
+        Map<ModContainer, List<EntrypointContainer<T>>> containersByMod = containersByMod(key, type);
+        Map<EntrypointContainer<T>, Throwable> failures = new ConcurrentHashMap<>();
+        ModInitScheduler.run(modInits(key, containersByMod, invoker, profiler, failures, (mod) -> {}));
+
+        RuntimeException exception = null;
+        for (List<EntrypointContainer<T>> containers : containersByMod.values()) {
+            for (EntrypointContainer<T> container : containers) {
+                Throwable failure = failures.get(container);
+                if (failure == null) continue;
+
+                String modId = container.getProvider().getMetadata().getId();
+                exception = ExceptionUtil.gatherExceptions(
+                        failure,
+                        exception,
+                        (cause) -> new RuntimeException(
+                                String.format(
+                                        "Could not execute entrypoint stage '%s' due to errors, provided by '%s' at"
+                                                + " '%s'!",
+                                        key, modId, container.getDefinition()),
+                                cause));
+            }
+        }
+
+        report(profiler);
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * Runs the {@value DeferredInitializer#ENTRYPOINT} entrypoints on a background thread, without waiting for them.
+     * Failures are logged and reported through {@link DeferredInitialization}, they don't stop the game.
+     */
+    private static void startDeferredEntrypoints() {
+        String key = DeferredInitializer.ENTRYPOINT;
+        Map<ModContainer, List<EntrypointContainer<DeferredInitializer>>> containersByMod =
+                containersByMod(key, DeferredInitializer.class);
+        if (containersByMod.isEmpty()) {
+            DeferredInitialization.finished(null);
+            return;
+        }
+
+        Thread thread = new Thread(() -> runDeferredEntrypoints(containersByMod), "Silk Deferred Init");
+        thread.setDaemon(true);
+        // the game loop is starting, leave it the CPU whenever it needs it
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.setContextClassLoader(Thread.currentThread().getContextClassLoader());
+        thread.start();
+    }
+
+    /**
+     * Runs the given deferred entrypoints on the calling thread, logging what they throw.
+     */
+    @VisibleForTesting
+    static void runDeferredEntrypoints(
+            Map<ModContainer, List<EntrypointContainer<DeferredInitializer>>> containersByMod) {
+        String key = DeferredInitializer.ENTRYPOINT;
+        EntrypointProfiler profiler = new EntrypointProfiler(key);
+        Map<EntrypointContainer<DeferredInitializer>, Throwable> failures = new ConcurrentHashMap<>();
+        Throwable firstFailure = null;
+        try (Phase ignored = StartupTimeline.phase("mod", "deferredInit")) {
+            ModInitScheduler.run(modInits(
+                    key,
+                    containersByMod,
+                    DeferredInitializer::onDeferredInitialize,
+                    profiler,
+                    failures,
+                    (mod) -> DeferredInitialization.modFinished(
+                            mod.getMetadata().getId(), firstFailure(containersByMod.get(mod), failures))));
+        } catch (RuntimeException e) {
+            firstFailure = e;
+        }
+
+        for (List<EntrypointContainer<DeferredInitializer>> containers : containersByMod.values()) {
+            for (EntrypointContainer<DeferredInitializer> container : containers) {
+                Throwable failure = failures.get(container);
+                if (failure == null) continue;
+
+                Log.error(
+                        LogCategory.ENTRYPOINT,
+                        String.format(
+                                "Deferred entrypoint provided by '%s' at '%s' failed",
+                                container.getProvider().getMetadata().getId(),
+                                container.getDefinition()),
+                        failure);
+                if (firstFailure == null) {
+                    firstFailure = failure;
+                } else if (firstFailure != failure) {
+                    firstFailure.addSuppressed(failure);
                 }
             }
         }
 
-        return false;
+        report(profiler);
+        DeferredInitialization.finished(firstFailure);
     }
 
-    public static void init(Object gameInstance) {
-        FabricLoaderImpl loader = FabricLoaderImpl.INSTANCE;
+    /**
+     * Forgets that the game was initialized, so tests can start the deferred entrypoints again.
+     */
+    @VisibleForTesting
+    static void reset() {
+        gameInit = null;
+        deferredStarted = false;
+        modInit = null;
+    }
+
+    private static <T> Throwable firstFailure(
+            List<EntrypointContainer<T>> containers, Map<EntrypointContainer<T>, Throwable> failures) {
+        for (EntrypointContainer<T> container : containers) {
+            Throwable failure = failures.get(container);
+            if (failure != null) {
+                return failure;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Groups the entrypoints of a key by mod in the order Fabric returns them, which puts dependencies first.
+     */
+    private static <T> Map<ModContainer, List<EntrypointContainer<T>>> containersByMod(String key, Class<T> type) {
+        Map<ModContainer, List<EntrypointContainer<T>>> containersByMod = new LinkedHashMap<>();
+        for (EntrypointContainer<T> container : FabricLoader.getInstance().getEntrypointContainers(key, type)) {
+            containersByMod
+                    .computeIfAbsent(container.getProvider(), (mod) -> new ArrayList<>())
+                    .add(container);
+        }
+        return containersByMod;
+    }
+
+    /**
+     * Creates the initializers of all mods for the {@link ModInitScheduler}.
+     *
+     * @param failures Receives what each entrypoint threw.
+     * @param modFinished Called once all entrypoints of a mod ran.
+     */
+    private static <T> List<ModInitScheduler.ModInit> modInits(
+            String key,
+            Map<ModContainer, List<EntrypointContainer<T>>> containersByMod,
+            Consumer<? super T> invoker,
+            EntrypointProfiler profiler,
+            Map<EntrypointContainer<T>, Throwable> failures,
+            Consumer<ModContainer> modFinished) {
+        boolean allowParallel = !Boolean.getBoolean(SilkProperties.SINGLE_THREADED_MOD_INIT);
+
+        List<ModInitScheduler.ModInit> mods = new ArrayList<>();
+        containersByMod.forEach((mod, containers) -> {
+            ModMetadata metadata = mod.getMetadata();
+            String modId = metadata.getId();
+            mods.add(new ModInitScheduler.ModInit(
+                    modId,
+                    metadata.getProvides(),
+                    metadata.getDependencies().stream()
+                            .filter((dependency) -> dependency.getKind().isPositive())
+                            .map(ModDependency::getModId)
+                            .toList(),
+                    allowParallel && isParallelInit(metadata),
+                    () -> {
+                        for (EntrypointContainer<T> container : containers) {
+                            try (Phase ignored = StartupTimeline.phase("entrypoint", key + " " + modId);
+                                    EntrypointProfiler.Measurement measurement = profiler.measure(modId)) {
+                                invoker.accept(container.getEntrypoint());
+                            } catch (Throwable t) {
+                                failures.put(container, t);
+                            }
+                        }
+                        modFinished.accept(mod);
+                    }));
+        });
+        return mods;
+    }
+
+    private static boolean isParallelInit(ModMetadata metadata) {
+        CustomValue value = metadata.getCustomValue(PARALLEL_INIT_CUSTOM_VALUE);
+        return value != null && value.getType() == CustomValue.CvType.BOOLEAN && value.getAsBoolean();
+    }
+
+    /**
+     * Logs the measurements of all mods slowest first, and warns about every mod over the
+     * {@value SilkProperties#ENTRYPOINT_TIME_BUDGET}.
+     */
+    @VisibleForTesting
+    static void report(EntrypointProfiler profiler) {
+        List<EntrypointProfiler.Result> results = profiler.results();
+        if (results.isEmpty()) {
+            return;
+        }
+
+        long budget = TimeUnit.MILLISECONDS.toNanos(
+                Long.getLong(SilkProperties.ENTRYPOINT_TIME_BUDGET, DEFAULT_ENTRYPOINT_TIME_BUDGET_MILLIS));
+        long total = 0;
+        StringBuilder report = new StringBuilder();
+        for (EntrypointProfiler.Result result : results) {
+            total += result.wallTime();
+            report.append(String.format(
+                    Locale.ROOT,
+                    "%n\t%s: %s, %s CPU, %s allocated",
+                    result.modId(),
+                    formatNanos(result.wallTime()),
+                    result.cpuTime() >= 0 ? formatNanos(result.cpuTime()) : "unknown",
+                    result.allocated() >= 0 ? formatBytes(result.allocated()) : "unknown"));
+
+            if (budget > 0 && result.wallTime() > budget) {
+                Log.warn(
+                        LogCategory.ENTRYPOINT,
+                        "Entrypoint '%s' of mod %s took %s, over the budget of %s",
+                        profiler.entrypoint(),
+                        result.modId(),
+                        formatNanos(result.wallTime()),
+                        formatNanos(budget));
+            }
+        }
+
+        String header = String.format(
+                Locale.ROOT,
+                "Entrypoint '%s' of %d mods took %s:",
+                profiler.entrypoint(),
+                results.size(),
+                formatNanos(total));
+        if (Boolean.getBoolean(SilkProperties.LOG_STARTUP_TIMINGS)) {
+            Log.info(LogCategory.ENTRYPOINT, "%s%s", header, report);
+        } else {
+            Log.debug(LogCategory.ENTRYPOINT, "%s%s", header, report);
+        }
+    }
+
+    private static String formatNanos(long nanos) {
+        return String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);
+    }
 
-        loader.loadAccessWideners();
-        loader.prepareModInit(FabricLoader.getInstance().getGameDir(), gameInstance);
-        loader.invokeEntrypoints("main", ModInitializer.class, ModInitializer::onInitialize);
+    private static String formatBytes(long bytes) {
+        return String.format(Locale.ROOT, "%.1f MiB", bytes / (1024.0 * 1024.0));
     }
 }
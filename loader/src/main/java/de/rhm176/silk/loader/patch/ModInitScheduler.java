@@ -0,0 +1,118 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.patch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the initializers of all mods, those of mods that declared them thread-safe on a fork-join pool.
+ * <p>
+ * Mods are given in the order Fabric sorted them, dependencies first. A mod only waits for the earlier mods it
+ * depends on, so waiting can never form a cycle. Mods that didn't opt in run one after another on the calling
+ * thread in the given order, each after the parallel mods it depends on finished. All initializers have finished
+ * once {@link #run(List)} returns.
+ */
+final class ModInitScheduler {
+    private ModInitScheduler() {}
+
+    /**
+     * The initializer of a mod.
+     *
+     * @param modId The id of the mod.
+     * @param provides The ids of other mods this mod provides.
+     * @param dependencies The ids of the mods this mod depends on.
+     * @param parallel {@code true} if the initializer may run on another thread, concurrently with other mods.
+     * @param initializer Runs the entrypoints of the mod, must not throw.
+     */
+    record ModInit(
+            String modId,
+            Collection<String> provides,
+            Collection<String> dependencies,
+            boolean parallel,
+            Runnable initializer) {}
+
+    static void run(List<ModInit> mods) {
+        ForkJoinPool pool = null;
+        // mod id -> finished initializing, only mods that come earlier in the order are ever waited for
+        Map<String, CompletableFuture<Void>> finished = new HashMap<>();
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        try {
+            for (ModInit mod : mods) {
+                List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+                for (String dependency : mod.dependencies()) {
+                    CompletableFuture<Void> future = finished.get(dependency);
+                    if (future != null) {
+                        dependencies.add(future);
+                    }
+                }
+
+                CompletableFuture<Void> done;
+                if (mod.parallel()) {
+                    if (pool == null) {
+                        pool = createPool();
+                    }
+                    done = CompletableFuture.allOf(dependencies.toArray(CompletableFuture[]::new))
+                            .handleAsync(
+                                    (ignored, failure) -> {
+                                        mod.initializer().run();
+                                        return null;
+                                    },
+                                    pool);
+                } else {
+                    dependencies.forEach(CompletableFuture::join);
+                    mod.initializer().run();
+                    done = CompletableFuture.completedFuture(null);
+                }
+
+                finished.put(mod.modId(), done);
+                for (String provided : mod.provides()) {
+                    finished.putIfAbsent(provided, done);
+                }
+                pending.add(done);
+            }
+
+            CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static ForkJoinPool createPool() {
+        // mods expect to be initialized with Knot as the context class loader, like on the main thread
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ForkJoinPool(
+                Runtime.getRuntime().availableProcessors(),
+                (pool) -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("Silk Mod Init " + threadCount.incrementAndGet());
+                    thread.setContextClassLoader(contextClassLoader);
+                    return thread;
+                },
+                null,
+                false);
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.patch;
+
+import de.rhm176.silk.loader.index.CallSiteIndex;
+import de.rhm176.silk.loader.patch.DeclarativePatch.Outcome;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.TypePath;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MultiANewArrayInsnNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+/**
+ * Applies the descriptors targeting one class while the class streams through.
+ * <p>
+ * Every targeted method gets one {@link PatternMethodVisitor} per descriptor. It holds back only the instructions
+ * that could still be the start of its pattern, everything else is passed on as it is visited.
+ */
+final class PatchClassVisitor extends ClassVisitor {
+    private final List<Target> targets;
+    private final CallSiteIndex callSites;
+
+    private String className;
+
+    /**
+     * @param classVisitor The visitor to pass the patched class on to, may be {@code null}.
+     * @param targets The descriptors to apply.
+     * @param callSites The call sites of the original class, or {@code null} to look for every pattern.
+     */
+    PatchClassVisitor(ClassVisitor classVisitor, List<Target> targets, CallSiteIndex callSites) {
+        super(Opcodes.ASM9, classVisitor);
+        this.targets = targets;
+        this.callSites = callSites;
+    }
+
+    /**
+     * Groups the descriptors of the given patches by the binary name of their target class.
+     */
+    static void group(List<? extends DeclarativePatch> patches, Map<String, List<Target>> targetsByClass) {
+        for (DeclarativePatch patch : patches) {
+            for (PatchDescriptor descriptor : patch.descriptors()) {
+                targetsByClass
+                        .computeIfAbsent(descriptor.targetClassName(), (name) -> new ArrayList<>())
+                        .add(new Target(patch, descriptor));
+            }
+        }
+    }
+
+    /**
+     * Checks whether any of the descriptors can match in a class according to a call site index.
+     *
+     * @return {@code false} if every descriptor has an anchor that isn't called from the class.
+     */
+    static boolean canMatch(List<Target> targets, String className, CallSiteIndex callSites) {
+        for (Target target : targets) {
+            if (canMatch(target.descriptor, className, null, callSites)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean canMatch(
+            PatchDescriptor descriptor, String className, String methodDescriptor, CallSiteIndex callSites) {
+        PatchDescriptor.MethodCall anchor = descriptor.anchor();
+        return anchor == null
+                || callSites == null
+                || callSites.isCalledFrom(
+                        anchor.owner(),
+                        anchor.name(),
+                        anchor.descriptor(),
+                        className,
+                        descriptor.methodName(),
+                        methodDescriptor != null ? methodDescriptor : descriptor.methodDescriptor());
+    }
+
+    static void classNotFound(List<Target> targets) {
+        for (Target target : targets) {
+            target.patch.finished(target.descriptor, null, Outcome.CLASS_NOT_FOUND);
+        }
+    }
+
+    /**
+     * @return {@code true} if any descriptor inserts jumps or exception handlers, see
+     * {@link PatchDescriptor.Insertion#branches()}.
+     */
+    static boolean branches(List<Target> targets) {
+        for (Target target : targets) {
+            for (PatchDescriptor.Insertion insertion : target.descriptor.insertions()) {
+                if (insertion.branches()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} if at least one descriptor was applied.
+     */
+    boolean applied() {
+        for (Target target : targets) {
+            if (target.applied) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void visit(
+            int version, int access, String name, String signature, String superName, String[] interfaces) {
+        className = name;
+        super.visit(version, access, name, signature, superName, interfaces);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(
+            int access, String name, String descriptor, String signature, String[] exceptions) {
+        MethodVisitor methodVisitor = super.visitMethod(access, name, descriptor, signature, exceptions);
+
+        // the first descriptor has to see the original instructions, so it ends up outermost
+        for (int i = targets.size() - 1; i >= 0; i--) {
+            Target target = targets.get(i);
+            if (!target.applied && target.descriptor.matchesMethod(name, descriptor)) {
+                target.methodFound = true;
+                target.patch.methodFound(target.descriptor, className, name, descriptor);
+                if (methodVisitor != null && canMatch(target.descriptor, className, descriptor, callSites)) {
+                    methodVisitor = new PatternMethodVisitor(methodVisitor, target);
+                }
+            }
+        }
+        return methodVisitor;
+    }
+
+    @Override
+    public void visitEnd() {
+        super.visitEnd();
+
+        for (Target target : targets) {
+            Outcome outcome = target.applied
+                    ? Outcome.APPLIED
+                    : target.methodFound ? Outcome.PATTERN_NOT_FOUND : Outcome.METHOD_NOT_FOUND;
+            target.patch.finished(target.descriptor, className, outcome);
+        }
+    }
+
+    /**
+     * A descriptor and how far applying it got.
+     */
+    static final class Target {
+        private final DeclarativePatch patch;
+        private final PatchDescriptor descriptor;
+
+        private boolean methodFound;
+        private boolean applied;
+
+        Target(DeclarativePatch patch, PatchDescriptor descriptor) {
+            this.patch = patch;
+            this.descriptor = descriptor;
+        }
+    }
+
+    private static final class PatternMethodVisitor extends MethodVisitor {
+        private final Target target;
+        private final List<Predicate<AbstractInsnNode>> pattern;
+        // instructions matching the start of the pattern, not passed on yet
+        private final List<AbstractInsnNode> pending = new ArrayList<>();
+
+        private int extraStack;
+
+        private PatternMethodVisitor(MethodVisitor methodVisitor, Target target) {
+            super(Opcodes.ASM9, methodVisitor);
+            this.target = target;
+            this.pattern = target.descriptor.pattern();
+        }
+
+        private void instruction(AbstractInsnNode instruction) {
+            if (target.applied) {
+                instruction.accept(mv);
+                return;
+            }
+
+            pending.add(instruction);
+            while (!pending.isEmpty() && !pendingMatches()) {
+                pending.remove(0).accept(mv);
+            }
+            if (pending.size() == pattern.size()) {
+                apply();
+            }
+        }
+
+        private boolean pendingMatches() {
+            for (int i = 0; i < pending.size(); i++) {
+                if (!pattern.get(i).test(pending.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void apply() {
+            List<PatchDescriptor.Insertion> insertions = target.descriptor.insertions();
+            for (int i = 0; i < pending.size(); i++) {
+                for (PatchDescriptor.Insertion insertion : insertions) {
+                    if (insertion.patternIndex() == i && !insertion.after()) {
+                        insertion.instructions().accept(mv);
+                    }
+                }
+                pending.get(i).accept(mv);
+                for (PatchDescriptor.Insertion insertion : insertions) {
+                    if (insertion.patternIndex() == i && insertion.after()) {
+                        insertion.instructions().accept(mv);
+                    }
+                }
+            }
+            for (PatchDescriptor.Insertion insertion : insertions) {
+                extraStack = Math.max(extraStack, insertion.maxStack());
+            }
+
+            pending.clear();
+            target.applied = true;
+        }
+
+        // labels, frames, line numbers and anything else between instructions break a match
+        private void flush() {
+            for (AbstractInsnNode instruction : pending) {
+                instruction.accept(mv);
+            }
+            pending.clear();
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            instruction(new InsnNode(opcode));
+        }
+
+        @Override
+        public void visitIntInsn(int opcode, int operand) {
+            instruction(new IntInsnNode(opcode, operand));
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int varIndex) {
+            instruction(new VarInsnNode(opcode, varIndex));
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            instruction(new TypeInsnNode(opcode, type));
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+            instruction(new FieldInsnNode(opcode, owner, name, descriptor));
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            instruction(new MethodInsnNode(opcode, owner, name, descriptor, isInterface));
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(
+                String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+            instruction(new InvokeDynamicInsnNode(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments));
+        }
+
+        @Override
+        public void visitLdcInsn(Object value) {
+            instruction(new LdcInsnNode(value));
+        }
+
+        @Override
+        public void visitIincInsn(int varIndex, int increment) {
+            instruction(new IincInsnNode(varIndex, increment));
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+            instruction(new MultiANewArrayInsnNode(descriptor, numDimensions));
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+            flush();
+            super.visitJumpInsn(opcode, label);
+        }
+
+        @Override
+        public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+            flush();
+            super.visitTableSwitchInsn(min, max, dflt, labels);
+        }
+
+        @Override
+        public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+            flush();
+            super.visitLookupSwitchInsn(dflt, keys, labels);
+        }
+
+        @Override
+        public void visitLabel(Label label) {
+            flush();
+            super.visitLabel(label);
+        }
+
+        @Override
+        public void visitFrame(int type, int numLocal, Object[] local, int numStack, Object[] stack) {
+            flush();
+            super.visitFrame(type, numLocal, local, numStack, stack);
+        }
+
+        @Override
+        public void visitLineNumber(int line, Label start) {
+            flush();
+            super.visitLineNumber(line, start);
+        }
+
+        @Override
+        public AnnotationVisitor visitInsnAnnotation(
+                int typeRef, TypePath typePath, String descriptor, boolean visible) {
+            flush();
+            return super.visitInsnAnnotation(typeRef, typePath, descriptor, visible);
+        }
+
+        @Override
+        public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+            flush();
+            super.visitTryCatchBlock(start, end, handler, type);
+        }
+
+        @Override
+        public void visitMaxs(int maxStack, int maxLocals) {
+            flush();
+            super.visitMaxs(maxStack + extraStack, maxLocals);
+        }
+
+        @Override
+        public void visitEnd() {
+            flush();
+            super.visitEnd();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.patch;
+
+import de.rhm176.silk.loader.index.CallSiteIndex;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+
+/**
+ * Describes a single change to a game method: the method, a sequence of instructions to find in it and the
+ * instructions to insert around that sequence.
+ * <p>
+ * The pattern has to match consecutive instructions, labels, line numbers and frames in between break a match.
+ * Only the first match in the first matching method is patched.
+ *
+ * @param targetClass The internal name of the class to patch (e.g. {@code main/MainApp}).
+ * @param methodName The name of the method to patch.
+ * @param methodDescriptor The descriptor of the method to patch, or {@code null} to match any descriptor.
+ * @param pattern Matchers for the consecutive instructions to find.
+ * @param insertions The instructions to insert once the pattern matched.
+ */
+public record PatchDescriptor(
+        String targetClass,
+        String methodName,
+        String methodDescriptor,
+        List<Predicate<AbstractInsnNode>> pattern,
+        List<Insertion> insertions) {
+    public PatchDescriptor {
+        pattern = List.copyOf(pattern);
+        insertions = List.copyOf(insertions);
+        if (pattern.isEmpty()) {
+            throw new IllegalArgumentException("Patch of " + targetClass + "::" + methodName + " has no pattern");
+        }
+        for (Insertion insertion : insertions) {
+            if (insertion.patternIndex() < 0 || insertion.patternIndex() >= pattern.size()) {
+                throw new IllegalArgumentException(
+                        "Insertion outside the pattern of " + targetClass + "::" + methodName);
+            }
+        }
+    }
+
+    /**
+     * @return The binary name of the class to patch (e.g. {@code main.MainApp}).
+     */
+    public String targetClassName() {
+        return targetClass.replace('/', '.');
+    }
+
+    boolean matchesMethod(String name, String descriptor) {
+        return methodName.equals(name) && (methodDescriptor == null || methodDescriptor.equals(descriptor));
+    }
+
+    /**
+     * Returns the first method call of the pattern, which a {@link CallSiteIndex} can find without reading the
+     * method's instructions.
+     *
+     * @return The first method call of the pattern, or {@code null} if it has none.
+     */
+    public MethodCall anchor() {
+        for (Predicate<AbstractInsnNode> matcher : pattern) {
+            if (matcher instanceof MethodCall call) {
+                return call;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Matches a static method call.
+     *
+     * @param owner The internal name of the class declaring the method.
+     * @param name The name of the method.
+     * @param descriptor The descriptor of the method.
+     * @return A matcher for {@code INVOKESTATIC} instructions calling the method.
+     */
+    public static MethodCall invokeStatic(String owner, String name, String descriptor) {
+        return new MethodCall(Opcodes.INVOKESTATIC, owner, name, descriptor);
+    }
+
+    /**
+     * Matches a call of a specific method.
+     *
+     * @param opcode The opcode of the call, e.g. {@link Opcodes#INVOKESTATIC}.
+     * @param owner The internal name of the class declaring the method.
+     * @param name The name of the method.
+     * @param descriptor The descriptor of the method.
+     */
+    public record MethodCall(int opcode, String owner, String name, String descriptor)
+            implements Predicate<AbstractInsnNode> {
+        @Override
+        public boolean test(AbstractInsnNode instruction) {
+            return instruction.getOpcode() == opcode
+                    && instruction instanceof MethodInsnNode call
+                    && owner.equals(call.owner)
+                    && name.equals(call.name)
+                    && descriptor.equals(call.desc);
+        }
+    }
+
+    /**
+     * Instructions inserted next to an instruction of a matched pattern.
+     *
+     * @param patternIndex The index of the pattern instruction to insert next to.
+     * @param after {@code true} to insert after the instruction, {@code false} to insert before it.
+     * @param maxStack How many stack slots the inserted instructions need on top of what the method already uses.
+     * @param instructions Visits the instructions to insert.
+     * @param branches {@code true} if the inserted instructions contain jumps or exception handlers, in which case the
+     * stack map frames of the patched class are computed.
+     */
+    public record Insertion(
+            int patternIndex, boolean after, int maxStack, Consumer<MethodVisitor> instructions, boolean branches) {
+        public static Insertion before(int patternIndex, int maxStack, Consumer<MethodVisitor> instructions) {
+            return new Insertion(patternIndex, false, maxStack, instructions, false);
+        }
+
+        public static Insertion after(int patternIndex, int maxStack, Consumer<MethodVisitor> instructions) {
+            return new Insertion(patternIndex, true, maxStack, instructions, false);
+        }
+
+        /**
+         * @return This insertion, marked as containing jumps or exception handlers.
+         */
+        public Insertion branching() {
+            return new Insertion(patternIndex, after, maxStack, instructions, true);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.patch;
+
+import de.rhm176.silk.loader.SilkProperties;
+import de.rhm176.silk.loader.index.CallSiteIndex;
+import de.rhm176.silk.loader.index.ClassHierarchyIndex;
+import de.rhm176.silk.loader.trace.StartupTimeline;
+import de.rhm176.silk.loader.trace.StartupTimeline.Phase;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+
+/**
+ * Applies {@link DeclarativePatch}es straight to class bytes.
+ * <p>
+ * The descriptors of all patches are grouped by target class and every target class is patched in a single pass:
+ * one {@link ClassReader} feeding the pattern matching visitors of all its descriptors into a {@link ClassWriter}.
+ * No class trees are built, and methods no descriptor targets are copied over without being parsed. Stack map
+ * frames are only computed for classes with {@link PatchDescriptor.Insertion#branches() branching} insertions, and
+ * then from a class hierarchy index instead of by loading classes.
+ * <p>
+ * Target classes are independent of each other, so they are patched in parallel on up to one thread per processor
+ * unless {@value SilkProperties#SINGLE_THREADED_PATCHING} is set. The result is the same either way.
+ */
+public final class PatchEngine {
+    private final List<DeclarativePatch> patches;
+    private final Set<String> targetClasses;
+
+    /**
+     * @param patches The patches to apply, descriptors targeting the same class are applied in this order.
+     */
+    public PatchEngine(List<DeclarativePatch> patches) {
+        this.patches = List.copyOf(patches);
+
+        Map<String, List<PatchClassVisitor.Target>> targetsByClass = new LinkedHashMap<>();
+        PatchClassVisitor.group(this.patches, targetsByClass);
+        this.targetClasses = Collections.unmodifiableSet(new LinkedHashSet<>(targetsByClass.keySet()));
+    }
+
+    /**
+     * @return The binary names of all classes the patches target, in the order they are patched.
+     */
+    public Set<String> targetClasses() {
+        return targetClasses;
+    }
+
+    /**
+     * Patches all target classes.
+     *
+     * @param classSource Reads the original classes.
+     * @return The patched classes keyed by binary name, classes no descriptor could be applied to are left out.
+     * @throws IOException if a class can't be read.
+     */
+    public Map<String, byte[]> apply(ClassSource classSource) throws IOException {
+        return apply(classSource, null);
+    }
+
+    /**
+     * Patches all target classes, only looking for patterns in methods that call their anchor.
+     * <p>
+     * Classes that call none of the anchors of their descriptors are only read as far as needed to report which
+     * of the targeted methods exist.
+     *
+     * @param classSource Reads the original classes.
+     * @param callSites The call sites of the original classes, or {@code null} to look for every pattern.
+     * @return The patched classes keyed by binary name, classes no descriptor could be applied to are left out.
+     * @throws IOException if a class can't be read.
+     */
+    public Map<String, byte[]> apply(ClassSource classSource, CallSiteIndex callSites) throws IOException {
+        return apply(classSource, callSites, () -> null);
+    }
+
+    /**
+     * Patches all target classes, looking up the hierarchy of game classes in an index when computing frames.
+     *
+     * @param classSource Reads the original classes.
+     * @param callSites The call sites of the original classes, or {@code null} to look for every pattern.
+     * @param classHierarchy Supplies the class hierarchy of the original classes, or {@code null} to read their
+     * headers when computing frames. Only asked once a branching insertion needs frames, and at most once.
+     * @return The patched classes keyed by binary name, classes no descriptor could be applied to are left out.
+     * @throws IOException if a class can't be read.
+     */
+    public Map<String, byte[]> apply(
+            ClassSource classSource, CallSiteIndex callSites, Supplier<ClassHierarchyIndex> classHierarchy)
+            throws IOException {
+        HierarchyClassWriter.Hierarchy hierarchy =
+                new HierarchyClassWriter.Hierarchy(classHierarchy, classSource, PatchEngine.class.getClassLoader());
+        Map<String, List<PatchClassVisitor.Target>> targetsByClass = new LinkedHashMap<>();
+        PatchClassVisitor.group(patches, targetsByClass);
+
+        int threads = Math.min(targetsByClass.size(), Runtime.getRuntime().availableProcessors());
+        if (threads <= 1 || Boolean.getBoolean(SilkProperties.SINGLE_THREADED_PATCHING)) {
+            Map<String, byte[]> patchedClasses = new LinkedHashMap<>();
+            for (Map.Entry<String, List<PatchClassVisitor.Target>> entry : targetsByClass.entrySet()) {
+                byte[] patched = patchClass(entry.getKey(), entry.getValue(), classSource, callSites, hierarchy);
+                if (patched != null) {
+                    patchedClasses.put(entry.getKey(), patched);
+                }
+            }
+            return patchedClasses;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, (runnable) -> {
+            Thread thread = new Thread(runnable, "Silk patch " + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<String, Future<byte[]>> futures = new LinkedHashMap<>();
+            targetsByClass.forEach((className, targets) -> futures.put(
+                    className,
+                    executor.submit(() -> patchClass(className, targets, classSource, callSites, hierarchy))));
+
+            // collected in target order, so the result doesn't depend on which class finished first
+            Map<String, byte[]> patchedClasses = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<byte[]>> entry : futures.entrySet()) {
+                byte[] patched = await(entry.getValue());
+                if (patched != null) {
+                    patchedClasses.put(entry.getKey(), patched);
+                }
+            }
+            return patchedClasses;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while patching game classes");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static byte[] patchClass(
+            String className,
+            List<PatchClassVisitor.Target> targets,
+            ClassSource classSource,
+            CallSiteIndex callSites,
+            HierarchyClassWriter.Hierarchy hierarchy)
+            throws IOException {
+        try (Phase ignored = StartupTimeline.phase("patch", className)) {
+            byte[] original = classSource.read(className);
+            if (original == null) {
+                PatchClassVisitor.classNotFound(targets);
+                return null;
+            }
+
+            ClassReader reader = new ClassReader(original);
+            if (callSites != null && !PatchClassVisitor.canMatch(targets, reader.getClassName(), callSites)) {
+                // still visit the method headers so the patches learn which targeted methods exist
+                reader.accept(new PatchClassVisitor(null, targets, callSites), ClassReader.SKIP_CODE);
+                return null;
+            }
+
+            // sharing the reader's constant pool lets the writer copy untouched methods as they are
+            ClassWriter writer = PatchClassVisitor.branches(targets)
+                    ? new HierarchyClassWriter(reader, hierarchy)
+                    : new ClassWriter(reader, 0);
+            PatchClassVisitor visitor = new PatchClassVisitor(writer, targets, callSites);
+            reader.accept(visitor, 0);
+            return visitor.applied() ? writer.toByteArray() : null;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Reads the original game classes, called from several threads at once when patching in parallel.
+     */
+    @FunctionalInterface
+    public interface ClassSource {
+        /**
+         * @param className The binary name of the class (e.g. {@code main.MainApp}).
+         * @return The bytes of the class, or {@code null} if there is no such class.
+         * @throws IOException if the class can't be read.
+         */
+        byte[] read(String className) throws IOException;
+    }
+}
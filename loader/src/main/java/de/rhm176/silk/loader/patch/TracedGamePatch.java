@@ -0,0 +1,45 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.patch;
+
+import de.rhm176.silk.loader.trace.StartupTimeline;
+import de.rhm176.silk.loader.trace.StartupTimeline.Phase;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import net.fabricmc.loader.impl.game.patch.GamePatch;
+import net.fabricmc.loader.impl.launch.FabricLauncher;
+import org.objectweb.asm.tree.ClassNode;
+
+/**
+ * Records every {@link GamePatch#process} call of another patch as a phase of the {@link StartupTimeline}.
+ */
+public class TracedGamePatch extends GamePatch {
+    private final GamePatch patch;
+    private final String name;
+
+    public TracedGamePatch(GamePatch patch) {
+        this.patch = patch;
+        this.name = patch.getClass().getSimpleName();
+    }
+
+    @Override
+    public void process(
+            FabricLauncher launcher, Function<String, ClassNode> classSource, Consumer<ClassNode> classEmitter) {
+        try (Phase ignored = StartupTimeline.phase("patch", name)) {
+            patch.process(launcher, classSource, classEmitter);
+        }
+    }
+}
@@ -17,21 +17,20 @@ package de.rhm176.silk.loader.patch;
 
 import com.google.common.annotations.VisibleForTesting;
 import de.rhm176.silk.loader.EquilinoxGameProvider;
-import java.util.function.Consumer;
-import java.util.function.Function;
+import java.util.List;
+import java.util.function.Supplier;
 import net.fabricmc.loader.api.ModContainer;
 import net.fabricmc.loader.api.Version;
 import net.fabricmc.loader.api.metadata.ModMetadata;
 import net.fabricmc.loader.impl.FabricLoaderImpl;
-import net.fabricmc.loader.impl.game.patch.GamePatch;
-import net.fabricmc.loader.impl.launch.FabricLauncher;
 import net.fabricmc.loader.impl.util.log.Log;
 import net.fabricmc.loader.impl.util.log.LogCategory;
 import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.tree.*;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
 
-public class WindowTitlePatch extends GamePatch {
-    private final EquilinoxGameProvider gameProvider;
+public class WindowTitlePatch extends DeclarativePatch {
+    private final Supplier<String> gameVersion;
 
     @VisibleForTesting
     static final String TARGET_CLASS_INTERNAL_NAME = "basics/DisplayManager";
@@ -58,79 +57,56 @@ public class WindowTitlePatch extends GamePatch {
     static final String GET_TEXT_METHOD_DESCRIPTOR = "(I)Ljava/lang/String;";
 
     public WindowTitlePatch(EquilinoxGameProvider gameProvider) {
-        this.gameProvider = gameProvider;
+        this(gameProvider::getRawGameVersion);
+    }
+
+    /**
+     * @param gameVersion Supplies the raw game version shown in the window title once the patch is applied.
+     */
+    public WindowTitlePatch(Supplier<String> gameVersion) {
+        this.gameVersion = gameVersion;
     }
 
     @Override
-    public void process(
-            FabricLauncher launcher, Function<String, ClassNode> classSource, Consumer<ClassNode> classEmitter) {
-        ClassNode displayManagerClass = classSource.apply(TARGET_CLASS_INTERNAL_NAME.replace('/', '.'));
-        if (displayManagerClass == null) {
-            return;
-        }
+    public List<PatchDescriptor> descriptors() {
+        return List.of(new PatchDescriptor(
+                TARGET_CLASS_INTERNAL_NAME,
+                TARGET_METHOD_NAME,
+                null,
+                List.of(
+                        WindowTitlePatch::isArgOne,
+                        PatchDescriptor.invokeStatic(
+                                GAME_TEXT_CLASS_INTERNAL_NAME, GET_TEXT_METHOD_NAME, GET_TEXT_METHOD_DESCRIPTOR),
+                        PatchDescriptor.invokeStatic(
+                                DISPLAY_CLASS_INTERNAL_NAME, SET_TITLE_METHOD_NAME, SET_TITLE_METHOD_DESCRIPTOR)),
+                List.of(PatchDescriptor.Insertion.before(2, 1, (methodVisitor) -> {
+                    methodVisitor.visitLdcInsn(" " + gameVersion.get() + " - Fabric Loader " + fabricLoaderVersion());
+                    methodVisitor.visitMethodInsn(
+                            Opcodes.INVOKEVIRTUAL,
+                            "java/lang/String",
+                            "concat",
+                            "(Ljava/lang/String;)Ljava/lang/String;",
+                            false);
+                }))));
+    }
 
-        for (MethodNode methodNode : displayManagerClass.methods) {
-            if (TARGET_METHOD_NAME.equals(methodNode.name)) {
-                Log.debug(
-                        LogCategory.GAME_PATCH,
-                        "Applying window title hook to %s::%s",
-                        displayManagerClass.name,
-                        methodNode.name);
-                if (transformCreateDisplayMethod(methodNode)) {
-                    classEmitter.accept(displayManagerClass);
-                    break;
-                }
-            }
-        }
+    @Override
+    protected void methodFound(
+            PatchDescriptor descriptor, String className, String methodName, String methodDescriptor) {
+        Log.debug(LogCategory.GAME_PATCH, "Applying window title hook to %s::%s", className, methodName);
     }
 
-    private boolean transformCreateDisplayMethod(MethodNode methodNode) {
-        boolean methodModified = false;
-
-        for (AbstractInsnNode currentInsn : methodNode.instructions) {
-            if (currentInsn.getOpcode() == Opcodes.INVOKESTATIC && currentInsn instanceof MethodInsnNode setTitleCall) {
-                if (DISPLAY_CLASS_INTERNAL_NAME.equals(setTitleCall.owner)
-                        && SET_TITLE_METHOD_NAME.equals(setTitleCall.name)
-                        && SET_TITLE_METHOD_DESCRIPTOR.equals(setTitleCall.desc)) {
-                    AbstractInsnNode prevToSetTitle = setTitleCall.getPrevious();
-                    if (prevToSetTitle != null
-                            && prevToSetTitle.getOpcode() == Opcodes.INVOKESTATIC
-                            && prevToSetTitle instanceof MethodInsnNode getTextCall) {
-                        if (GAME_TEXT_CLASS_INTERNAL_NAME.equals(getTextCall.owner)
-                                && GET_TEXT_METHOD_NAME.equals(getTextCall.name)
-                                && GET_TEXT_METHOD_DESCRIPTOR.equals(getTextCall.desc)) {
-                            AbstractInsnNode argLoadInsn = getTextCall.getPrevious();
-                            if (argLoadInsn != null && isArgOne(argLoadInsn)) {
-                                InsnList instructionsToInsert = new InsnList();
-                                // tries to get fabric loader version dynamically and fallbacks to version
-                                // silk-loader was compiled with
-                                instructionsToInsert.add(
-                                        new LdcInsnNode(" " + gameProvider.getRawGameVersion() + " - Fabric Loader "
-                                                + FabricLoaderImpl.INSTANCE
-                                                        .getModContainer("fabricloader")
-                                                        .map(ModContainer::getMetadata)
-                                                        .map(ModMetadata::getVersion)
-                                                        .map(Version::getFriendlyString)
-                                                        .orElse(FabricLoaderImpl.VERSION)));
-
-                                instructionsToInsert.add(new MethodInsnNode(
-                                        Opcodes.INVOKEVIRTUAL,
-                                        "java/lang/String",
-                                        "concat",
-                                        "(Ljava/lang/String;)Ljava/lang/String;",
-                                        false));
-
-                                methodNode.instructions.insertBefore(setTitleCall, instructionsToInsert);
-                                methodModified = true;
-
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return methodModified;
+    /**
+     * @return The version of the running Fabric Loader as shown in the window title, or the version Silk Loader was
+     * compiled against if it can't be determined.
+     */
+    public static String fabricLoaderVersion() {
+        return FabricLoaderImpl.INSTANCE
+                .getModContainer("fabricloader")
+                .map(ModContainer::getMetadata)
+                .map(ModMetadata::getVersion)
+                .map(Version::getFriendlyString)
+                .orElse(FabricLoaderImpl.VERSION);
     }
 
     @VisibleForTesting
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.startup;
+
+import de.rhm176.silk.loader.trace.StartupTimeline;
+import de.rhm176.silk.loader.trace.StartupTimeline.Phase;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small dependency graph of launch steps.
+ * <p>
+ * Every step starts on a pool of daemon threads as soon as all of its dependencies have finished, so independent
+ * I/O like extracting natives and indexing the game jar overlaps. A failing step fails all steps depending on it
+ * with the same exception, which is rethrown unchanged to whoever waits for the result. Every step is also recorded
+ * as a phase of the {@link StartupTimeline}.
+ */
+public final class StartupGraph {
+    private final ExecutorService executor;
+    private final long origin = System.nanoTime();
+    private final List<Node<?>> nodes = new ArrayList<>();
+    private boolean sealed;
+
+    /**
+     * @param name The name of the graph, used to name its threads.
+     */
+    public StartupGraph(String name) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, name + " " + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * A step of the launch.
+     *
+     * @param <T> The type of the step's result.
+     */
+    @FunctionalInterface
+    public interface Task<T> {
+        /**
+         * Runs the step. The results of its dependencies are available through {@link Node#join()}.
+         *
+         * @return The result of the step.
+         * @throws Exception if the step fails.
+         */
+        T run() throws Exception;
+    }
+
+    /**
+     * Adds a step to the graph and schedules it.
+     *
+     * @param name The name of the step.
+     * @param task The step itself.
+     * @param dependencies The steps that have to finish before this one starts.
+     * @param <T> The type of the step's result.
+     * @return The node of the step.
+     * @throws IllegalStateException if the graph is already {@link #seal() sealed}.
+     */
+    public synchronized <T> Node<T> add(String name, Task<T> task, Node<?>... dependencies) {
+        if (sealed) {
+            throw new IllegalStateException("Can't add " + name + " to a sealed startup graph");
+        }
+
+        CompletableFuture<?>[] dependencyFutures = new CompletableFuture<?>[dependencies.length];
+        for (int i = 0; i < dependencies.length; i++) {
+            dependencyFutures[i] = dependencies[i].future;
+        }
+
+        Node<T> node = new Node<>(name, origin);
+        node.future = CompletableFuture.allOf(dependencyFutures).thenApplyAsync(ignored -> node.run(task), executor);
+        nodes.add(node);
+        return node;
+    }
+
+    /**
+     * Marks the graph as complete. Its threads are released once all steps have finished.
+     *
+     * @return A future that completes once all steps have finished, whether they succeeded or not.
+     */
+    public synchronized CompletableFuture<Void> seal() {
+        sealed = true;
+
+        CompletableFuture<?>[] futures =
+                nodes.stream().map(node -> node.future.exceptionally(e -> null)).toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(futures).whenComplete((result, e) -> executor.shutdown());
+    }
+
+    /**
+     * @return All steps in the order they were added.
+     */
+    public synchronized List<Node<?>> nodes() {
+        return List.copyOf(nodes);
+    }
+
+    /**
+     * Prints when every finished step started relative to the graph's creation and how long it took.
+     *
+     * @param out The stream to print to.
+     */
+    public void printTimings(PrintStream out) {
+        for (Node<?> node : nodes()) {
+            if (node.endNanos == 0) continue;
+
+            out.printf(
+                    Locale.ROOT,
+                    "[Silk] Startup step %s took %.1f ms (started at +%.1f ms)%s%n",
+                    node.name,
+                    (node.endNanos - node.startNanos) / 1e6,
+                    (node.startNanos - origin) / 1e6,
+                    node.future.isCompletedExceptionally() ? ", failed" : "");
+        }
+    }
+
+    /**
+     * A scheduled step of a {@link StartupGraph}.
+     *
+     * @param <T> The type of the step's result.
+     */
+    public static final class Node<T> {
+        private final String name;
+        private final long origin;
+        private volatile CompletableFuture<T> future;
+
+        private volatile long startNanos;
+        private volatile long endNanos;
+
+        private Node(String name, long origin) {
+            this.name = name;
+            this.origin = origin;
+        }
+
+        private T run(Task<T> task) {
+            startNanos = System.nanoTime();
+            try (Phase ignored = StartupTimeline.phase("step", name)) {
+                return task.run();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                endNanos = System.nanoTime();
+            }
+        }
+
+        /**
+         * @return The name of the step.
+         */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * @return {@code true} once the step has finished, successfully or not.
+         */
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        /**
+         * @return When the step started relative to the creation of its graph in nanoseconds, or {@code -1} if it
+         * hasn't started yet.
+         */
+        public long startOffsetNanos() {
+            long start = startNanos;
+            return start == 0 ? -1 : start - origin;
+        }
+
+        /**
+         * @return How long the step took in nanoseconds, or {@code -1} if it hasn't finished yet.
+         */
+        public long durationNanos() {
+            long end = endNanos;
+            return end == 0 ? -1 : end - startNanos;
+        }
+
+        /**
+         * Waits for the step and returns its result.
+         *
+         * @return The result of the step.
+         * @throws Exception the exception the step, or one of its dependencies, failed with.
+         */
+        public T get() throws Exception {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = unwrap(e);
+                if (cause instanceof Exception exception) {
+                    throw exception;
+                }
+                throw (Error) cause;
+            }
+        }
+
+        /**
+         * Waits for the step and returns its result.
+         *
+         * @return The result of the step.
+         * @throws RuntimeException the unchecked exception the step, or one of its dependencies, failed with.
+         * @throws StartupException if the step failed with a checked exception.
+         */
+        public T join() {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                Throwable cause = unwrap(e);
+                if (cause instanceof RuntimeException exception) {
+                    throw exception;
+                } else if (cause instanceof Error error) {
+                    throw error;
+                }
+                throw new StartupException("Startup step " + name + " failed", cause);
+            }
+        }
+
+        private static Throwable unwrap(Throwable throwable) {
+            while ((throwable instanceof CompletionException || throwable instanceof ExecutionException)
+                    && throwable.getCause() != null) {
+                throwable = throwable.getCause();
+            }
+            return throwable;
+        }
+    }
+
+    /**
+     * Thrown by {@link Node#join()} if a step failed with a checked exception.
+     */
+    public static final class StartupException extends RuntimeException {
+        private StartupException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The JFR event recorded for every entrypoint measured by an {@link EntrypointProfiler}.
+ * <p>
+ * Only touched once {@link StartupTimeline} made sure the {@code jdk.jfr} module is present, so runtimes without
+ * it never load this class.
+ */
+@Name("de.rhm176.silk.Entrypoint")
+@Label("Mod Entrypoint")
+@Category({"Silk", "Startup"})
+@Description("A mod entrypoint invoked while initializing mods")
+@StackTrace(false)
+final class EntrypointEvent extends Event {
+    @Label("Entrypoint")
+    String entrypoint;
+
+    @Label("Mod")
+    String modId;
+
+    @Label("CPU Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long cpuTime;
+
+    @Label("Allocated")
+    @DataAmount(DataAmount.BYTES)
+    long allocated;
+
+    static EntrypointEvent start() {
+        EntrypointEvent event = new EntrypointEvent();
+        event.begin();
+        return event;
+    }
+
+    void finish(String entrypoint, String modId, long cpuTime, long allocated) {
+        end();
+        if (shouldCommit()) {
+            this.entrypoint = entrypoint;
+            this.modId = modId;
+            this.cpuTime = cpuTime;
+            this.allocated = allocated;
+            commit();
+        }
+    }
+}
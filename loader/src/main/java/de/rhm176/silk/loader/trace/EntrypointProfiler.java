@@ -0,0 +1,138 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.trace;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures how long the entrypoints of each mod take to run.
+ * <p>
+ * Every measured entrypoint records its wall time, the CPU time of the invoking thread and the bytes that thread
+ * allocated, and is recorded as a {@code de.rhm176.silk.Entrypoint} JFR event. CPU time and allocations are
+ * reported as {@code -1} where the JVM can't measure them.
+ */
+public final class EntrypointProfiler {
+    private final String entrypoint;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final boolean measureCpuTime;
+    private final boolean measureAllocations;
+    // measurements summed per mod id, in the order the mods were first measured
+    private final Map<String, Result> results = new LinkedHashMap<>();
+
+    /**
+     * @param entrypoint The key of the measured entrypoints (e.g. {@code main}).
+     */
+    public EntrypointProfiler(String entrypoint) {
+        this.entrypoint = entrypoint;
+        this.measureCpuTime = threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+        this.measureAllocations = threads instanceof com.sun.management.ThreadMXBean allocations
+                && allocations.isThreadAllocatedMemorySupported()
+                && allocations.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Starts measuring an entrypoint of a mod on the current thread.
+     * <p>
+     * Use with try-with-resources, the measurement ends when it is closed.
+     *
+     * @param modId The id of the mod providing the entrypoint.
+     * @return The started measurement.
+     */
+    public Measurement measure(String modId) {
+        EntrypointEvent event = StartupTimeline.JFR_AVAILABLE ? EntrypointEvent.start() : null;
+        long cpuStart = cpuTime();
+        long allocatedStart = allocatedBytes();
+        long start = System.nanoTime();
+
+        return new Measurement() {
+            private boolean closed;
+
+            @Override
+            public void close() {
+                if (closed) return;
+                closed = true;
+
+                long wallTime = System.nanoTime() - start;
+                long cpuTime = measureCpuTime ? cpuTime() - cpuStart : -1;
+                long allocated = measureAllocations ? allocatedBytes() - allocatedStart : -1;
+                if (event != null) {
+                    event.finish(entrypoint, modId, cpuTime, allocated);
+                }
+                record(new Result(modId, wallTime, cpuTime, allocated));
+            }
+        };
+    }
+
+    private long cpuTime() {
+        return measureCpuTime ? threads.getCurrentThreadCpuTime() : -1;
+    }
+
+    private long allocatedBytes() {
+        return measureAllocations ? ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    private synchronized void record(Result result) {
+        results.merge(result.modId(), result, Result::plus);
+    }
+
+    /**
+     * @return The key of the measured entrypoints.
+     */
+    public String entrypoint() {
+        return entrypoint;
+    }
+
+    /**
+     * @return The measurements of every mod, slowest first.
+     */
+    public synchronized List<Result> results() {
+        List<Result> sorted = new ArrayList<>(results.values());
+        sorted.sort(Comparator.comparingLong(Result::wallTime).reversed());
+        return sorted;
+    }
+
+    /**
+     * A running measurement, ended by {@link #close()}.
+     */
+    public interface Measurement extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * The measurements of all entrypoints of a mod.
+     *
+     * @param modId The id of the mod.
+     * @param wallTime How long the entrypoints took in nanoseconds.
+     * @param cpuTime How much CPU time the entrypoints used in nanoseconds, or {@code -1} if it wasn't measured.
+     * @param allocated How many bytes the entrypoints allocated, or {@code -1} if it wasn't measured.
+     */
+    public record Result(String modId, long wallTime, long cpuTime, long allocated) {
+        Result plus(Result other) {
+            return new Result(
+                    modId,
+                    wallTime + other.wallTime,
+                    cpuTime >= 0 && other.cpuTime >= 0 ? cpuTime + other.cpuTime : -1,
+                    allocated >= 0 && other.allocated >= 0 ? allocated + other.allocated : -1);
+        }
+    }
+}
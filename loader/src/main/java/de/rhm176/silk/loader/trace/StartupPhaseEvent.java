@@ -0,0 +1,57 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR event recorded for every {@link StartupTimeline} phase.
+ * <p>
+ * Only touched once {@link StartupTimeline} made sure the {@code jdk.jfr} module is present, so runtimes without
+ * it never load this class.
+ */
+@Name("de.rhm176.silk.StartupPhase")
+@Label("Startup Phase")
+@Category({"Silk", "Startup"})
+@Description("A named phase of launching the game with Silk")
+@StackTrace(false)
+final class StartupPhaseEvent extends Event {
+    @Label("Category")
+    String category;
+
+    @Label("Phase")
+    String phase;
+
+    static StartupPhaseEvent start() {
+        StartupPhaseEvent event = new StartupPhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    void finish(String category, String phase) {
+        end();
+        if (shouldCommit()) {
+            this.category = category;
+            this.phase = phase;
+            commit();
+        }
+    }
+}
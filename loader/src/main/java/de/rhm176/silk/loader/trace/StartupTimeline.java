@@ -0,0 +1,316 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.trace;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import de.rhm176.silk.loader.SilkProperties;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A timeline of the named phases of a launch.
+ * <p>
+ * Every phase is recorded as a {@code de.rhm176.silk.StartupPhase} JFR event, so a recording started with
+ * {@code -XX:StartFlightRecording} shows where startup time goes. If {@value SilkProperties#TRACE_FILE} is set, the
+ * same phases are also written to that file as a Chrome trace when the JVM exits, which can be opened with
+ * {@code chrome://tracing} or Perfetto. A relaunching JVM merges the trace of the JVM it relaunched into its own.
+ * <p>
+ * Phases are timed with {@link System#nanoTime()} and placed on the wall clock through a single anchor taken when
+ * the timeline is created, so phases of one JVM never move relative to each other.
+ * <p>
+ * Silk's classes can be loaded a second time by Knot once the game runs. Such copies forward their phases to the
+ * timeline of the system class loader, so there is only ever one timeline per JVM.
+ */
+public final class StartupTimeline {
+    static final boolean JFR_AVAILABLE = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+    private static final Phase NO_PHASE = () -> {};
+
+    private static final MethodHandle SHARED_PHASE = findSharedPhase();
+    private static final StartupTimeline SHARED = SHARED_PHASE == null ? createShared() : null;
+
+    private static volatile boolean includeExistingTrace;
+
+    private final boolean recording;
+    private final long originNanos = System.nanoTime();
+    private final long originEpochMicros = epochMicros(Instant.now());
+    private final ConcurrentLinkedQueue<Span> spans = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param recording Whether phases are kept for {@link #writeChromeTrace(Path, boolean)}. JFR events are recorded
+     * either way.
+     */
+    StartupTimeline(boolean recording) {
+        this.recording = recording;
+    }
+
+    private static StartupTimeline createShared() {
+        String traceFile = System.getProperty(SilkProperties.TRACE_FILE);
+        StartupTimeline timeline = new StartupTimeline(traceFile != null);
+        if (traceFile != null) {
+            Runtime.getRuntime()
+                    .addShutdownHook(new Thread(
+                            () -> {
+                                try {
+                                    timeline.writeChromeTrace(Paths.get(traceFile), includeExistingTrace);
+                                } catch (IOException | RuntimeException e) {
+                                    System.err.println(
+                                            "[Silk] Failed to write startup trace to " + traceFile + ": " + e);
+                                }
+                            },
+                            "Silk Trace Writer"));
+        }
+        return timeline;
+    }
+
+    private static MethodHandle findSharedPhase() {
+        ClassLoader systemClassLoader = ClassLoader.getSystemClassLoader();
+        if (StartupTimeline.class.getClassLoader() == systemClassLoader) {
+            return null;
+        }
+
+        try {
+            Class<?> shared = Class.forName(StartupTimeline.class.getName(), true, systemClassLoader);
+            if (shared == StartupTimeline.class) {
+                return null;
+            }
+
+            Class<?> sharedPhase = Class.forName(Phase.class.getName(), false, systemClassLoader);
+            return MethodHandles.publicLookup()
+                    .findStatic(shared, "phase", MethodType.methodType(sharedPhase, String.class, String.class))
+                    .asType(MethodType.methodType(AutoCloseable.class, String.class, String.class));
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // not on the class path of the system class loader, this copy keeps its own timeline
+            return null;
+        }
+    }
+
+    /**
+     * Starts a phase on the timeline of this JVM.
+     * <p>
+     * Use with try-with-resources, the phase ends when it is closed.
+     *
+     * @param category The category of the phase (e.g. {@code launch} or {@code patch}).
+     * @param name The name of the phase.
+     * @return The started phase.
+     */
+    public static Phase phase(String category, String name) {
+        if (SHARED_PHASE != null) {
+            AutoCloseable sharedPhase;
+            try {
+                sharedPhase = (AutoCloseable) SHARED_PHASE.invokeExact(category, name);
+            } catch (Throwable e) {
+                return NO_PHASE;
+            }
+
+            return () -> {
+                try {
+                    sharedPhase.close();
+                } catch (Exception e) {
+                    throw new IllegalStateException("Failed to end startup phase " + name, e);
+                }
+            };
+        }
+        return SHARED.begin(category, name);
+    }
+
+    /**
+     * Makes the trace written on exit include the trace already in {@value SilkProperties#TRACE_FILE}.
+     * <p>
+     * Called once a relaunched JVM, which writes to the same file, has exited.
+     */
+    public static void includeExistingTrace() {
+        includeExistingTrace = true;
+    }
+
+    /**
+     * Starts a phase on this timeline.
+     *
+     * @param category The category of the phase.
+     * @param name The name of the phase.
+     * @return The started phase.
+     */
+    Phase begin(String category, String name) {
+        if (!recording && !JFR_AVAILABLE) {
+            return NO_PHASE;
+        }
+
+        StartupPhaseEvent event = JFR_AVAILABLE ? StartupPhaseEvent.start() : null;
+        Thread thread = Thread.currentThread();
+        long start = System.nanoTime();
+
+        return new Phase() {
+            private boolean closed;
+
+            @Override
+            public void close() {
+                if (closed) return;
+                closed = true;
+
+                if (event != null) {
+                    event.finish(category, name);
+                }
+                if (recording) {
+                    long duration = System.nanoTime() - start;
+                    spans.add(new Span(
+                            category, name, start - originNanos, duration, thread.getId(), thread.getName()));
+                }
+            }
+        };
+    }
+
+    /**
+     * @return All ended phases in the order they ended, empty unless this timeline is recording.
+     */
+    List<Span> spans() {
+        return List.copyOf(spans);
+    }
+
+    /**
+     * Writes all ended phases as a Chrome trace in the JSON object format.
+     *
+     * @param file The file to write to, replaced atomically.
+     * @param includeExisting Whether to keep the events of a trace already in the file.
+     * @throws IOException if the file can't be written.
+     */
+    void writeChromeTrace(Path file, boolean includeExisting) throws IOException {
+        List<JsonElement> existingEvents = new ArrayList<>();
+        if (includeExisting && Files.isRegularFile(file)) {
+            existingEvents.addAll(readTraceEvents(file));
+        }
+
+        Path absoluteFile = file.toAbsolutePath();
+        Path directory = absoluteFile.getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+
+        Path tempFile = Files.createTempFile(directory, absoluteFile.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8);
+                    JsonWriter json = new JsonWriter(writer)) {
+                json.beginObject();
+                json.name("displayTimeUnit").value("ms");
+                json.name("traceEvents").beginArray();
+                for (JsonElement event : existingEvents) {
+                    json.jsonValue(event.toString());
+                }
+                writeEvents(json, ProcessHandle.current().pid());
+                json.endArray();
+                json.endObject();
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private void writeEvents(JsonWriter json, long pid) throws IOException {
+        json.beginObject();
+        json.name("name").value("process_name");
+        json.name("ph").value("M");
+        json.name("pid").value(pid);
+        json.name("args").beginObject().name("name").value("Silk (pid " + pid + ")").endObject();
+        json.endObject();
+
+        Map<Long, String> threadNames = new LinkedHashMap<>();
+        for (Span span : spans) {
+            threadNames.putIfAbsent(span.threadId(), span.threadName());
+
+            json.beginObject();
+            json.name("name").value(span.name());
+            json.name("cat").value(span.category());
+            json.name("ph").value("X");
+            // trace timestamps are in microseconds, keep the nanoseconds as exact decimals
+            json.name("ts").value(BigDecimal.valueOf(originEpochMicros * 1000 + span.startNanos(), 3));
+            json.name("dur").value(BigDecimal.valueOf(span.durationNanos(), 3));
+            json.name("pid").value(pid);
+            json.name("tid").value(span.threadId());
+            json.endObject();
+        }
+
+        for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+            json.beginObject();
+            json.name("name").value("thread_name");
+            json.name("ph").value("M");
+            json.name("pid").value(pid);
+            json.name("tid").value(thread.getKey());
+            json.name("args").beginObject().name("name").value(thread.getValue()).endObject();
+            json.endObject();
+        }
+    }
+
+    private static List<JsonElement> readTraceEvents(Path file) {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JsonElement trace = JsonParser.parseReader(reader);
+            JsonArray events = trace.isJsonArray()
+                    ? trace.getAsJsonArray()
+                    : trace.getAsJsonObject().getAsJsonArray("traceEvents");
+            List<JsonElement> result = new ArrayList<>();
+            if (events != null) {
+                events.forEach(result::add);
+            }
+            return result;
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            System.err.println("[Silk] Ignoring unreadable startup trace " + file + ": " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static long epochMicros(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000 + instant.getNano() / 1_000;
+    }
+
+    /**
+     * A running phase, ended by {@link #close()}.
+     */
+    public interface Phase extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * An ended phase.
+     *
+     * @param category The category of the phase.
+     * @param name The name of the phase.
+     * @param startNanos When the phase started relative to the creation of its timeline.
+     * @param durationNanos How long the phase took.
+     * @param threadId The id of the thread that started the phase.
+     * @param threadName The name of the thread that started the phase.
+     */
+    record Span(
+            String category, String name, long startNanos, long durationNanos, long threadId, String threadName) {}
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.zip;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.ZipException;
+
+/**
+ * The raw central directory of a zip archive.
+ * <p>
+ * Only the end of central directory record and the central directory itself are read, which makes this
+ * considerably cheaper than opening a {@link java.util.zip.ZipFile} or a zip file system when only the
+ * list of entries is needed. The bytes are memory-mapped where the file system supports it.
+ * ZIP64 archives are not supported.
+ */
+public final class CentralDirectory {
+    private static final int CENTRAL_FILE_HEADER_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_FILE_HEADER_LENGTH = 46;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_LENGTH = 22;
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+
+    private final ByteBuffer buffer;
+    private final int entryCount;
+
+    // offsets of all central file headers, built on first use
+    private volatile int[] entryOffsets;
+    // open addressing table of central file header offsets + 1 keyed by name hash, built on first lookup
+    private volatile int[] nameTable;
+
+    private CentralDirectory(ByteBuffer buffer, int entryCount) {
+        this.buffer = buffer;
+        this.entryCount = entryCount;
+    }
+
+    /**
+     * Reads the central directory of the given zip archive.
+     *
+     * @param zip The path to the archive.
+     * @return The central directory of the archive.
+     * @throws ZipException if the archive is malformed or uses ZIP64.
+     * @throws IOException if the archive can't be read.
+     */
+    public static CentralDirectory read(Path zip) throws IOException {
+        try (FileChannel channel = FileChannel.open(zip, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int tailLength = (int) Math.min(size, END_OF_CENTRAL_DIRECTORY_LENGTH + MAX_COMMENT_LENGTH);
+            ByteBuffer tail = map(channel, size - tailLength, tailLength);
+
+            int end = findEndOfCentralDirectory(tail);
+            if (end < 0) {
+                throw new ZipException("End of central directory not found in " + zip);
+            }
+
+            int entryCount = tail.getShort(end + 10) & 0xFFFF;
+            long directorySize = tail.getInt(end + 12) & 0xFFFFFFFFL;
+            long directoryOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+            if (entryCount == 0xFFFF || directorySize == 0xFFFFFFFFL || directoryOffset == 0xFFFFFFFFL) {
+                throw new ZipException("ZIP64 archives are not supported: " + zip);
+            }
+            if (directoryOffset + directorySize > size) {
+                throw new ZipException("Malformed central directory in " + zip);
+            }
+
+            return new CentralDirectory(map(channel, directoryOffset, (int) directorySize), entryCount);
+        }
+    }
+
+    /**
+     * @return The number of entries the archive declares.
+     */
+    public int entryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return A read-only little-endian view of the central directory bytes.
+     */
+    public ByteBuffer buffer() {
+        return buffer.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Checks whether the archive contains an entry with the given name.
+     * <p>
+     * The first lookup hashes all entry names straight from the central directory bytes, later lookups
+     * are a single probe of that table.
+     *
+     * @param name The full name of the entry (e.g. {@code main/MainApp.class}).
+     * @return {@code true} if the archive contains the entry.
+     * @throws ZipException if the central directory is malformed.
+     */
+    public boolean contains(String name) throws ZipException {
+        return find(name) >= 0;
+    }
+
+    /**
+     * Finds the central file header of the entry with the given name.
+     *
+     * @param name The full name of the entry.
+     * @return The offset of the entry's header in {@link #buffer()}, or {@code -1} if there is no such entry.
+     * @throws ZipException if the central directory is malformed.
+     */
+    int find(String name) throws ZipException {
+        int[] table = nameTable();
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int mask = table.length - 1;
+
+        for (int slot = hash(nameBytes) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int offset = table[slot] - 1;
+            if (nameEquals(offset, nameBytes)) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the offsets of all central file headers in central directory order.
+     * <p>
+     * The offsets identify entries for {@link #nameLength(int)} and {@link #getName(int, byte[], int)}.
+     *
+     * @return A new array holding the offset of every entry.
+     * @throws ZipException if the central directory is malformed.
+     */
+    public int[] entryOffsets() throws ZipException {
+        return entries().clone();
+    }
+
+    /**
+     * @param entry The offset of the entry's central file header.
+     * @return The length of the entry's name in bytes.
+     */
+    public int nameLength(int entry) {
+        return buffer.getShort(entry + 28) & 0xFFFF;
+    }
+
+    /**
+     * Copies the UTF-8 encoded name of an entry into the given array.
+     *
+     * @param entry The offset of the entry's central file header.
+     * @param destination The array to copy into.
+     * @param offset The position in {@code destination} to start writing at.
+     */
+    public void getName(int entry, byte[] destination, int offset) {
+        buffer.get(entry + CENTRAL_FILE_HEADER_LENGTH, destination, offset, nameLength(entry));
+    }
+
+    /**
+     * @param entry The offset of the entry's central file header.
+     * @return The name of the entry.
+     */
+    public String name(int entry) {
+        byte[] name = new byte[nameLength(entry)];
+        getName(entry, name, 0);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    int flags(int entry) {
+        return buffer.getShort(entry + 8) & 0xFFFF;
+    }
+
+    int method(int entry) {
+        return buffer.getShort(entry + 10) & 0xFFFF;
+    }
+
+    int crc(int entry) {
+        return buffer.getInt(entry + 16);
+    }
+
+    long compressedSize(int entry) {
+        return buffer.getInt(entry + 20) & 0xFFFFFFFFL;
+    }
+
+    long uncompressedSize(int entry) {
+        return buffer.getInt(entry + 24) & 0xFFFFFFFFL;
+    }
+
+    long localHeaderOffset(int entry) {
+        return buffer.getInt(entry + 42) & 0xFFFFFFFFL;
+    }
+
+    private int[] entries() throws ZipException {
+        if (entryOffsets == null) {
+            int[] offsets = new int[entryCount];
+
+            int offset = 0;
+            for (int i = 0; i < entryCount; i++) {
+                if (offset + CENTRAL_FILE_HEADER_LENGTH > buffer.limit()
+                        || buffer.getInt(offset) != CENTRAL_FILE_HEADER_SIGNATURE
+                        || offset + CENTRAL_FILE_HEADER_LENGTH + nameLength(offset) > buffer.limit()) {
+                    throw new ZipException("Malformed central file header at offset " + offset);
+                }
+
+                offsets[i] = offset;
+                offset += CENTRAL_FILE_HEADER_LENGTH + nameLength(offset) + extraLength(offset) + commentLength(offset);
+            }
+
+            entryOffsets = offsets;
+        }
+        return entryOffsets;
+    }
+
+    private int[] nameTable() throws ZipException {
+        if (nameTable == null) {
+            int[] table = new int[Integer.highestOneBit(Math.max(entryCount, 1) * 2) * 2];
+            int mask = table.length - 1;
+
+            for (int offset : entries()) {
+                int slot = hash(offset) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = offset + 1;
+            }
+
+            nameTable = table;
+        }
+        return nameTable;
+    }
+
+    private int extraLength(int offset) {
+        return buffer.getShort(offset + 30) & 0xFFFF;
+    }
+
+    private int commentLength(int offset) {
+        return buffer.getShort(offset + 32) & 0xFFFF;
+    }
+
+    private boolean nameEquals(int offset, byte[] name) {
+        if (nameLength(offset) != name.length) {
+            return false;
+        }
+
+        int nameStart = offset + CENTRAL_FILE_HEADER_LENGTH;
+        for (int i = 0; i < name.length; i++) {
+            if (buffer.get(nameStart + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int hash(int offset) {
+        int hash = 0;
+        int nameStart = offset + CENTRAL_FILE_HEADER_LENGTH;
+        for (int i = nameStart, end = nameStart + nameLength(offset); i < end; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        return mix(hash);
+    }
+
+    private static int hash(byte[] name) {
+        int hash = 0;
+        for (byte b : name) {
+            hash = 31 * hash + b;
+        }
+        return mix(hash);
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Computes a content fingerprint of the archive.
+     * <p>
+     * The central directory holds the name, size and CRC-32 of every entry, so hashing it identifies the
+     * archive's contents without reading the entries themselves.
+     *
+     * @return A hex encoded fingerprint of the archive.
+     */
+    public String fingerprint() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        digest.update(buffer());
+
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer tail) {
+        for (int i = tail.limit() - END_OF_CENTRAL_DIRECTORY_LENGTH; i >= 0; i--) {
+            if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                int commentLength = tail.getShort(i + 20) & 0xFFFF;
+                if (i + END_OF_CENTRAL_DIRECTORY_LENGTH + commentLength == tail.limit()) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    static ByteBuffer map(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        } catch (UnsupportedOperationException e) {
+            // file systems that aren't backed by real files can't be mapped, read the bytes instead
+            buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException("Unexpected end of file at " + (position + buffer.position()));
+                }
+            }
+            buffer.flip();
+        }
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.zip;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * The game jar, scanned once and shared by everything that needs to look into it.
+ * <p>
+ * Game discovery, the game class index, the version lookup and the natives cache all used to open the jar on
+ * their own. {@link #open(Path)} instead reads the central directory once per launch and hands out the same
+ * instance for as long as the jar is unchanged on disk. The jar is memory-mapped on the first read, entries are
+ * then read straight from their local headers in the mapping and deflated ones are inflated with pooled inflaters.
+ */
+public final class GameJar {
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_FILE_HEADER_LENGTH = 30;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int FLAG_ENCRYPTED = 0x1;
+
+    private static final byte[] PADDING = new byte[1];
+    // inflaters are expensive to create and hold native memory, keep a few around for the next reads
+    private static final BlockingQueue<Inflater> INFLATERS =
+            new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+
+    private static volatile GameJar current;
+
+    private final Path path;
+    private final BasicFileAttributes attributes;
+    private final CentralDirectory centralDirectory;
+
+    private volatile String fingerprint;
+    private volatile ByteBuffer contents;
+
+    private GameJar(Path path, BasicFileAttributes attributes, CentralDirectory centralDirectory) {
+        this.path = path;
+        this.attributes = attributes;
+        this.centralDirectory = centralDirectory;
+    }
+
+    /**
+     * Opens the given jar, reusing the last scan if it was of the same, unchanged file.
+     *
+     * @param jar The path to the jar.
+     * @return The scanned jar.
+     * @throws ZipException if the jar is malformed or uses ZIP64.
+     * @throws IOException if the jar can't be read.
+     */
+    public static GameJar open(Path jar) throws IOException {
+        return open(jar, null);
+    }
+
+    /**
+     * Opens the given jar with a central directory the caller already read, e.g. while probing for the game.
+     *
+     * @param jar The path to the jar.
+     * @param centralDirectory The central directory of the jar, or {@code null} to read it.
+     * @return The scanned jar.
+     * @throws IOException if the jar can't be read.
+     */
+    public static GameJar open(Path jar, CentralDirectory centralDirectory) throws IOException {
+        Path absoluteJar = jar.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(absoluteJar, BasicFileAttributes.class);
+
+        GameJar cached = current;
+        if (cached != null && cached.isSameFile(absoluteJar, attributes)) {
+            return cached;
+        }
+
+        GameJar gameJar = new GameJar(
+                absoluteJar,
+                attributes,
+                centralDirectory != null ? centralDirectory : CentralDirectory.read(absoluteJar));
+        current = gameJar;
+        return gameJar;
+    }
+
+    private boolean isSameFile(Path otherPath, BasicFileAttributes otherAttributes) {
+        return path.getFileSystem() == otherPath.getFileSystem()
+                && path.equals(otherPath)
+                && Objects.equals(attributes.fileKey(), otherAttributes.fileKey())
+                && attributes.size() == otherAttributes.size()
+                && attributes.lastModifiedTime().equals(otherAttributes.lastModifiedTime());
+    }
+
+    /**
+     * @return The absolute, normalized path to the jar.
+     */
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * @return The central directory of the jar.
+     */
+    public CentralDirectory centralDirectory() {
+        return centralDirectory;
+    }
+
+    /**
+     * @return The {@link CentralDirectory#fingerprint() fingerprint} of the jar, computed once.
+     */
+    public String fingerprint() {
+        if (fingerprint == null) {
+            fingerprint = centralDirectory.fingerprint();
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Returns the CRC-32 of an entry as recorded in the central directory, without reading the entry.
+     *
+     * @param name The full name of the entry (e.g. {@code main/MainApp.class}).
+     * @return The unsigned CRC-32 of the entry, or {@code -1} if the jar has no entry with the given name.
+     * @throws ZipException if the central directory is malformed.
+     */
+    public long crc(String name) throws ZipException {
+        int entry = centralDirectory.find(name);
+        return entry < 0 ? -1 : centralDirectory.crc(entry) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Reads the uncompressed contents of an entry.
+     *
+     * @param name The full name of the entry (e.g. {@code main/MainApp.class}).
+     * @return The contents of the entry.
+     * @throws NoSuchFileException if the jar has no entry with the given name.
+     * @throws ZipException if the entry is malformed, encrypted or uses an unsupported compression method.
+     * @throws IOException if the jar can't be read.
+     */
+    public byte[] read(String name) throws IOException {
+        int entry = centralDirectory.find(name);
+        if (entry < 0) {
+            throw new NoSuchFileException(path + "!/" + name);
+        }
+        return read(entry);
+    }
+
+    /**
+     * Reads the uncompressed contents of an entry.
+     *
+     * @param entry The offset of the entry's central file header, see {@link CentralDirectory#entryOffsets()}.
+     * @return The contents of the entry.
+     * @throws ZipException if the entry is malformed, encrypted or uses an unsupported compression method.
+     * @throws IOException if the jar can't be read.
+     */
+    public byte[] read(int entry) throws IOException {
+        ByteBuffer data = entryData(entry);
+        int uncompressedSize = (int) centralDirectory.uncompressedSize(entry);
+
+        byte[] bytes;
+        if (centralDirectory.method(entry) == METHOD_DEFLATED) {
+            bytes = inflate(data, uncompressedSize, entry);
+        } else {
+            if (data.remaining() != uncompressedSize) {
+                throw new ZipException("Corrupt entry: " + centralDirectory.name(entry));
+            }
+            bytes = new byte[uncompressedSize];
+            data.get(bytes);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        if ((int) crc.getValue() != centralDirectory.crc(entry)) {
+            throw new ZipException("Corrupt entry: " + centralDirectory.name(entry));
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads the uncompressed contents of an entry without copying them where possible.
+     * <p>
+     * Stored entries are returned as a view of the mapped jar, deflated ones are inflated into a new buffer.
+     *
+     * @param name The full name of the entry (e.g. {@code main/MainApp.class}).
+     * @return A read-only buffer holding the contents of the entry.
+     * @throws NoSuchFileException if the jar has no entry with the given name.
+     * @throws ZipException if the entry is malformed, encrypted or uses an unsupported compression method.
+     * @throws IOException if the jar can't be read.
+     */
+    public ByteBuffer readBuffer(String name) throws IOException {
+        int entry = centralDirectory.find(name);
+        if (entry < 0) {
+            throw new NoSuchFileException(path + "!/" + name);
+        }
+        return readBuffer(entry);
+    }
+
+    /**
+     * Reads the uncompressed contents of an entry without copying them where possible.
+     *
+     * @param entry The offset of the entry's central file header, see {@link CentralDirectory#entryOffsets()}.
+     * @return A read-only buffer holding the contents of the entry.
+     * @throws ZipException if the entry is malformed, encrypted or uses an unsupported compression method.
+     * @throws IOException if the jar can't be read.
+     */
+    public ByteBuffer readBuffer(int entry) throws IOException {
+        if (centralDirectory.method(entry) == METHOD_DEFLATED) {
+            return ByteBuffer.wrap(read(entry)).asReadOnlyBuffer();
+        }
+
+        ByteBuffer data = entryData(entry);
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        if (data.remaining() != centralDirectory.uncompressedSize(entry)
+                || (int) crc.getValue() != centralDirectory.crc(entry)) {
+            throw new ZipException("Corrupt entry: " + centralDirectory.name(entry));
+        }
+        return data.asReadOnlyBuffer();
+    }
+
+    // the compressed bytes of an entry as a view of the mapped jar
+    private ByteBuffer entryData(int entry) throws IOException {
+        if ((centralDirectory.flags(entry) & FLAG_ENCRYPTED) != 0) {
+            throw new ZipException("Encrypted entries are not supported: " + centralDirectory.name(entry));
+        }
+
+        int method = centralDirectory.method(entry);
+        long compressedSize = centralDirectory.compressedSize(entry);
+        long uncompressedSize = centralDirectory.uncompressedSize(entry);
+        if (method != METHOD_STORED && method != METHOD_DEFLATED) {
+            throw new ZipException("Unsupported compression method " + method + ": " + centralDirectory.name(entry));
+        }
+        if (compressedSize >= Integer.MAX_VALUE || uncompressedSize >= Integer.MAX_VALUE) {
+            throw new ZipException("Entry too large: " + centralDirectory.name(entry));
+        }
+
+        ByteBuffer contents = contents();
+        long localHeaderOffset = centralDirectory.localHeaderOffset(entry);
+        if (localHeaderOffset + LOCAL_FILE_HEADER_LENGTH > contents.limit()
+                || contents.getInt((int) localHeaderOffset) != LOCAL_FILE_HEADER_SIGNATURE) {
+            throw new ZipException("Malformed local file header: " + centralDirectory.name(entry));
+        }
+
+        long dataOffset = localHeaderOffset
+                + LOCAL_FILE_HEADER_LENGTH
+                + (contents.getShort((int) localHeaderOffset + 26) & 0xFFFF)
+                + (contents.getShort((int) localHeaderOffset + 28) & 0xFFFF);
+        if (dataOffset + compressedSize > contents.limit()) {
+            throw new EOFException("Unexpected end of file at " + contents.limit());
+        }
+        return contents.slice((int) dataOffset, (int) compressedSize);
+    }
+
+    // the whole jar, mapped on first use and shared by all reads
+    private ByteBuffer contents() throws IOException {
+        ByteBuffer mapped = contents;
+        if (mapped == null) {
+            synchronized (this) {
+                mapped = contents;
+                if (mapped == null) {
+                    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                        long size = channel.size();
+                        if (size > Integer.MAX_VALUE) {
+                            throw new ZipException("Jar too large: " + path);
+                        }
+                        mapped = CentralDirectory.map(channel, 0, (int) size);
+                    }
+                    contents = mapped;
+                }
+            }
+        }
+        return mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private byte[] inflate(ByteBuffer compressed, int uncompressedSize, int entry) throws ZipException {
+        byte[] data = new byte[uncompressedSize];
+        Inflater inflater = INFLATERS.poll();
+        if (inflater == null) {
+            inflater = new Inflater(true);
+        }
+        try {
+            inflater.setInput(compressed);
+
+            int length = 0;
+            boolean padded = false;
+            while (length < data.length && !inflater.finished()) {
+                int inflated = inflater.inflate(data, length, data.length - length);
+                if (inflated == 0 && inflater.needsInput() && !padded) {
+                    // the inflater may need an extra zero byte past the compressed data to finish the last block
+                    inflater.setInput(PADDING);
+                    padded = true;
+                } else if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new ZipException("Truncated entry: " + centralDirectory.name(entry));
+                }
+                length += inflated;
+            }
+            if (length != data.length) {
+                throw new ZipException("Entry is smaller than declared: " + centralDirectory.name(entry));
+            }
+            return data;
+        } catch (DataFormatException e) {
+            ZipException exception = new ZipException("Corrupt entry: " + centralDirectory.name(entry));
+            exception.initCause(e);
+            throw exception;
+        } finally {
+            inflater.reset();
+            if (!INFLATERS.offer(inflater)) {
+                inflater.end();
+            }
+        }
+    }
+}
@@ -20,6 +20,8 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
+import de.rhm176.silk.loader.index.GameClassIndex;
+import de.rhm176.silk.loader.zip.CentralDirectory;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.reflect.Field;
@@ -27,9 +29,14 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
+import net.fabricmc.accesswidener.AccessWidenerReader;
+import net.fabricmc.loader.impl.FabricLoaderImpl;
 import net.fabricmc.loader.impl.game.GameProvider;
+import net.fabricmc.loader.impl.game.GameProvider.BuiltinTransform;
 import net.fabricmc.loader.impl.game.patch.GameTransformer;
 import net.fabricmc.loader.impl.launch.FabricLauncher;
 import net.fabricmc.loader.impl.util.SystemProperties;
@@ -282,6 +289,33 @@ class EquilinoxGameProviderTest {
         assertEquals("Test Equilinox v0", gameProvider.getNormalizedGameVersion());
     }
 
+    @Test
+    void locateGame_usesLaunchHandoff() throws Exception {
+        Path handoffFile = tempDir.resolve("handoff.bin");
+        new LaunchHandoff(
+                        dummyGameJar.toString(),
+                        dummyGameJar.toRealPath(),
+                        "fingerprint",
+                        tempDir,
+                        new EquilinoxVersion("1.7.0b", "1.7.0-beta", 52),
+                        "",
+                        List.of(),
+                        GameClassIndex.build(CentralDirectory.read(dummyGameJar)))
+                .write(handoffFile);
+
+        SystemStubs.restoreSystemProperties(() -> {
+            System.setProperty(SystemProperties.GAME_JAR_PATH, dummyGameJar.toString());
+            System.setProperty(SilkProperties.HANDOFF, handoffFile.toString());
+            gameProvider = new EquilinoxGameProvider();
+            assertTrue(gameProvider.locateGame(mockLauncher, defaultTestArgs));
+        });
+
+        assertEquals("1.7.0b", gameProvider.getRawGameVersion());
+        assertEquals("1.7.0-beta", gameProvider.getNormalizedGameVersion());
+        assertEquals(Set.of(BuiltinTransform.CLASS_TWEAKS), gameProvider.getBuiltinTransforms("main.MainApp"));
+        mockStaticVersionLookup.verify(() -> EquilinoxVersionLookup.getVersion(any(), any()), never());
+    }
+
     @Test
     void locateGame_throwsNullPointerException_whenGameJarPathPropertyNotSet() throws Exception {
         SystemStubs.restoreSystemProperties(() -> {
@@ -391,6 +425,42 @@ class EquilinoxGameProviderTest {
         assertInstanceOf(GameTransformer.class, gameProvider.getEntrypointTransformer());
     }
 
+    @Test
+    void getBuiltinTransforms_onlyForGameClasses() throws Exception {
+        SystemStubs.restoreSystemProperties(() -> {
+            System.setProperty(SystemProperties.GAME_JAR_PATH, dummyGameJar.toString());
+            System.setProperty(SilkProperties.CACHE_DIR, tempDir.resolve("cache").toString());
+            gameProvider = new EquilinoxGameProvider();
+        });
+
+        assertEquals(Set.of(BuiltinTransform.CLASS_TWEAKS), gameProvider.getBuiltinTransforms("main.MainApp"));
+        assertEquals(Set.of(), gameProvider.getBuiltinTransforms("main.Unknown"));
+        assertEquals(Set.of(), gameProvider.getBuiltinTransforms("de.rhm176.silk.loader.Main"));
+    }
+
+    @Test
+    void getBuiltinTransforms_onlyForPatchedOrWidenedGameClasses() throws Exception {
+        try (OutputStream fos = Files.newOutputStream(dummyGameJar);
+                ZipOutputStream zos = new ZipOutputStream(fos)) {
+            for (String name : List.of("main/MainApp.class", "main/Untouched.class", "main/Widened.class")) {
+                zos.putNextEntry(new ZipEntry(name));
+                zos.closeEntry();
+            }
+        }
+        SystemStubs.restoreSystemProperties(() -> {
+            System.setProperty(SystemProperties.GAME_JAR_PATH, dummyGameJar.toString());
+            System.setProperty(SilkProperties.CACHE_DIR, tempDir.resolve("cache").toString());
+            gameProvider = new EquilinoxGameProvider();
+        });
+        FabricLoaderImpl.INSTANCE
+                .getAccessWidener()
+                .visitClass("main/Widened", AccessWidenerReader.AccessType.ACCESSIBLE, false);
+
+        assertEquals(Set.of(BuiltinTransform.CLASS_TWEAKS), gameProvider.getBuiltinTransforms("main.MainApp"));
+        assertEquals(Set.of(BuiltinTransform.CLASS_TWEAKS), gameProvider.getBuiltinTransforms("main.Widened"));
+        assertEquals(Set.of(), gameProvider.getBuiltinTransforms("main.Untouched"));
+    }
+
     @Test
     void unlockClassPath_addsToLauncherClasspath() throws Exception {
         prepareGameProviderForLaunch();
@@ -22,6 +22,7 @@ import static org.mockito.ArgumentMatchers.anyString;
 import java.io.EOFException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
@@ -303,7 +304,9 @@ class EquilinoxVersionLookupTest {
         }
         String entryClass = "main.Missing";
 
-        assertThrows(NullPointerException.class, () -> EquilinoxVersionLookup.getVersion(testJar, entryClass));
+        ExceptionUtil.WrappedException e = assertThrows(
+                ExceptionUtil.WrappedException.class, () -> EquilinoxVersionLookup.getVersion(testJar, entryClass));
+        assertInstanceOf(NoSuchFileException.class, e.getCause());
     }
 
     @Test
@@ -317,7 +320,7 @@ class EquilinoxVersionLookupTest {
         assertInstanceOf(
                 IOException.class,
                 e.getCause(),
-                "Cause should be IOException from SimpleClassPath failing to open non-existent JAR.");
+                "Cause should be IOException from failing to open non-existent JAR.");
     }
 
     @Test
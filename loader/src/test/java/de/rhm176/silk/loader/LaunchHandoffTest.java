@@ -0,0 +1,117 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.rhm176.silk.loader.index.GameClassIndex;
+import de.rhm176.silk.loader.zip.CentralDirectory;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import uk.org.webcompere.systemstubs.jupiter.SystemStubsExtension;
+import uk.org.webcompere.systemstubs.properties.SystemProperties;
+
+@ExtendWith(SystemStubsExtension.class)
+class LaunchHandoffTest {
+    @TempDir
+    Path tempDir;
+
+    private LaunchHandoff createHandoff(Integer classVersion) throws IOException {
+        Path gameJar = tempDir.resolve("Equilinox.jar");
+        try (OutputStream os = Files.newOutputStream(gameJar);
+                ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.putNextEntry(new ZipEntry("main/MainApp.class"));
+            zos.closeEntry();
+        }
+
+        return new LaunchHandoff(
+                gameJar.toString(),
+                gameJar.toRealPath(),
+                "fingerprint",
+                tempDir.resolve("natives"),
+                new EquilinoxVersion("1.7.0b", "1.7.0-beta", classVersion),
+                "a.jar:b.jar",
+                List.of(tempDir.resolve("a.jar"), tempDir.resolve("b.jar")),
+                GameClassIndex.build(CentralDirectory.read(gameJar)));
+    }
+
+    @Test
+    void read_restoresWrittenHandoff() throws IOException {
+        LaunchHandoff handoff = createHandoff(52);
+        Path file = tempDir.resolve("handoff.bin");
+        handoff.write(file);
+
+        LaunchHandoff read = LaunchHandoff.read(file);
+
+        assertEquals(handoff.gameJarPath(), read.gameJarPath());
+        assertEquals(handoff.realGameJar(), read.realGameJar());
+        assertEquals(handoff.fingerprint(), read.fingerprint());
+        assertEquals(handoff.nativesDirectory(), read.nativesDirectory());
+        assertEquals(handoff.version(), read.version());
+        assertEquals(handoff.classPath(), read.classPath());
+        assertEquals(handoff.realClassPath(), read.realClassPath());
+        assertEquals(1, read.gameClasses().size());
+        assertTrue(read.gameClasses().contains("main.MainApp"));
+    }
+
+    @Test
+    void read_restoresUnknownClassVersion() throws IOException {
+        Path file = tempDir.resolve("handoff.bin");
+        createHandoff(null).write(file);
+
+        assertNull(LaunchHandoff.read(file).version().classVersion());
+    }
+
+    @Test
+    void forGameJar_onlyMatchesTheHandedOffJar() throws Exception {
+        LaunchHandoff handoff = createHandoff(52);
+        Path file = tempDir.resolve("handoff.bin");
+        handoff.write(file);
+
+        Properties props = new Properties();
+        props.put(SilkProperties.HANDOFF, file.toString());
+        new SystemProperties(props).execute(() -> {
+            assertTrue(LaunchHandoff.forGameJar(handoff.gameJarPath()).isPresent());
+            assertEquals(Optional.empty(), LaunchHandoff.forGameJar(tempDir.resolve("other.jar").toString()));
+            assertEquals(Optional.empty(), LaunchHandoff.forGameJar(null));
+        });
+    }
+
+    @Test
+    void current_ignoresUnreadableHandoff() throws Exception {
+        Path file = tempDir.resolve("garbage.bin");
+        Files.writeString(file, "garbage");
+
+        Properties props = new Properties();
+        props.put(SilkProperties.HANDOFF, file.toString());
+        new SystemProperties(props).execute(() -> assertEquals(Optional.empty(), LaunchHandoff.current()));
+    }
+
+    @Test
+    void current_emptyWithoutProperty() throws Exception {
+        new SystemProperties().execute(() -> assertEquals(Optional.empty(), LaunchHandoff.current()));
+    }
+}
@@ -23,6 +23,7 @@ import static org.mockito.Mockito.*;
 
 import com.google.common.jimfs.Configuration;
 import com.google.common.jimfs.Jimfs;
+import de.rhm176.silk.loader.cache.GameDiscoveryCache;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.management.ManagementFactory;
@@ -40,6 +41,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.*;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -53,6 +55,10 @@ class MainTest {
     private FileSystem jimfs;
     private Path cwd;
 
+    // startup steps run on their own threads, which don't see the Paths mock, so caches they write live on disk
+    @TempDir
+    Path cacheDir;
+
     @Mock
     private RuntimeMXBean mockRuntimeMXBean;
 
@@ -265,6 +271,26 @@ class MainTest {
         });
     }
 
+    @Test
+    void findGameByClasses_skipsInvalidAndNonMatchingJars() throws Exception {
+        createDummyJar("a-library.jar", List.of("some/Library.class"));
+        Files.writeString(cwd.resolve("b-broken.jar"), "not a zip");
+        // a jar whose end of central directory declares more entries than its central directory holds
+        Path truncated = createDummyJar("b-truncated.jar", List.of("main/MainApp.class", "main/FirstScreenUi.class"));
+        byte[] truncatedBytes = Files.readAllBytes(truncated);
+        truncatedBytes[truncatedBytes.length - 12] += 2;
+        Files.write(truncated, truncatedBytes);
+        createDummyJar("c-game.jar", List.of("main/MainApp.class", "main/FirstScreenUi.class"));
+
+        new SystemProperties().execute(() -> {
+            Optional<Path> gameJar = Main.findGameByClasses();
+            assertTrue(gameJar.isPresent(), "Game JAR should be found next to other JARs");
+            assertEquals(
+                    cwd.resolve("c-game.jar").toAbsolutePath().toString(),
+                    gameJar.get().toAbsolutePath().toString());
+        });
+    }
+
     @Test
     void isNativeFile_windows() throws Exception {
         Properties props = new Properties();
@@ -300,19 +326,14 @@ class MainTest {
         Path gameJar = createDummyJar(
                 "gameWithNatives.jar",
                 List.of("native.dll", "native.so", "native.jnilib", "data.txt", "some/path/native2.dll"));
-
-        staticFiles = mockStatic(Files.class, Mockito.CALLS_REAL_METHODS);
-        Path nativesTempDir = cwd.resolve("native_temp_dir");
-        Files.createDirectories(nativesTempDir);
-        staticFiles.when(() -> Files.createTempDirectory(eq("natives"))).thenReturn(nativesTempDir);
+        Path cacheDir = cwd.resolve("cache");
 
         Properties props = new Properties();
         props.put("os.name", "Windows 10");
+        props.put(SilkProperties.CACHE_DIR, cacheDir.toString());
         new SystemProperties(props).execute(() -> {
             Path extractedDir = Main.extractNatives(gameJar);
-            assertEquals(
-                    nativesTempDir.toAbsolutePath().toString(),
-                    extractedDir.toAbsolutePath().toString());
+            assertEquals(cacheDir.resolve("natives"), extractedDir.getParent());
             assertTrue(Files.exists(extractedDir.resolve("native.dll")));
             assertFalse(Files.exists(extractedDir.resolve("native.so")));
             assertFalse(Files.exists(extractedDir.resolve("native.jnilib")));
@@ -351,6 +372,100 @@ class MainTest {
         staticManagementFactory.verify(ManagementFactory::getRuntimeMXBean, Mockito.never());
     }
 
+    @Test
+    void main_nativesNotLoaded_launchesInProcess() throws Exception {
+        Path dummyGameJar = createDummyJar(
+                "mygame.jar", List.of("main/MainApp.class", "main/FirstScreenUi.class", "native.so"));
+
+        Properties props = new Properties();
+        props.put("os.name", "Linux");
+        props.put(SilkProperties.CACHE_DIR, cacheDir.toString());
+        props.put(
+                net.fabricmc.loader.impl.util.SystemProperties.GAME_JAR_PATH,
+                dummyGameJar.toAbsolutePath().toString());
+
+        new SystemProperties(props).execute(() -> {
+            Main.main(new String[] {"--arg1", "val1"});
+
+            Path nativesDir = Paths.get(System.getProperty("org.lwjgl.librarypath"));
+            assertEquals(cacheDir.resolve("natives"), nativesDir.getParent());
+            assertEquals("true", System.getProperty(SilkProperties.LOADED_NATIVES));
+            assertTrue(Files.exists(nativesDir.resolve("native.so")));
+        });
+
+        staticKnot.verify(() -> Knot.launch(eq(new String[] {"--arg1", "val1"}), eq(EnvType.CLIENT)));
+        staticManagementFactory.verify(ManagementFactory::getRuntimeMXBean, Mockito.never());
+    }
+
+    @Test
+    void main_usesDiscoveryCacheInsteadOfScanning() throws Exception {
+        // not named like the game and not a .jar, so only the discovery cache can find it
+        Path cachedGameJar = createDummyJar("game.bin", List.of("main/MainApp.class", "main/FirstScreenUi.class"));
+
+        Properties props = new Properties();
+        props.put("os.name", "Linux");
+        props.put(SilkProperties.CACHE_DIR, cacheDir.toString());
+
+        new SystemProperties(props).execute(() -> {
+            GameDiscoveryCache.resolve(cachedGameJar, null, true);
+
+            Main.main(new String[0]);
+
+            assertEquals(
+                    cachedGameJar.toAbsolutePath().toString(),
+                    System.getProperty(net.fabricmc.loader.impl.util.SystemProperties.GAME_JAR_PATH));
+        });
+
+        staticKnot.verify(() -> Knot.launch(eq(new String[0]), eq(EnvType.CLIENT)));
+    }
+
+    @Test
+    void main_doesNotCacheGameJarGivenThroughProperty() throws Exception {
+        Path gameJar = createDummyJar("game.bin", List.of("main/MainApp.class", "main/FirstScreenUi.class"));
+
+        Properties props = new Properties();
+        props.put("os.name", "Linux");
+        props.put(SilkProperties.CACHE_DIR, cacheDir.toString());
+        props.put(net.fabricmc.loader.impl.util.SystemProperties.GAME_JAR_PATH, gameJar.toString());
+
+        new SystemProperties(props).execute(() -> {
+            Main.main(new String[0]);
+
+            assertEquals(Optional.empty(), GameDiscoveryCache.lookup());
+        });
+
+        staticKnot.verify(() -> Knot.launch(eq(new String[0]), eq(EnvType.CLIENT)));
+    }
+
+    @Test
+    void canLaunchInProcess_noNativesNextToGameJar() throws Exception {
+        Path gameJar = createDummyJar("game.jar", null);
+
+        Properties props = new Properties();
+        props.put("os.name", "Linux");
+        new SystemProperties(props).execute(() -> assertTrue(Main.canLaunchInProcess(gameJar)));
+    }
+
+    @Test
+    void canLaunchInProcess_nativesNextToGameJar_requiresRelaunch() throws Exception {
+        Path gameJar = createDummyJar("game.jar", null);
+        Files.writeString(cwd.resolve("libsteam_api.so"), "");
+
+        Properties props = new Properties();
+        props.put("os.name", "Linux");
+        new SystemProperties(props).execute(() -> assertFalse(Main.canLaunchInProcess(gameJar)));
+    }
+
+    @Test
+    void canLaunchInProcess_forceRelaunch() throws Exception {
+        Path gameJar = createDummyJar("game.jar", null);
+
+        Properties props = new Properties();
+        props.put("os.name", "Linux");
+        props.put(SilkProperties.FORCE_RELAUNCH, "true");
+        new SystemProperties(props).execute(() -> assertFalse(Main.canLaunchInProcess(gameJar)));
+    }
+
     /* TODO:
     @Test
     void main_discoverySucceeds_relaunchLogic() throws Exception {
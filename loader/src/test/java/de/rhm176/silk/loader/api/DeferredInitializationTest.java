@@ -0,0 +1,71 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class DeferredInitializationTest {
+    @AfterEach
+    void tearDown() {
+        DeferredInitialization.reset();
+    }
+
+    @Test
+    void completion_completesPerModAndOnceAllFinished() {
+        CompletableFuture<Void> all = DeferredInitialization.completion();
+        CompletableFuture<Void> mod = DeferredInitialization.completion("mod");
+        CompletableFuture<Void> withoutEntrypoints = DeferredInitialization.completion("other");
+
+        DeferredInitialization.modFinished("mod", null);
+        assertTrue(mod.isDone());
+        assertFalse(all.isDone());
+        assertFalse(withoutEntrypoints.isDone());
+
+        DeferredInitialization.finished(null);
+        assertTrue(all.isDone());
+        assertTrue(withoutEntrypoints.isDone());
+        assertTrue(DeferredInitialization.completion("unknown").isDone());
+    }
+
+    @Test
+    void completion_reportsFailures() {
+        IllegalStateException failure = new IllegalStateException("broken");
+
+        DeferredInitialization.modFinished("mod", failure);
+        DeferredInitialization.finished(failure);
+
+        ExecutionException modFailure =
+                assertThrows(ExecutionException.class, () -> DeferredInitialization.completion("mod").get());
+        assertSame(failure, modFailure.getCause());
+        ExecutionException allFailure =
+                assertThrows(ExecutionException.class, () -> DeferredInitialization.completion().get());
+        assertSame(failure, allFailure.getCause());
+    }
+
+    @Test
+    void completion_cantBeCompletedByCallers() {
+        DeferredInitialization.completion("mod").complete(null);
+        DeferredInitialization.completion().complete(null);
+
+        assertFalse(DeferredInitialization.completion("mod").isDone());
+        assertFalse(DeferredInitialization.completion().isDone());
+    }
+}
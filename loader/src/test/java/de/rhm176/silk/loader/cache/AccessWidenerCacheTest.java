@@ -0,0 +1,127 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.rhm176.silk.loader.SilkProperties;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+import net.fabricmc.accesswidener.AccessWidenerReader.AccessType;
+import net.fabricmc.accesswidener.AccessWidenerVisitor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import uk.org.webcompere.systemstubs.jupiter.SystemStubsExtension;
+import uk.org.webcompere.systemstubs.properties.SystemProperties;
+
+@ExtendWith(SystemStubsExtension.class)
+class AccessWidenerCacheTest {
+    @TempDir
+    Path tempDir;
+
+    private SystemProperties cacheProperties() {
+        Properties props = new Properties();
+        props.put(SilkProperties.CACHE_DIR, tempDir.resolve("cache").toString());
+        return new SystemProperties(props);
+    }
+
+    private static AccessWidenerCache.Recorder record() {
+        AccessWidenerCache.Recorder recorder = new AccessWidenerCache.Recorder();
+        recorder.visitHeader("official");
+        recorder.visitClass("main/MainApp", AccessType.ACCESSIBLE, false);
+        recorder.visitMethod("main/MainApp", "init", "()V", AccessType.EXTENDABLE, true);
+        recorder.visitField("main/MainApp", "instance", "Lmain/MainApp;", AccessType.MUTABLE, false);
+        return recorder;
+    }
+
+    @Test
+    void replay_visitsTheStoredEntriesInOrder() throws Exception {
+        cacheProperties().execute(() -> {
+            List<String> visited = new ArrayList<>();
+            assertFalse(AccessWidenerCache.replay("mods", new ListingVisitor(visited)));
+            assertTrue(visited.isEmpty());
+
+            AccessWidenerCache.store("mods", record());
+            assertTrue(AccessWidenerCache.replay("mods", new ListingVisitor(visited)));
+            assertEquals(
+                    List.of(
+                            "header official",
+                            "class main/MainApp ACCESSIBLE false",
+                            "method main/MainApp init ()V EXTENDABLE true",
+                            "field main/MainApp instance Lmain/MainApp; MUTABLE false"),
+                    visited);
+        });
+    }
+
+    @Test
+    void store_keepsOnlyTheLatestModSet() throws Exception {
+        cacheProperties().execute(() -> {
+            AccessWidenerCache.store("mods", record());
+            AccessWidenerCache.store("other mods", new AccessWidenerCache.Recorder());
+
+            List<String> visited = new ArrayList<>();
+            assertFalse(AccessWidenerCache.replay("mods", new ListingVisitor(visited)));
+            assertTrue(AccessWidenerCache.replay("other mods", new ListingVisitor(visited)));
+            assertTrue(visited.isEmpty());
+        });
+    }
+
+    @Test
+    void replay_ignoresTruncatedCachesWithoutVisitingAnything() throws Exception {
+        cacheProperties().execute(() -> {
+            AccessWidenerCache.store("mods", record());
+
+            Path file;
+            try (Stream<Path> files = Files.list(tempDir.resolve("cache").resolve("accesswideners"))) {
+                file = files.findFirst().orElseThrow();
+            }
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+
+            List<String> visited = new ArrayList<>();
+            assertFalse(AccessWidenerCache.replay("mods", new ListingVisitor(visited)));
+            assertTrue(visited.isEmpty());
+        });
+    }
+
+    private record ListingVisitor(List<String> visited) implements AccessWidenerVisitor {
+        @Override
+        public void visitHeader(String namespace) {
+            visited.add("header " + namespace);
+        }
+
+        @Override
+        public void visitClass(String name, AccessType access, boolean transitive) {
+            visited.add("class " + name + " " + access + " " + transitive);
+        }
+
+        @Override
+        public void visitMethod(String owner, String name, String descriptor, AccessType access, boolean transitive) {
+            visited.add("method " + owner + " " + name + " " + descriptor + " " + access + " " + transitive);
+        }
+
+        @Override
+        public void visitField(String owner, String name, String descriptor, AccessType access, boolean transitive) {
+            visited.add("field " + owner + " " + name + " " + descriptor + " " + access + " " + transitive);
+        }
+    }
+}
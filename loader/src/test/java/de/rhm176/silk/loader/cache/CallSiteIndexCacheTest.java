@@ -0,0 +1,111 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.rhm176.silk.loader.SilkProperties;
+import de.rhm176.silk.loader.index.CallSiteIndex;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import uk.org.webcompere.systemstubs.jupiter.SystemStubsExtension;
+import uk.org.webcompere.systemstubs.properties.SystemProperties;
+
+@ExtendWith(SystemStubsExtension.class)
+class CallSiteIndexCacheTest {
+    @TempDir
+    Path tempDir;
+
+    private Path createGameJar() throws IOException {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, "main/MainApp", null, "java/lang/Object", null);
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "main", "()V", null, null);
+        method.visitCode();
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, "gameManaging/GameManager", "init", "()V", false);
+        method.visitInsn(Opcodes.RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+        writer.visitEnd();
+
+        Path jarPath = tempDir.resolve("Equilinox.jar");
+        try (OutputStream os = Files.newOutputStream(jarPath);
+                ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.putNextEntry(new ZipEntry("main/MainApp.class"));
+            zos.write(writer.toByteArray());
+            zos.closeEntry();
+        }
+        return jarPath;
+    }
+
+    private SystemProperties cacheProperties() {
+        Properties props = new Properties();
+        props.put(SilkProperties.CACHE_DIR, tempDir.resolve("cache").toString());
+        return new SystemProperties(props);
+    }
+
+    @Test
+    void getOrBuild_storesIndexForLookup() throws Exception {
+        Path gameJar = createGameJar();
+
+        cacheProperties().execute(() -> {
+            assertNull(CallSiteIndexCache.lookup("abc"));
+
+            CallSiteIndex index = CallSiteIndexCache.getOrBuild(gameJar, "abc");
+            assertEquals(1, index.size());
+            assertTrue(Files.isRegularFile(tempDir.resolve("cache").resolve("callsites").resolve("abc.csi")));
+
+            // the jar is no longer needed once its index is cached
+            Files.delete(gameJar);
+            CallSiteIndex cached = CallSiteIndexCache.lookup("abc");
+            assertNotNull(cached);
+            assertEquals(1, cached.callers("gameManaging/GameManager", "init", "()V").size());
+        });
+    }
+
+    @Test
+    void getOrBuild_deletesIndexesOfOtherFingerprints() throws Exception {
+        Path gameJar = createGameJar();
+
+        cacheProperties().execute(() -> {
+            CallSiteIndexCache.getOrBuild(gameJar, "old");
+            CallSiteIndexCache.getOrBuild(gameJar, "new");
+
+            assertNull(CallSiteIndexCache.lookup("old"));
+            assertNotNull(CallSiteIndexCache.lookup("new"));
+        });
+    }
+
+    @Test
+    void lookup_ignoresUnreadableIndex() throws Exception {
+        cacheProperties().execute(() -> {
+            Path directory = Files.createDirectories(tempDir.resolve("cache").resolve("callsites"));
+            Files.writeString(directory.resolve("abc.csi"), "garbage");
+
+            assertNull(CallSiteIndexCache.lookup("abc"));
+        });
+    }
+}
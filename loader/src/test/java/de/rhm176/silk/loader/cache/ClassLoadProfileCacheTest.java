@@ -0,0 +1,65 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.rhm176.silk.loader.SilkProperties;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import uk.org.webcompere.systemstubs.jupiter.SystemStubsExtension;
+import uk.org.webcompere.systemstubs.properties.SystemProperties;
+
+@ExtendWith(SystemStubsExtension.class)
+class ClassLoadProfileCacheTest {
+    @TempDir
+    Path tempDir;
+
+    private SystemProperties cacheProperties() {
+        Properties props = new Properties();
+        props.put(SilkProperties.CACHE_DIR, tempDir.resolve("cache").toString());
+        return new SystemProperties(props);
+    }
+
+    @Test
+    void store_keepsOnlyTheProfileOfTheLatestGameJar() throws Exception {
+        cacheProperties().execute(() -> {
+            assertNull(ClassLoadProfileCache.lookup("abc"));
+
+            ClassLoadProfileCache.store("abc", List.of("main.MainApp", "basics.DisplayManager"));
+            assertEquals(List.of("main.MainApp", "basics.DisplayManager"), ClassLoadProfileCache.lookup("abc"));
+
+            ClassLoadProfileCache.store("def", List.of("main.MainApp"));
+            assertNull(ClassLoadProfileCache.lookup("abc"));
+            assertEquals(List.of("main.MainApp"), ClassLoadProfileCache.lookup("def"));
+        });
+    }
+
+    @Test
+    void lookup_ignoresUnreadableProfiles() throws Exception {
+        cacheProperties().execute(() -> {
+            Path directory = Files.createDirectories(tempDir.resolve("cache").resolve("profiles"));
+            Files.write(directory.resolve("abc.profile"), new byte[] {0x53, 0x43, 0x50, 0x31, 0, 0, 0, 5});
+
+            assertNull(ClassLoadProfileCache.lookup("abc"));
+        });
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.rhm176.silk.loader.SilkProperties;
+import de.rhm176.silk.loader.index.GameClassIndex;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import uk.org.webcompere.systemstubs.jupiter.SystemStubsExtension;
+import uk.org.webcompere.systemstubs.properties.SystemProperties;
+
+@ExtendWith(SystemStubsExtension.class)
+class GameClassIndexCacheTest {
+    @TempDir
+    Path tempDir;
+
+    private Path createGameJar(String... entries) throws IOException {
+        Path jarPath = tempDir.resolve("Equilinox.jar");
+        try (OutputStream os = Files.newOutputStream(jarPath);
+                ZipOutputStream zos = new ZipOutputStream(os)) {
+            for (String entry : entries) {
+                zos.putNextEntry(new ZipEntry(entry));
+                zos.closeEntry();
+            }
+        }
+        return jarPath;
+    }
+
+    private SystemProperties cacheProperties() {
+        Properties props = new Properties();
+        props.put(SilkProperties.CACHE_DIR, tempDir.resolve("cache").toString());
+        return new SystemProperties(props);
+    }
+
+    @Test
+    void getOrBuild_storesIndex() throws Exception {
+        Path gameJar = createGameJar("main/MainApp.class", "main/FirstScreenUi.class");
+
+        cacheProperties().execute(() -> {
+            GameClassIndex index = GameClassIndexCache.getOrBuild(gameJar, "abc");
+
+            assertTrue(index.contains("main.MainApp"));
+            assertTrue(Files.isRegularFile(tempDir.resolve("cache").resolve("classes").resolve("abc.idx")));
+        });
+    }
+
+    @Test
+    void getOrBuild_reusesStoredIndex() throws Exception {
+        Path gameJar = createGameJar("main/MainApp.class", "main/FirstScreenUi.class");
+
+        cacheProperties().execute(() -> {
+            GameClassIndexCache.getOrBuild(gameJar, "abc");
+            // the jar is no longer needed once its index is cached
+            Files.delete(gameJar);
+
+            GameClassIndex index = GameClassIndexCache.getOrBuild(gameJar, "abc");
+            assertEquals(2, index.size());
+            assertTrue(index.contains("main.FirstScreenUi"));
+        });
+    }
+
+    @Test
+    void getOrBuild_newFingerprintReplacesOldIndex() throws Exception {
+        Path cacheDirectory = tempDir.resolve("cache").resolve("classes");
+
+        cacheProperties().execute(() -> {
+            GameClassIndexCache.getOrBuild(createGameJar("main/MainApp.class"), "old");
+            Path updatedGameJar = createGameJar("main/MainApp.class", "main/Added.class");
+            GameClassIndex index = GameClassIndexCache.getOrBuild(updatedGameJar, "new");
+
+            assertTrue(index.contains("main.Added"));
+            assertTrue(Files.exists(cacheDirectory.resolve("new.idx")));
+            assertFalse(Files.exists(cacheDirectory.resolve("old.idx")));
+        });
+    }
+
+    @Test
+    void getOrBuild_rebuildsCorruptIndex() throws Exception {
+        Path gameJar = createGameJar("main/MainApp.class");
+        Path indexFile = tempDir.resolve("cache").resolve("classes").resolve("abc.idx");
+        Files.createDirectories(indexFile.getParent());
+        Files.writeString(indexFile, "garbage");
+
+        cacheProperties().execute(() -> {
+            GameClassIndex index = GameClassIndexCache.getOrBuild(gameJar, "abc");
+
+            assertTrue(index.contains("main.MainApp"));
+            assertNotEquals(7, Files.size(indexFile));
+        });
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.rhm176.silk.loader.SilkProperties;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import uk.org.webcompere.systemstubs.jupiter.SystemStubsExtension;
+import uk.org.webcompere.systemstubs.properties.SystemProperties;
+
+@ExtendWith(SystemStubsExtension.class)
+class GameDiscoveryCacheTest {
+    @TempDir
+    Path tempDir;
+
+    private Path createGameJar(String content) throws IOException {
+        Path jarPath = tempDir.resolve("Equilinox.jar");
+        try (OutputStream os = Files.newOutputStream(jarPath);
+                ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.putNextEntry(new ZipEntry("main/MainApp.class"));
+            zos.write(content.getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+        }
+        return jarPath;
+    }
+
+    private SystemProperties cacheProperties() {
+        Properties props = new Properties();
+        props.put(SilkProperties.CACHE_DIR, tempDir.resolve("cache").toString());
+        return new SystemProperties(props);
+    }
+
+    @Test
+    void lookup_emptyWithoutCacheFile() throws Exception {
+        cacheProperties().execute(() -> assertEquals(Optional.empty(), GameDiscoveryCache.lookup()));
+    }
+
+    @Test
+    void resolve_storesEntryForLaterLookups() throws Exception {
+        Path gameJar = createGameJar("content");
+
+        cacheProperties().execute(() -> {
+            GameDiscoveryCache.Entry entry = GameDiscoveryCache.resolve(gameJar, null, true);
+            assertEquals(gameJar.toAbsolutePath().normalize(), entry.gameJar());
+            assertEquals(Files.size(gameJar), entry.size());
+            assertNotNull(entry.fingerprint());
+
+            assertEquals(Optional.of(entry), GameDiscoveryCache.lookup());
+        });
+    }
+
+    @Test
+    void resolve_reusesKnownEntry() throws Exception {
+        Path gameJar = createGameJar("content");
+        GameDiscoveryCache.Entry known = new GameDiscoveryCache.Entry(
+                gameJar.toAbsolutePath().normalize(), 1, 2, "known-fingerprint");
+
+        cacheProperties().execute(() -> assertSame(known, GameDiscoveryCache.resolve(gameJar, known, true)));
+    }
+
+    @Test
+    void resolve_doesNotStoreJarDiscoveryDidNotFind() throws Exception {
+        Path gameJar = createGameJar("content");
+
+        cacheProperties().execute(() -> {
+            GameDiscoveryCache.Entry entry = GameDiscoveryCache.resolve(gameJar, null, false);
+            assertNotNull(entry.fingerprint());
+
+            assertEquals(Optional.empty(), GameDiscoveryCache.lookup());
+        });
+    }
+
+    @Test
+    void lookup_emptyAfterGameJarChanged() throws Exception {
+        Path gameJar = createGameJar("content");
+
+        cacheProperties().execute(() -> {
+            GameDiscoveryCache.resolve(gameJar, null, true);
+
+            createGameJar("different and longer content");
+            assertEquals(Optional.empty(), GameDiscoveryCache.lookup());
+        });
+    }
+
+    @Test
+    void lookup_emptyAfterGameJarTouched() throws Exception {
+        Path gameJar = createGameJar("content");
+
+        cacheProperties().execute(() -> {
+            GameDiscoveryCache.Entry entry = GameDiscoveryCache.resolve(gameJar, null, true);
+
+            Files.setLastModifiedTime(gameJar, FileTime.fromMillis(entry.lastModified() + 10_000));
+            assertEquals(Optional.empty(), GameDiscoveryCache.lookup());
+        });
+    }
+
+    @Test
+    void lookup_emptyAfterGameJarDeleted() throws Exception {
+        Path gameJar = createGameJar("content");
+
+        cacheProperties().execute(() -> {
+            GameDiscoveryCache.resolve(gameJar, null, true);
+
+            Files.delete(gameJar);
+            assertEquals(Optional.empty(), GameDiscoveryCache.lookup());
+        });
+    }
+
+    @Test
+    void lookup_emptyForCorruptCacheFile() throws Exception {
+        Path cacheDir = Files.createDirectories(tempDir.resolve("cache"));
+        Files.writeString(cacheDir.resolve("discovery.properties"), "size=not a number");
+
+        cacheProperties().execute(() -> assertEquals(Optional.empty(), GameDiscoveryCache.lookup()));
+    }
+}
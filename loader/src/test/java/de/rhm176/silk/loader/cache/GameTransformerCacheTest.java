@@ -0,0 +1,156 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.rhm176.silk.loader.SilkProperties;
+import de.rhm176.silk.loader.zip.GameJar;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import uk.org.webcompere.systemstubs.jupiter.SystemStubsExtension;
+import uk.org.webcompere.systemstubs.properties.SystemProperties;
+
+@ExtendWith(SystemStubsExtension.class)
+class GameTransformerCacheTest {
+    private static final byte[] PATCHED = {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE};
+
+    @TempDir
+    Path tempDir;
+
+    private GameJar createGameJar(String mainAppContent) throws IOException {
+        Path jarPath = tempDir.resolve("Equilinox.jar");
+        try (OutputStream os = Files.newOutputStream(jarPath);
+                ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.putNextEntry(new ZipEntry("main/MainApp.class"));
+            zos.write(mainAppContent.getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("basics/DisplayManager.class"));
+            zos.closeEntry();
+        }
+        return GameJar.open(jarPath);
+    }
+
+    private SystemProperties cacheProperties() {
+        Properties props = new Properties();
+        props.put(SilkProperties.CACHE_DIR, tempDir.resolve("cache").toString());
+        return new SystemProperties(props);
+    }
+
+    @Test
+    void lookup_returnsStoredClasses() throws Exception {
+        GameJar gameJar = createGameJar("main app");
+
+        cacheProperties().execute(() -> {
+            assertNull(GameTransformerCache.lookup(gameJar, "key"));
+
+            assertTrue(GameTransformerCache.store(
+                    gameJar, "key", List.of("main.MainApp"), Map.of("main.MainApp", PATCHED)));
+
+            Map<String, byte[]> cached = GameTransformerCache.lookup(gameJar, "key");
+            assertNotNull(cached);
+            assertArrayEquals(PATCHED, cached.get("main.MainApp"));
+        });
+    }
+
+    @Test
+    void lookup_missesForOtherKey() throws Exception {
+        GameJar gameJar = createGameJar("main app");
+
+        cacheProperties().execute(() -> {
+            GameTransformerCache.store(gameJar, "key", List.of("main.MainApp"), Map.of("main.MainApp", PATCHED));
+
+            assertNull(GameTransformerCache.lookup(gameJar, "other key"));
+        });
+    }
+
+    @Test
+    void lookup_missesWhenInputChanged() throws Exception {
+        GameJar gameJar = createGameJar("main app");
+
+        cacheProperties().execute(() -> {
+            GameTransformerCache.store(gameJar, "key", List.of("main.MainApp"), Map.of("main.MainApp", PATCHED));
+
+            GameJar updatedGameJar = createGameJar("updated main app");
+            assertNull(GameTransformerCache.lookup(updatedGameJar, "key"));
+        });
+    }
+
+    @Test
+    void lookup_ignoresChangesToOtherClasses() throws Exception {
+        GameJar gameJar = createGameJar("main app");
+
+        cacheProperties().execute(() -> {
+            GameTransformerCache.store(
+                    gameJar, "key", List.of("basics.DisplayManager"), Map.of("basics.DisplayManager", PATCHED));
+
+            GameJar updatedGameJar = createGameJar("updated main app");
+            assertNotNull(GameTransformerCache.lookup(updatedGameJar, "key"));
+        });
+    }
+
+    @Test
+    void store_skipsInputsOutsideTheGameJar() throws Exception {
+        GameJar gameJar = createGameJar("main app");
+
+        cacheProperties().execute(() -> {
+            assertFalse(GameTransformerCache.store(
+                    gameJar, "key", List.of("some.OtherClass"), Map.of("some.OtherClass", PATCHED)));
+            assertNull(GameTransformerCache.lookup(gameJar, "key"));
+        });
+    }
+
+    @Test
+    void store_deletesEntriesOfOtherKeys() throws Exception {
+        GameJar gameJar = createGameJar("main app");
+
+        cacheProperties().execute(() -> {
+            GameTransformerCache.store(gameJar, "old key", List.of("main.MainApp"), Map.of());
+            GameTransformerCache.store(gameJar, "new key", List.of("main.MainApp"), Map.of());
+
+            try (var files = Files.list(tempDir.resolve("cache").resolve("transforms"))) {
+                assertEquals(1, files.count());
+            }
+            assertNull(GameTransformerCache.lookup(gameJar, "old key"));
+            assertNotNull(GameTransformerCache.lookup(gameJar, "new key"));
+        });
+    }
+
+    @Test
+    void lookup_ignoresUnreadableEntry() throws Exception {
+        GameJar gameJar = createGameJar("main app");
+
+        cacheProperties().execute(() -> {
+            GameTransformerCache.store(gameJar, "key", List.of("main.MainApp"), Map.of("main.MainApp", PATCHED));
+            try (var files = Files.list(tempDir.resolve("cache").resolve("transforms"))) {
+                Files.write(files.findFirst().orElseThrow(), new byte[] {1, 2, 3});
+            }
+
+            assertNull(GameTransformerCache.lookup(gameJar, "key"));
+        });
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.rhm176.silk.loader.SilkProperties;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import uk.org.webcompere.systemstubs.jupiter.SystemStubsExtension;
+import uk.org.webcompere.systemstubs.properties.SystemProperties;
+
+@ExtendWith(SystemStubsExtension.class)
+class NativesCacheTest {
+    @TempDir
+    Path tempDir;
+
+    private Path createJar(String name, List<String> entries) throws IOException {
+        Path jarPath = tempDir.resolve(name);
+        try (OutputStream os = Files.newOutputStream(jarPath);
+                JarOutputStream jos = new JarOutputStream(os)) {
+            for (String entry : entries) {
+                jos.putNextEntry(new JarEntry(entry));
+                jos.write(("content of " + entry + " in " + name).getBytes(StandardCharsets.UTF_8));
+                jos.closeEntry();
+            }
+        }
+        return jarPath;
+    }
+
+    private Properties linuxProperties() {
+        Properties props = new Properties();
+        props.put("os.name", "Linux");
+        props.put("os.arch", "amd64");
+        props.put(SilkProperties.CACHE_DIR, tempDir.resolve("cache").toString());
+        return props;
+    }
+
+    @Test
+    void getOrExtract_extractsNativesForPlatform() throws Exception {
+        Path gameJar = createJar("game.jar", List.of("liblwjgl.so", "lwjgl.dll", "main/MainApp.class"));
+
+        new SystemProperties(linuxProperties()).execute(() -> {
+            Path directory = NativesCache.getOrExtract(gameJar);
+
+            assertTrue(Files.exists(directory.resolve("liblwjgl.so")));
+            assertFalse(Files.exists(directory.resolve("lwjgl.dll")));
+            assertFalse(Files.exists(directory.resolve("MainApp.class")));
+            assertTrue(directory.getFileName().toString().endsWith("-linux-amd64"));
+        });
+    }
+
+    @Test
+    void getOrExtract_reusesDirectoryOnWarmLaunch() throws Exception {
+        Path gameJar = createJar("game.jar", List.of("liblwjgl.so"));
+
+        new SystemProperties(linuxProperties()).execute(() -> {
+            Path first = NativesCache.getOrExtract(gameJar);
+            Path marker = first.resolve("liblwjgl.so");
+            Files.writeString(marker, "not extracted again");
+
+            Path second = NativesCache.getOrExtract(gameJar);
+
+            assertEquals(first, second);
+            assertEquals("not extracted again", Files.readString(marker));
+        });
+    }
+
+    @Test
+    void getOrExtract_differentJarContentUsesDifferentDirectory() throws Exception {
+        Path firstJar = createJar("first.jar", List.of("liblwjgl.so"));
+        Path secondJar = createJar("second.jar", List.of("liblwjgl.so", "libopenal.so"));
+
+        new SystemProperties(linuxProperties()).execute(() -> {
+            assertNotEquals(NativesCache.getOrExtract(firstJar), NativesCache.getOrExtract(secondJar));
+        });
+    }
+
+    @Test
+    void getOrExtract_evictsLeastRecentlyUsedEntries() throws Exception {
+        Path firstJar = createJar("first.jar", List.of("liblwjgl.so"));
+        Path secondJar = createJar("second.jar", List.of("liblwjgl.so", "libopenal.so"));
+
+        Properties props = linuxProperties();
+        props.put(SilkProperties.NATIVES_CACHE_MAX_SIZE, "1");
+        new SystemProperties(props).execute(() -> {
+            Path first = NativesCache.getOrExtract(firstJar);
+            Path second = NativesCache.getOrExtract(secondJar);
+
+            assertFalse(Files.exists(first));
+            assertTrue(Files.exists(second.resolve("libopenal.so")));
+        });
+    }
+
+    @Test
+    void getOrExtract_replacesIncompleteDirectory() throws Exception {
+        Path gameJar = createJar("game.jar", List.of("liblwjgl.so"));
+
+        new SystemProperties(linuxProperties()).execute(() -> {
+            Path directory = NativesCache.getOrExtract(gameJar);
+            Files.delete(directory.resolve(".complete"));
+            Files.writeString(directory.resolve("liblwjgl.so"), "edited");
+
+            assertEquals(directory, NativesCache.getOrExtract(gameJar));
+            assertEquals("content of liblwjgl.so in game.jar", Files.readString(directory.resolve("liblwjgl.so")));
+            try (Stream<Path> files = Files.list(directory.getParent())) {
+                assertEquals(List.of(directory), files.toList());
+            }
+        });
+    }
+
+    @Test
+    void publish_usesDirectoryPublishedByConcurrentLaunch() throws Exception {
+        Path directory = Files.createDirectories(tempDir.resolve("natives"));
+        Files.createFile(directory.resolve(".complete"));
+        Files.writeString(directory.resolve("liblwjgl.so"), "theirs");
+        Path staging = Files.createDirectories(tempDir.resolve("natives.tmp"));
+        Files.createFile(staging.resolve(".complete"));
+        Files.writeString(staging.resolve("liblwjgl.so"), "ours");
+
+        NativesCache.publish(staging, directory);
+
+        assertEquals("theirs", Files.readString(directory.resolve("liblwjgl.so")));
+        assertFalse(Files.exists(staging));
+    }
+
+    @Test
+    void getOrExtract_skipsOtherArchitectureVariants() throws Exception {
+        Path gameJar = createJar("game.jar", List.of("lwjgl.dll", "lwjgl64.dll", "OpenAL32.dll", "OpenAL64.dll"));
+
+        Properties props = linuxProperties();
+        props.put("os.name", "Windows 10");
+        new SystemProperties(props).execute(() -> {
+            Path directory = NativesCache.getOrExtract(gameJar);
+
+            assertTrue(Files.exists(directory.resolve("lwjgl64.dll")));
+            assertTrue(Files.exists(directory.resolve("OpenAL64.dll")));
+            assertFalse(Files.exists(directory.resolve("lwjgl.dll")));
+            assertFalse(Files.exists(directory.resolve("OpenAL32.dll")));
+        });
+    }
+
+    @Test
+    void isForOtherArchitecture_keepsLibrariesWithoutCounterpart() throws Exception {
+        Properties props = new Properties();
+        props.put("os.arch", "x86");
+        new SystemProperties(props).execute(() -> {
+            assertFalse(NativesCache.isForOtherArchitecture("lwjgl.dll", Set.of("lwjgl.dll")));
+            assertFalse(NativesCache.isForOtherArchitecture("jinput-raw.dll", Set.of("jinput-raw.dll")));
+            assertTrue(NativesCache.isForOtherArchitecture(
+                    "jinput-raw_64.dll", Set.of("jinput-raw.dll", "jinput-raw_64.dll")));
+        });
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.rhm176.silk.loader.SilkProperties;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import uk.org.webcompere.systemstubs.jupiter.SystemStubsExtension;
+import uk.org.webcompere.systemstubs.properties.SystemProperties;
+
+@ExtendWith(SystemStubsExtension.class)
+class WarmStartCacheTest {
+    @TempDir
+    Path tempDir;
+
+    private SystemProperties cacheProperties() {
+        Properties props = new Properties();
+        props.put(SilkProperties.CACHE_DIR, tempDir.resolve("cache").toString());
+        return new SystemProperties(props);
+    }
+
+    @Test
+    void store_makesClassAvailableForSameCrc() throws Exception {
+        cacheProperties().execute(() -> {
+            WarmStartCache cache = WarmStartCache.open("mods=a");
+            assertNull(cache.lookup("main.MainApp", 42));
+
+            cache.store("main.MainApp", 42, new byte[] {1, 2, 3});
+
+            assertArrayEquals(new byte[] {1, 2, 3}, WarmStartCache.open("mods=a").lookup("main.MainApp", 42));
+            assertNull(cache.lookup("main.MainApp", 43));
+            assertNull(cache.lookup("main.Other", 42));
+        });
+    }
+
+    @Test
+    void open_deletesClassesOfOtherKeys() throws Exception {
+        cacheProperties().execute(() -> {
+            WarmStartCache.open("mods=a").store("main.MainApp", 42, new byte[] {1});
+            WarmStartCache.open("mods=b").store("main.MainApp", 42, new byte[] {2});
+
+            try (Stream<Path> directories = Files.list(tempDir.resolve("cache").resolve("warmstart"))) {
+                assertEquals(1, directories.count());
+            }
+            assertNull(WarmStartCache.open("mods=a").lookup("main.MainApp", 42));
+        });
+    }
+
+    @Test
+    void lookup_ignoresCorruptFiles() throws Exception {
+        cacheProperties().execute(() -> {
+            WarmStartCache cache = WarmStartCache.open("mods=a");
+            cache.store("main.MainApp", 42, new byte[] {1});
+
+            try (Stream<Path> directories = Files.list(tempDir.resolve("cache").resolve("warmstart"))) {
+                Path directory = directories.findFirst().orElseThrow();
+                Files.write(directory.resolve("main.MainApp.bin"), new byte[] {0, 1, 2});
+            }
+
+            assertNull(cache.lookup("main.MainApp", 42));
+        });
+    }
+}
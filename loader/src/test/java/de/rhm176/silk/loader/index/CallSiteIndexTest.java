@@ -0,0 +1,127 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.rhm176.silk.loader.index.CallSiteIndex.CallSite;
+import de.rhm176.silk.loader.zip.GameJar;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+class CallSiteIndexTest {
+    @TempDir
+    Path tempDir;
+
+    // main/MainApp.main calls GameManager.init after two other instructions, main/Other.run calls it first
+    private CallSiteIndex buildIndex() throws IOException {
+        Path jarPath = tempDir.resolve("game.jar");
+        try (OutputStream os = Files.newOutputStream(jarPath);
+                ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.putNextEntry(new ZipEntry("main/MainApp.class"));
+            zos.write(createClass("main/MainApp", "main", "([Ljava/lang/String;)V", Opcodes.ICONST_0, Opcodes.POP));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("main/Other.class"));
+            zos.write(createClass("main/Other", "run", "()V"));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("readme.txt"));
+            zos.closeEntry();
+        }
+        return CallSiteIndex.build(GameJar.open(jarPath));
+    }
+
+    private static byte[] createClass(String name, String methodName, String methodDescriptor, int... before) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+        MethodVisitor method =
+                writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, methodName, methodDescriptor, null, null);
+        method.visitCode();
+        for (int opcode : before) {
+            method.visitInsn(opcode);
+        }
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, "gameManaging/GameManager", "init", "()V", false);
+        method.visitInsn(Opcodes.RETURN);
+        method.visitMaxs(1, 1);
+        method.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    @Test
+    void callers_findsAllCallSites() throws IOException {
+        CallSiteIndex index = buildIndex();
+
+        assertEquals(2, index.size());
+        assertEquals(
+                List.of(
+                        new CallSite("main/MainApp", "main", "([Ljava/lang/String;)V", 2),
+                        new CallSite("main/Other", "run", "()V", 0)),
+                index.callers("gameManaging/GameManager", "init", "()V"));
+        assertEquals(List.of(), index.callers("gameManaging/GameManager", "init", "(I)V"));
+        assertEquals(List.of(), index.callers("gameManaging/GameManager", "update", "()V"));
+    }
+
+    @Test
+    void isCalledFrom_matchesCallingClassAndMethod() throws IOException {
+        CallSiteIndex index = buildIndex();
+
+        assertTrue(index.isCalledFrom("gameManaging/GameManager", "init", "()V", "main/MainApp", null, null));
+        assertTrue(index.isCalledFrom(
+                "gameManaging/GameManager", "init", "()V", "main/MainApp", "main", "([Ljava/lang/String;)V"));
+        assertTrue(index.isCalledFrom("gameManaging/GameManager", "init", "()V", "main/Other", "run", null));
+        assertFalse(index.isCalledFrom("gameManaging/GameManager", "init", "()V", "main/MainApp", "run", null));
+        assertFalse(index.isCalledFrom("gameManaging/GameManager", "init", "()V", "main/Missing", null, null));
+        assertFalse(index.isCalledFrom("gameManaging/GameManager", "update", "()V", "main/MainApp", null, null));
+    }
+
+    @Test
+    void wrap_readsSerializedIndex() throws IOException {
+        CallSiteIndex index = buildIndex();
+
+        ByteBuffer buffer = index.buffer();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        CallSiteIndex wrapped = CallSiteIndex.wrap(ByteBuffer.wrap(bytes));
+
+        assertEquals(index.size(), wrapped.size());
+        assertEquals(
+                index.callers("gameManaging/GameManager", "init", "()V"),
+                wrapped.callers("gameManaging/GameManager", "init", "()V"));
+    }
+
+    @Test
+    void wrap_rejectsForeignData() {
+        assertThrows(IllegalArgumentException.class, () -> CallSiteIndex.wrap(ByteBuffer.allocate(3)));
+        assertThrows(IllegalArgumentException.class, () -> CallSiteIndex.wrap(GameClassIndex.EMPTY.buffer()));
+    }
+
+    @Test
+    void empty_containsNothing() {
+        assertEquals(0, CallSiteIndex.EMPTY.size());
+        assertEquals(List.of(), CallSiteIndex.EMPTY.callers("gameManaging/GameManager", "init", "()V"));
+    }
+}
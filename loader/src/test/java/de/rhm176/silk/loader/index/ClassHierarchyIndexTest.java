@@ -0,0 +1,108 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.rhm176.silk.loader.index.ClassHierarchyIndex.ClassInfo;
+import de.rhm176.silk.loader.zip.GameJar;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+class ClassHierarchyIndexTest {
+    @TempDir
+    Path tempDir;
+
+    // main/MainApp extends main/Base and implements main/Listener and java/lang/Runnable
+    private ClassHierarchyIndex buildIndex() throws IOException {
+        Path jarPath = tempDir.resolve("game.jar");
+        try (OutputStream os = Files.newOutputStream(jarPath);
+                ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.putNextEntry(new ZipEntry("main/MainApp.class"));
+            zos.write(createClass(
+                    Opcodes.ACC_PUBLIC, "main/MainApp", "main/Base", "main/Listener", "java/lang/Runnable"));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("main/Base.class"));
+            zos.write(createClass(Opcodes.ACC_PUBLIC, "main/Base", "java/lang/Object"));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("main/Listener.class"));
+            zos.write(createClass(
+                    Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT,
+                    "main/Listener",
+                    "java/lang/Object"));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("readme.txt"));
+            zos.closeEntry();
+        }
+        return ClassHierarchyIndex.build(GameJar.open(jarPath));
+    }
+
+    private static byte[] createClass(int access, String name, String superName, String... interfaces) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, access, name, null, superName, interfaces);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    @Test
+    void get_findsHierarchyOfAllClasses() throws IOException {
+        ClassHierarchyIndex index = buildIndex();
+
+        assertEquals(3, index.size());
+        assertEquals(
+                new ClassInfo("main/MainApp", "main/Base", List.of("main/Listener", "java/lang/Runnable"), false),
+                index.get("main/MainApp"));
+        assertEquals(new ClassInfo("main/Base", "java/lang/Object", List.of(), false), index.get("main/Base"));
+        assertEquals(new ClassInfo("main/Listener", "java/lang/Object", List.of(), true), index.get("main/Listener"));
+        assertNull(index.get("java/lang/Object"));
+        assertNull(index.get("main/Missing"));
+    }
+
+    @Test
+    void wrap_readsSerializedIndex() throws IOException {
+        ClassHierarchyIndex index = buildIndex();
+
+        ByteBuffer buffer = index.buffer();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        ClassHierarchyIndex wrapped = ClassHierarchyIndex.wrap(ByteBuffer.wrap(bytes));
+
+        assertEquals(index.size(), wrapped.size());
+        assertEquals(index.get("main/MainApp"), wrapped.get("main/MainApp"));
+    }
+
+    @Test
+    void wrap_rejectsForeignData() {
+        assertThrows(IllegalArgumentException.class, () -> ClassHierarchyIndex.wrap(ByteBuffer.allocate(3)));
+        assertThrows(IllegalArgumentException.class, () -> ClassHierarchyIndex.wrap(CallSiteIndex.EMPTY.buffer()));
+    }
+
+    @Test
+    void empty_containsNothing() {
+        assertEquals(0, ClassHierarchyIndex.EMPTY.size());
+        assertNull(ClassHierarchyIndex.EMPTY.get("main/MainApp"));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.rhm176.silk.loader.zip.CentralDirectory;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GameClassIndexTest {
+    @TempDir
+    Path tempDir;
+
+    private GameClassIndex buildIndex(List<String> entries) throws IOException {
+        Path jarPath = tempDir.resolve("game.jar");
+        try (OutputStream os = Files.newOutputStream(jarPath);
+                ZipOutputStream zos = new ZipOutputStream(os)) {
+            for (String entry : entries) {
+                zos.putNextEntry(new ZipEntry(entry));
+                zos.closeEntry();
+            }
+        }
+        return GameClassIndex.build(CentralDirectory.read(jarPath));
+    }
+
+    @Test
+    void contains_findsGameClasses() throws IOException {
+        GameClassIndex index = buildIndex(List.of("main/MainApp.class", "main/FirstScreenUi.class", "Util.class"));
+
+        assertEquals(3, index.size());
+        assertTrue(index.contains("main.MainApp"));
+        assertTrue(index.contains("main.FirstScreenUi"));
+        assertTrue(index.contains("Util"));
+        assertFalse(index.contains("main.Main"));
+        assertFalse(index.contains("main.MainAppX"));
+        assertFalse(index.contains("main/MainApp"));
+        assertFalse(index.contains("main.MainApp.class"));
+        assertFalse(index.contains("a.Before"));
+        assertFalse(index.contains("z.After"));
+    }
+
+    @Test
+    void build_ignoresNonClassEntries() throws IOException {
+        GameClassIndex index = buildIndex(
+                List.of("main/MainApp.class", "res/", "res/texture.png", "lwjgl.dll", ".class"));
+
+        assertEquals(1, index.size());
+        assertTrue(index.contains("main.MainApp"));
+        assertFalse(index.contains("res.texture"));
+        assertFalse(index.contains("lwjgl"));
+    }
+
+    @Test
+    void contains_spansMultipleBlocks() throws IOException {
+        List<String> entries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            entries.add("pkg" + (i % 7) + "/Class" + i + ".class");
+        }
+        GameClassIndex index = buildIndex(entries);
+
+        assertEquals(100, index.size());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(index.contains("pkg" + (i % 7) + ".Class" + i), "missing Class" + i);
+            assertFalse(index.contains("pkg" + (i % 7) + ".Class" + i + "x"));
+            assertFalse(index.contains("pkg" + ((i + 1) % 7) + ".Class" + i));
+        }
+    }
+
+    @Test
+    void contains_nonAsciiNames() throws IOException {
+        GameClassIndex index = buildIndex(List.of("main/Über.class", "main/MainApp.class"));
+
+        assertTrue(index.contains("main.Über"));
+        assertFalse(index.contains("main.Üb"));
+        assertTrue(index.contains("main.MainApp"));
+    }
+
+    @Test
+    void wrap_readsSerializedIndex() throws IOException {
+        GameClassIndex index = buildIndex(List.of("main/MainApp.class", "main/FirstScreenUi.class"));
+        ByteBuffer serialized = ByteBuffer.allocate(index.buffer().remaining());
+        serialized.put(index.buffer()).flip();
+
+        GameClassIndex wrapped = GameClassIndex.wrap(serialized);
+
+        assertEquals(2, wrapped.size());
+        assertTrue(wrapped.contains("main.MainApp"));
+        assertTrue(wrapped.contains("main.FirstScreenUi"));
+        assertFalse(wrapped.contains("main.Unknown"));
+    }
+
+    @Test
+    void wrap_rejectsForeignData() {
+        assertThrows(IllegalArgumentException.class, () -> GameClassIndex.wrap(ByteBuffer.allocate(0)));
+        assertThrows(IllegalArgumentException.class, () -> GameClassIndex.wrap(ByteBuffer.allocate(64)));
+    }
+
+    @Test
+    void empty_containsNothing() {
+        assertEquals(0, GameClassIndex.EMPTY.size());
+        assertFalse(GameClassIndex.EMPTY.contains("main.MainApp"));
+    }
+}
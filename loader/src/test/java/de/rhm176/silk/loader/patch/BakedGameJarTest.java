@@ -0,0 +1,156 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.patch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.rhm176.silk.loader.zip.GameJar;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+class BakedGameJarTest {
+    private static final byte[] RESOURCE = "resource".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path tempDir;
+
+    private static byte[] mainApp() {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, "main/MainApp", null, "java/lang/Object", null);
+        MethodVisitor method = writer.visitMethod(
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "main", "([Ljava/lang/String;)V", null, null);
+        method.visitCode();
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, "gameManaging/GameManager", "init", "()V", false);
+        method.visitInsn(Opcodes.RETURN);
+        method.visitMaxs(0, 1);
+        method.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private Path createGameJar() throws IOException {
+        Path jarPath = tempDir.resolve("Equilinox.jar");
+        try (OutputStream os = Files.newOutputStream(jarPath);
+                ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.putNextEntry(new ZipEntry("main/MainApp.class"));
+            zos.write(mainApp());
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("res/text.txt"));
+            zos.write(RESOURCE);
+            zos.closeEntry();
+        }
+        return jarPath;
+    }
+
+    private static byte[] read(ZipFile zip, String name) throws IOException {
+        try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void bake_patchesClassesAndStoresAllEntries() throws Exception {
+        Path output = tempDir.resolve("baked.jar");
+        BakedGameJar.bake(GameJar.open(createGameJar()), output, "1.0", List.of());
+
+        try (ZipFile baked = new ZipFile(output.toFile())) {
+            List<? extends ZipEntry> entries = Collections.list(baked.entries());
+            assertEquals(JarFile.MANIFEST_NAME, entries.get(0).getName());
+            assertEquals(3, entries.size());
+            for (ZipEntry entry : entries) {
+                assertEquals(ZipEntry.STORED, entry.getMethod(), entry.getName());
+            }
+
+            assertArrayEquals(RESOURCE, read(baked, "res/text.txt"));
+            String mainApp = new String(read(baked, "main/MainApp.class"), StandardCharsets.ISO_8859_1);
+            assertTrue(mainApp.contains(ModInitPatch.PATCH_CLASS_INTERNAL_NAME));
+        }
+    }
+
+    @Test
+    void isBaked_onlyForJarsBakedByThisVersion() throws Exception {
+        Path gameJar = createGameJar();
+        Path output = tempDir.resolve("baked.jar");
+        BakedGameJar.bake(GameJar.open(gameJar), output, "1.0", List.of());
+
+        assertFalse(BakedGameJar.isBaked(GameJar.open(gameJar)));
+        assertTrue(BakedGameJar.isBaked(GameJar.open(output)));
+        assertThrows(
+                IllegalStateException.class,
+                () -> BakedGameJar.bake(GameJar.open(output), tempDir.resolve("again.jar"), "1.0", List.of()));
+    }
+
+    @Test
+    void checkAccessWideners_rejectsAccessWidenersChangedAfterBaking() throws Exception {
+        byte[] first = "accessWidener v2 named\naccessible class main/MainApp\n".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "accessWidener v2 named\n".getBytes(StandardCharsets.UTF_8);
+        Path output = tempDir.resolve("baked.jar");
+        BakedGameJar.bake(GameJar.open(createGameJar()), output, "1.0", List.of(first, second));
+        GameJar baked = GameJar.open(output);
+
+        assertDoesNotThrow(() -> BakedGameJar.checkAccessWideners(baked, List.of(second, first)));
+        assertThrows(IllegalStateException.class, () -> BakedGameJar.checkAccessWideners(baked, List.of(first)));
+        assertThrows(
+                IllegalStateException.class,
+                () -> BakedGameJar.checkAccessWideners(
+                        baked, List.of(first, second, "accessWidener v2 named\n\n".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void accessWideners_readsTheAccessWidenersModsDeclare() throws Exception {
+        Path mods = Files.createDirectory(tempDir.resolve("mods"));
+        byte[] accessWidener = "accessWidener v2 named\n".getBytes(StandardCharsets.UTF_8);
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(mods.resolve("widening.jar")))) {
+            zos.putNextEntry(new ZipEntry("fabric.mod.json"));
+            zos.write("{\"id\": \"widening\", \"accessWidener\": \"widening.accesswidener\"}"
+                    .getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("widening.accesswidener"));
+            zos.write(accessWidener);
+            zos.closeEntry();
+        }
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(mods.resolve("plain.jar")))) {
+            zos.putNextEntry(new ZipEntry("fabric.mod.json"));
+            zos.write("{\"id\": \"plain\"}".getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+        }
+
+        List<byte[]> accessWideners = BakedGameJar.accessWideners(mods);
+
+        assertEquals(1, accessWideners.size());
+        assertArrayEquals(accessWidener, accessWideners.get(0));
+    }
+
+    @Test
+    void accessWideners_emptyWithoutModsDirectory() throws Exception {
+        assertTrue(BakedGameJar.accessWideners(tempDir.resolve("mods")).isEmpty());
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.patch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import de.rhm176.silk.loader.SilkProperties;
+import de.rhm176.silk.loader.cache.ClassLoadProfileCache;
+import de.rhm176.silk.loader.zip.GameJar;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import net.fabricmc.loader.impl.game.patch.GamePatch;
+import net.fabricmc.loader.impl.launch.FabricLauncher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import uk.org.webcompere.systemstubs.jupiter.SystemStubsExtension;
+import uk.org.webcompere.systemstubs.properties.SystemProperties;
+
+@ExtendWith(MockitoExtension.class)
+@ExtendWith(SystemStubsExtension.class)
+class CachingGameTransformerTest {
+    private static final String TARGET_CLASS = "test.Target";
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private FabricLauncher launcherMock;
+
+    private final AtomicInteger patchRuns = new AtomicInteger();
+
+    private final GamePatch patch = new GamePatch() {
+        @Override
+        public void process(
+                FabricLauncher launcher, Function<String, ClassNode> classSource, Consumer<ClassNode> classEmitter) {
+            patchRuns.incrementAndGet();
+
+            ClassNode target = classSource.apply(TARGET_CLASS);
+            target.fields.add(new FieldNode(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "patched", "Z", null, null));
+            classEmitter.accept(target);
+        }
+    };
+
+    private Path createGameJar(String sourceFile) throws IOException {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(
+                Opcodes.V17, Opcodes.ACC_PUBLIC, TARGET_CLASS.replace('.', '/'), null, "java/lang/Object", null);
+        writer.visitSource(sourceFile, null);
+        writer.visitEnd();
+
+        Path jarPath = tempDir.resolve("Equilinox.jar");
+        try (OutputStream os = Files.newOutputStream(jarPath);
+                ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.putNextEntry(new ZipEntry(TARGET_CLASS.replace('.', '/') + ".class"));
+            zos.write(writer.toByteArray());
+            zos.closeEntry();
+        }
+        return jarPath;
+    }
+
+    private SystemProperties properties(Path gameJar) {
+        Properties props = new Properties();
+        props.put(SilkProperties.CACHE_DIR, tempDir.resolve("cache").toString());
+        props.put(net.fabricmc.loader.impl.util.SystemProperties.GAME_JAR_PATH, gameJar.toString());
+        return new SystemProperties(props);
+    }
+
+    private byte[] locateAndTransform(Path gameJar, String gameVersion) {
+        CachingGameTransformer transformer = new CachingGameTransformer(() -> gameVersion, patch);
+        transformer.locateEntrypoints(launcherMock, List.of(gameJar));
+        return transformer.transform(TARGET_CLASS);
+    }
+
+    @Test
+    void locateEntrypoints_servesCachedClassesWithoutRunningPatches() throws Exception {
+        Path gameJar = createGameJar("Target.java");
+
+        properties(gameJar).execute(() -> {
+            byte[] patched = locateAndTransform(gameJar, "1.0");
+            assertEquals(1, patchRuns.get());
+
+            ClassNode patchedNode = new ClassNode();
+            new ClassReader(patched).accept(patchedNode, 0);
+            assertEquals("patched", patchedNode.fields.get(0).name);
+
+            CachingGameTransformer warmTransformer = new CachingGameTransformer(() -> "1.0", patch);
+            warmTransformer.locateEntrypoints(launcherMock, List.of(gameJar));
+            assertEquals(1, patchRuns.get());
+            assertArrayEquals(patched, warmTransformer.transform(TARGET_CLASS));
+            assertNull(warmTransformer.transform("test.Other"));
+        });
+    }
+
+    @Test
+    void locateEntrypoints_runsPatchesAgainWhenInputChanged() throws Exception {
+        Path gameJar = createGameJar("Target.java");
+
+        properties(gameJar).execute(() -> {
+            locateAndTransform(gameJar, "1.0");
+
+            createGameJar("UpdatedTarget.java");
+            byte[] patched = locateAndTransform(gameJar, "1.0");
+
+            assertEquals(2, patchRuns.get());
+            ClassNode patchedNode = new ClassNode();
+            new ClassReader(patched).accept(patchedNode, 0);
+            assertEquals("UpdatedTarget.java", patchedNode.sourceFile);
+        });
+    }
+
+    @Test
+    void locateEntrypoints_runsPatchesAgainForOtherGameVersion() throws Exception {
+        Path gameJar = createGameJar("Target.java");
+
+        properties(gameJar).execute(() -> {
+            locateAndTransform(gameJar, "1.0");
+            locateAndTransform(gameJar, "1.1");
+
+            assertEquals(2, patchRuns.get());
+        });
+    }
+
+    @Test
+    void locateEntrypoints_appliesDeclarativePatchesToGameJar() throws Exception {
+        Path gameJar = createGameJar("Target.java");
+        List<String> finishedClasses = new ArrayList<>();
+        DeclarativePatch declarativePatch = new DeclarativePatch() {
+            @Override
+            public List<PatchDescriptor> descriptors() {
+                return List.of(new PatchDescriptor(
+                        TARGET_CLASS.replace('.', '/'), "missing", null, List.of((instruction) -> true), List.of()));
+            }
+
+            @Override
+            protected void finished(PatchDescriptor descriptor, String className, Outcome outcome) {
+                assertEquals(Outcome.METHOD_NOT_FOUND, outcome);
+                finishedClasses.add(className);
+            }
+        };
+
+        properties(gameJar).execute(() -> {
+            CachingGameTransformer transformer = new CachingGameTransformer(() -> "1.0", declarativePatch);
+            transformer.locateEntrypoints(launcherMock, List.of(gameJar));
+
+            assertEquals(List.of(TARGET_CLASS.replace('.', '/')), finishedClasses);
+            // nothing was patched, the class is served as it is in the game jar
+            assertArrayEquals(
+                    GameJar.open(gameJar).read(TARGET_CLASS.replace('.', '/') + ".class"),
+                    transformer.transform(TARGET_CLASS));
+            assertNull(transformer.transform("test.Other"));
+            verifyNoInteractions(launcherMock);
+        });
+    }
+
+    @Test
+    void gameInitialized_recordsLoadOrderOfGameClasses() throws Exception {
+        Path gameJar = createGameJar("Target.java");
+
+        properties(gameJar).execute(() -> {
+            CachingGameTransformer transformer = new CachingGameTransformer(() -> "1.0");
+            transformer.locateEntrypoints(launcherMock, List.of(gameJar));
+            assertNotNull(transformer.transform(TARGET_CLASS));
+            assertNull(transformer.transform("test.Other"));
+            transformer.gameInitialized();
+            transformer.profileStore().join();
+
+            String fingerprint = GameJar.open(gameJar).fingerprint();
+            assertEquals(List.of(TARGET_CLASS), ClassLoadProfileCache.lookup(fingerprint));
+
+            CachingGameTransformer nextLaunch = new CachingGameTransformer(() -> "1.0");
+            nextLaunch.locateEntrypoints(launcherMock, List.of(gameJar));
+            assertArrayEquals(
+                    GameJar.open(gameJar).read(TARGET_CLASS.replace('.', '/') + ".class"),
+                    nextLaunch.transform(TARGET_CLASS));
+        });
+    }
+
+    @Test
+    void profileChanged_ignoresSmallReorderings() {
+        List<String> replayed = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            replayed.add("test.Class" + i);
+        }
+
+        List<String> swapped = new ArrayList<>(replayed);
+        Collections.swap(swapped, 10, 20);
+        Collections.swap(swapped, 500, 600);
+        assertFalse(CachingGameTransformer.profileChanged(replayed, swapped));
+
+        List<String> reversed = new ArrayList<>(replayed);
+        Collections.reverse(reversed);
+        assertTrue(CachingGameTransformer.profileChanged(replayed, reversed));
+
+        List<String> replaced = new ArrayList<>(replayed);
+        replaced.set(999, "test.Other");
+        assertTrue(CachingGameTransformer.profileChanged(replayed, replaced));
+        assertTrue(CachingGameTransformer.profileChanged(replayed, replayed.subList(0, 999)));
+        assertTrue(CachingGameTransformer.profileChanged(null, replayed));
+    }
+}
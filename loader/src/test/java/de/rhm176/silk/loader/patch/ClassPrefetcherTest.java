@@ -0,0 +1,91 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.patch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ClassPrefetcherTest {
+    // the prefetcher reads classes in order, once it reads this one all earlier classes are handed over
+    private static final String END = "a.End";
+
+    @Test
+    void take_handsOverPrefetchedClassesOnce() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        ClassPrefetcher prefetcher = ClassPrefetcher.start(List.of("a.A", "a.Missing", "a.B", END), (className) -> {
+            if (className.equals(END)) {
+                done.countDown();
+            }
+            return className.equals("a.Missing") ? null : className.getBytes();
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertArrayEquals("a.A".getBytes(), prefetcher.take("a.A"));
+        assertNull(prefetcher.take("a.A"));
+        assertNull(prefetcher.take("a.Missing"));
+        assertArrayEquals("a.B".getBytes(), prefetcher.take("a.B"));
+    }
+
+    @Test
+    void run_skipsClassesThatWereAlreadyTaken() throws Exception {
+        CountDownLatch taken = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger reads = new AtomicInteger();
+        ClassPrefetcher prefetcher = ClassPrefetcher.start(List.of("a.First", "a.Taken", END), (className) -> {
+            switch (className) {
+                case "a.First" -> {
+                    try {
+                        taken.await();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                }
+                case END -> done.countDown();
+                default -> reads.incrementAndGet();
+            }
+            return className.getBytes();
+        });
+
+        assertNull(prefetcher.take("a.Taken"));
+        taken.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(0, reads.get());
+        assertNull(prefetcher.take("a.Taken"));
+    }
+
+    @Test
+    void stop_dropsClassesThatWereNotTaken() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        ClassPrefetcher prefetcher = ClassPrefetcher.start(List.of("a.A", END), (className) -> {
+            if (className.equals(END)) {
+                done.countDown();
+            }
+            return className.getBytes();
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        prefetcher.stop();
+
+        assertNull(prefetcher.take("a.A"));
+    }
+}
@@ -17,36 +17,80 @@ package de.rhm176.silk.loader.patch;
 
 import static com.ginsberg.junit.exit.assertions.SystemExitAssertion.assertThatCallsSystemExit;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
+import de.rhm176.silk.loader.SilkProperties;
+import de.rhm176.silk.loader.api.DeferredInitialization;
+import de.rhm176.silk.loader.api.DeferredInitializer;
+import de.rhm176.silk.loader.zip.GameJar;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import net.fabricmc.accesswidener.AccessWidener;
 import net.fabricmc.loader.api.FabricLoader;
+import net.fabricmc.loader.api.MappingResolver;
+import net.fabricmc.loader.api.ModContainer;
+import net.fabricmc.loader.api.Version;
+import net.fabricmc.loader.api.entrypoint.EntrypointContainer;
+import net.fabricmc.loader.api.metadata.CustomValue;
+import net.fabricmc.loader.api.metadata.ModDependency;
+import net.fabricmc.loader.api.metadata.ModMetadata;
+import net.fabricmc.loader.api.metadata.ModOrigin;
 import net.fabricmc.loader.impl.FabricLoaderImpl;
+import net.fabricmc.loader.impl.ModContainerImpl;
+import net.fabricmc.loader.impl.game.GameProvider;
 import net.fabricmc.loader.impl.launch.FabricLauncher;
+import net.fabricmc.loader.impl.metadata.LoaderModMetadata;
 import net.fabricmc.loader.impl.util.log.Log;
 import net.fabricmc.loader.impl.util.log.LogCategory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.*;
 import uk.org.webcompere.systemstubs.jupiter.SystemStubsExtension;
+import uk.org.webcompere.systemstubs.properties.SystemProperties;
 
 @ExtendWith(MockitoExtension.class)
 @ExtendWith(SystemStubsExtension.class)
 class ModInitPatchTest {
 
+    @TempDir
+    Path tempDir;
+
     private ModInitPatch patch;
 
     @Mock
@@ -58,6 +102,17 @@ class ModInitPatchTest {
     @Mock
     private Consumer<ClassNode> classEmitterMock;
 
+    @Mock
+    private FabricLoaderImpl loaderMock;
+
+    @Mock
+    private GameProvider providerMock;
+
+    @Mock
+    private CachingGameTransformer transformerMock;
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
     private MockedStatic<Log> logMock;
     private MockedStatic<FabricLoaderImpl> fabricLoaderImplMock;
     private MockedStatic<FabricLoader> fabricLoaderApiMock;
@@ -78,6 +133,8 @@ class ModInitPatchTest {
         logMock = Mockito.mockStatic(Log.class);
         fabricLoaderImplMock = Mockito.mockStatic(FabricLoaderImpl.class);
         fabricLoaderApiMock = Mockito.mockStatic(FabricLoader.class);
+        ModInitPatch.reset();
+        DeferredInitialization.reset();
     }
 
     @AfterEach
@@ -85,6 +142,90 @@ class ModInitPatchTest {
         logMock.close();
         fabricLoaderImplMock.close();
         fabricLoaderApiMock.close();
+        ModInitPatch.reset();
+        DeferredInitialization.reset();
+    }
+
+    private static SystemProperties overlapModInit() {
+        Properties props = new Properties();
+        props.put(SilkProperties.OVERLAP_MOD_INIT, "true");
+        return new SystemProperties(props);
+    }
+
+    private static void sleep(long millis) {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static ModContainer mod(String modId, boolean parallel, String... dependencies) {
+        List<ModDependency> modDependencies = new ArrayList<>();
+        for (String dependency : dependencies) {
+            ModDependency modDependency = mock(ModDependency.class);
+            lenient().when(modDependency.getKind()).thenReturn(ModDependency.Kind.DEPENDS);
+            lenient().when(modDependency.getModId()).thenReturn(dependency);
+            modDependencies.add(modDependency);
+        }
+
+        ModMetadata metadata = mock(ModMetadata.class);
+        lenient().when(metadata.getId()).thenReturn(modId);
+        lenient().when(metadata.getProvides()).thenReturn(List.of());
+        lenient().when(metadata.getDependencies()).thenReturn(modDependencies);
+        if (parallel) {
+            CustomValue value = mock(CustomValue.class);
+            lenient().when(value.getType()).thenReturn(CustomValue.CvType.BOOLEAN);
+            lenient().when(value.getAsBoolean()).thenReturn(true);
+            lenient().when(metadata.getCustomValue(ModInitPatch.PARALLEL_INIT_CUSTOM_VALUE)).thenReturn(value);
+        }
+
+        ModContainer mod = mock(ModContainer.class);
+        lenient().when(mod.getMetadata()).thenReturn(metadata);
+        return mod;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static EntrypointContainer<DeferredInitializer> deferred(ModContainer mod, DeferredInitializer entrypoint) {
+        EntrypointContainer<DeferredInitializer> container = mock(EntrypointContainer.class);
+        lenient().when(container.getProvider()).thenReturn(mod);
+        lenient().when(container.getEntrypoint()).thenReturn(entrypoint);
+        lenient().when(container.getDefinition()).thenReturn("test.Deferred");
+        return container;
+    }
+
+    private void gameProvider() {
+        fabricLoaderApiMock.when(FabricLoader::getInstance).thenReturn(loaderMock);
+        when(loaderMock.getGameProvider()).thenReturn(providerMock);
+        when(providerMock.getEntrypointTransformer()).thenReturn(transformerMock);
+    }
+
+    /**
+     * Loads Silk's classes a second time like Knot does, everything else comes from the class loader of the test.
+     */
+    private static URLClassLoader knotClassLoader() {
+        URL silk = ModInitPatch.class.getProtectionDomain().getCodeSource().getLocation();
+        return new URLClassLoader(new URL[] {silk}, ModInitPatch.class.getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                if (!name.startsWith("de.rhm176.silk.")) {
+                    return super.loadClass(name, resolve);
+                }
+
+                synchronized (getClassLoadingLock(name)) {
+                    Class<?> loaded = findLoadedClass(name);
+                    if (loaded == null) {
+                        loaded = findClass(name);
+                    }
+                    if (resolve) {
+                        resolveClass(loaded);
+                    }
+                    return loaded;
+                }
+            }
+        };
+    }
+
+    private void deferredEntrypoints(List<EntrypointContainer<DeferredInitializer>> containers) {
+        fabricLoaderApiMock.when(FabricLoader::getInstance).thenReturn(loaderMock);
+        when(loaderMock.getEntrypointContainers(DeferredInitializer.ENTRYPOINT, DeferredInitializer.class))
+                .thenReturn(containers);
     }
 
     private ClassNode createTestClassNode(
@@ -218,6 +359,35 @@ class ModInitPatchTest {
                 eq(MIP_TARGET_METHOD_DESCRIPTOR)));
     }
 
+    @Test
+    void process_marksEndOfGameInit() {
+        String dotFormattedTargetClassName = MIP_TARGET_CLASS_INTERNAL_NAME.replace('/', '.');
+        ClassNode testClassNode = createTestClassNode(
+                dotFormattedTargetClassName,
+                MIP_TARGET_METHOD_NAME,
+                MIP_TARGET_METHOD_DESCRIPTOR,
+                createInstructionsWithInjectionPoint());
+        when(classSourceMock.apply(dotFormattedTargetClassName)).thenReturn(testClassNode);
+
+        patch.process(launcherMock, classSourceMock, classEmitterMock);
+
+        ArgumentCaptor<ClassNode> captor = ArgumentCaptor.forClass(ClassNode.class);
+        verify(classEmitterMock).accept(captor.capture());
+        MethodNode mainMethod = captor.getValue().methods.get(0);
+        AbstractInsnNode afterInjectionPoint = Arrays.stream(mainMethod.instructions.toArray())
+                .filter(insn -> insn instanceof MethodInsnNode methodInsn
+                        && methodInsn.owner.equals(MIP_BEFORE_TARGET_OWNER_INTERNAL_NAME))
+                .findFirst()
+                .orElseThrow()
+                .getNext();
+
+        MethodInsnNode gameInitialized = assertInstanceOf(MethodInsnNode.class, afterInjectionPoint);
+        assertEquals(Opcodes.INVOKESTATIC, gameInitialized.getOpcode());
+        assertEquals(MIP_PATCH_CLASS_INTERNAL_NAME, gameInitialized.owner);
+        assertEquals(ModInitPatch.GAME_INITIALIZED_METHOD_NAME, gameInitialized.name);
+        assertEquals("()V", gameInitialized.desc);
+    }
+
     @Test
     void process_targetMethodFound_injectionPointNotFound_logsWarning() {
         String dotFormattedTargetClassName = MIP_TARGET_CLASS_INTERNAL_NAME.replace('/', '.');
@@ -270,4 +440,236 @@ class ModInitPatchTest {
         verify(classEmitterMock, never()).accept(any());
         logMock.verify(() -> Log.error(eq(LogCategory.GAME_PATCH), eq("Could not find main class for mod init hook.")));
     }
+
+    @Test
+    void init_rejectsBakedGameJarWhoseAccessWidenersChanged() throws Exception {
+        String header = "accessWidener v2 named\n";
+        Path accessWidener = tempDir.resolve("test.accesswidener");
+        Files.writeString(accessWidener, header);
+
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, MIP_TARGET_CLASS_INTERNAL_NAME, null, "java/lang/Object", null);
+        MethodVisitor method = writer.visitMethod(
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC,
+                MIP_TARGET_METHOD_NAME,
+                MIP_TARGET_METHOD_DESCRIPTOR,
+                null,
+                null);
+        method.visitCode();
+        method.visitMethodInsn(
+                Opcodes.INVOKESTATIC,
+                MIP_BEFORE_TARGET_OWNER_INTERNAL_NAME,
+                MIP_BEFORE_TARGET_METHOD_NAME,
+                MIP_BEFORE_TARGET_METHOD_DESCRIPTOR,
+                false);
+        method.visitInsn(Opcodes.RETURN);
+        method.visitMaxs(0, 1);
+        method.visitEnd();
+        writer.visitEnd();
+
+        Path gameJar = tempDir.resolve("Equilinox.jar");
+        try (OutputStream os = Files.newOutputStream(gameJar);
+                ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.putNextEntry(new ZipEntry(MIP_TARGET_CLASS_INTERNAL_NAME + ".class"));
+            zos.write(writer.toByteArray());
+            zos.closeEntry();
+        }
+        Path bakedJar = tempDir.resolve("baked.jar");
+        BakedGameJar.bake(GameJar.open(gameJar), bakedJar, "1.0", List.of(Files.readAllBytes(accessWidener)));
+
+        // the mod widens a class after the jar was baked
+        Files.writeString(accessWidener, header + "accessible class " + MIP_TARGET_CLASS_INTERNAL_NAME + "\n");
+
+        LoaderModMetadata metadata = mock(LoaderModMetadata.class);
+        when(metadata.getId()).thenReturn("test");
+        when(metadata.getVersion()).thenReturn(mock(Version.class));
+        when(metadata.getAccessWidener()).thenReturn("test.accesswidener");
+        ModOrigin origin = mock(ModOrigin.class);
+        when(origin.getKind()).thenReturn(ModOrigin.Kind.UNKNOWN);
+        ModContainerImpl mod = mock(ModContainerImpl.class);
+        when(mod.getMetadata()).thenReturn(metadata);
+        when(mod.getOrigin()).thenReturn(origin);
+        when(mod.findPath("test.accesswidener")).thenReturn(Optional.of(accessWidener));
+        MappingResolver mappingResolver = mock(MappingResolver.class);
+        when(mappingResolver.getCurrentRuntimeNamespace()).thenReturn("named");
+        when(loaderMock.getMappingResolver()).thenReturn(mappingResolver);
+        when(loaderMock.getModsInternal()).thenReturn(List.of(mod));
+        when(loaderMock.getAccessWidener()).thenReturn(new AccessWidener());
+
+        Properties props = new Properties();
+        props.put(SilkProperties.CACHE_DIR, tempDir.resolve("cache").toString());
+        props.put(net.fabricmc.loader.impl.util.SystemProperties.GAME_JAR_PATH, bakedJar.toString());
+        new SystemProperties(props).execute(() -> {
+            CachingGameTransformer transformer = new CachingGameTransformer(() -> "1.0");
+            transformer.locateEntrypoints(launcherMock, List.of(bakedJar));
+            fabricLoaderApiMock.when(FabricLoader::getInstance).thenReturn(loaderMock);
+            when(loaderMock.getGameProvider()).thenReturn(providerMock);
+            when(providerMock.getEntrypointTransformer()).thenReturn(transformer);
+
+            assertThrows(IllegalStateException.class, () -> ModInitPatch.init(null));
+        });
+
+        verify(loaderMock, never()).prepareModInit(any(), any());
+    }
+
+    @Test
+    void startModInit_withOverlap_runsEntrypointsWhileTheGameInitializes() throws Exception {
+        Thread caller = Thread.currentThread();
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean();
+        AtomicBoolean finishedBeforeTransformer = new AtomicBoolean();
+        AtomicBoolean finishedBeforeDeferred = new AtomicBoolean();
+        doAnswer((invocation) -> {
+                    finishedBeforeTransformer.set(finished.get());
+                    return null;
+                })
+                .when(transformerMock)
+                .gameInitialized();
+        gameProvider();
+        when(loaderMock.getEntrypointContainers(DeferredInitializer.ENTRYPOINT, DeferredInitializer.class))
+                .thenAnswer((invocation) -> {
+                    finishedBeforeDeferred.set(finished.get());
+                    return List.of();
+                });
+
+        overlapModInit().execute(() -> {
+            ModInitPatch.startModInit(() -> {
+                events.add(Thread.currentThread() == caller ? "caller" : "background");
+                started.countDown();
+                sleep(200);
+                finished.set(true);
+            });
+            assertFalse(finished.get(), "init returned only after the entrypoints finished");
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            ModInitPatch.gameInitialized();
+            assertTrue(finished.get(), "gameInitialized returned before the entrypoints finished");
+        });
+
+        assertEquals(List.of("background"), events);
+        verify(transformerMock).gameInitialized();
+        assertTrue(finishedBeforeTransformer.get());
+        assertTrue(finishedBeforeDeferred.get());
+    }
+
+    @Test
+    void gameInitialized_withOverlap_rethrowsWhatTheEntrypointsThrew() throws Exception {
+        RuntimeException exception = new IllegalStateException("mod init failed");
+        Error error = new NoClassDefFoundError("test/Missing");
+        gameProvider();
+
+        overlapModInit().execute(() -> {
+            ModInitPatch.startModInit(() -> {
+                throw exception;
+            });
+            assertSame(exception, assertThrows(IllegalStateException.class, ModInitPatch::gameInitialized));
+
+            ModInitPatch.startModInit(() -> {
+                throw error;
+            });
+            assertSame(error, assertThrows(NoClassDefFoundError.class, ModInitPatch::gameInitialized));
+            verifyNoInteractions(transformerMock);
+
+            // the transformer only learns about the end of startup once the entrypoints got through
+            ModInitPatch.startModInit(() -> {});
+            ModInitPatch.gameInitialized();
+        });
+
+        verify(transformerMock, times(1)).gameInitialized();
+    }
+
+    @Test
+    void startModInit_withoutOverlap_runsEntrypointsRightAway() {
+        gameProvider();
+        deferredEntrypoints(List.of());
+        Thread caller = Thread.currentThread();
+        List<Thread> threads = new ArrayList<>();
+        RuntimeException exception = new IllegalStateException("mod init failed");
+
+        ModInitPatch.startModInit(() -> threads.add(Thread.currentThread()));
+        assertEquals(List.of(caller), threads);
+        assertSame(
+                exception,
+                assertThrows(IllegalStateException.class, () -> ModInitPatch.startModInit(() -> {
+                    throw exception;
+                })));
+
+        ModInitPatch.gameInitialized();
+        verify(transformerMock).gameInitialized();
+    }
+
+    @Test
+    void gameInitialized_fromTheCopyKnotLoaded_reachesTheTransformerOfTheProvider() throws Exception {
+        // the copy Knot loads can only forward to the copy of the system class loader
+        assumeTrue(ModInitPatch.class.getClassLoader() == ClassLoader.getSystemClassLoader());
+        gameProvider();
+        deferredEntrypoints(List.of());
+
+        try (URLClassLoader knot = knotClassLoader()) {
+            Class<?> knotCopy = Class.forName(ModInitPatch.class.getName(), true, knot);
+            assertNotSame(ModInitPatch.class, knotCopy);
+
+            knotCopy.getMethod(ModInitPatch.GAME_INITIALIZED_METHOD_NAME).invoke(null);
+        }
+
+        verify(transformerMock).gameInitialized();
+    }
+
+    @Test
+    void gameInitialized_startsDeferredEntrypointsOnceInDependencyOrderOffTheMainThread() throws Exception {
+        Thread caller = Thread.currentThread();
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        ModContainer base = mod("base", true);
+        ModContainer addon = mod("addon", false, "base");
+        gameProvider();
+        doAnswer((invocation) -> events.add("transformer")).when(transformerMock).gameInitialized();
+        deferredEntrypoints(List.of(
+                deferred(base, () -> {
+                    sleep(50);
+                    threads.add(Thread.currentThread());
+                    events.add("base");
+                }),
+                deferred(addon, () -> {
+                    threads.add(Thread.currentThread());
+                    events.add("addon");
+                })));
+
+        CompletableFuture<Void> completion = DeferredInitialization.completion();
+        assertFalse(completion.isDone());
+        verifyNoInteractions(loaderMock);
+
+        ModInitPatch.gameInitialized();
+        completion.get(10, TimeUnit.SECONDS);
+        ModInitPatch.gameInitialized();
+
+        // the transformer hears about the end of startup on every call, before the deferred entrypoints start
+        assertEquals(List.of("transformer", "base", "addon", "transformer"), events);
+        assertEquals(2, threads.size());
+        assertFalse(threads.contains(caller), "deferred entrypoints ran on the main thread");
+        verify(loaderMock, times(1)).getEntrypointContainers(DeferredInitializer.ENTRYPOINT, DeferredInitializer.class);
+    }
+
+    @Test
+    void runDeferredEntrypoints_logsFailuresAndCompletesTheModExceptionally() {
+        RuntimeException failure = new IllegalStateException("deferred init failed");
+        ModContainer failing = mod("failing", false);
+        ModContainer other = mod("other", false);
+        Map<ModContainer, List<EntrypointContainer<DeferredInitializer>>> containersByMod = new LinkedHashMap<>();
+        containersByMod.put(failing, List.of(deferred(failing, () -> {
+            throw failure;
+        })));
+        containersByMod.put(other, List.of(deferred(other, () -> events.add("other"))));
+
+        assertDoesNotThrow(() -> ModInitPatch.runDeferredEntrypoints(containersByMod));
+
+        assertEquals(List.of("other"), events);
+        ExecutionException modFailure =
+                assertThrows(ExecutionException.class, () -> DeferredInitialization.completion("failing").get());
+        assertSame(failure, modFailure.getCause());
+        assertDoesNotThrow(() -> DeferredInitialization.completion("other").get());
+        ExecutionException allFailure =
+                assertThrows(ExecutionException.class, () -> DeferredInitialization.completion().get());
+        assertSame(failure, allFailure.getCause());
+        logMock.verify(() -> Log.error(eq(LogCategory.ENTRYPOINT), anyString(), same(failure)));
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.patch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.rhm176.silk.loader.patch.ModInitScheduler.ModInit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class ModInitSchedulerTest {
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+    private ModInit serial(String modId, String... dependencies) {
+        return new ModInit(modId, Set.of(), List.of(dependencies), false, () -> events.add(modId));
+    }
+
+    @Test
+    void run_initializesSerialModsInOrderOnCallingThread() {
+        Thread caller = Thread.currentThread();
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+
+        ModInitScheduler.run(List.of(
+                serial("a"),
+                new ModInit("b", Set.of(), List.of(), false, () -> threads.add(Thread.currentThread())),
+                serial("c", "a")));
+
+        assertEquals(List.of("a", "c"), events);
+        assertEquals(List.of(caller), threads);
+    }
+
+    @Test
+    void run_initializesParallelModsAlongsideSerialModsAfterTheirDependencies() {
+        Thread caller = Thread.currentThread();
+        ClassLoader contextClassLoader = caller.getContextClassLoader();
+        CountDownLatch serialStarted = new CountDownLatch(1);
+        List<Boolean> overlapped = Collections.synchronizedList(new ArrayList<>());
+
+        ModInitScheduler.run(List.of(
+                serial("base"),
+                new ModInit("parallel", Set.of("parallel-api"), List.of("base"), true, () -> {
+                    events.add("parallel started");
+                    try {
+                        overlapped.add(serialStarted.await(10, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    overlapped.add(Thread.currentThread() != caller);
+                    overlapped.add(Thread.currentThread().getContextClassLoader() == contextClassLoader);
+                    events.add("parallel");
+                }),
+                new ModInit("serial", Set.of(), List.of(), false, () -> {
+                    serialStarted.countDown();
+                    events.add("serial");
+                }),
+                serial("after", "parallel-api")));
+
+        // the parallel mod waited for a later serial mod, which only works if it ran on another thread
+        assertEquals(List.of(true, true, true), overlapped);
+        assertEquals("base", events.get(0));
+        assertTrue(events.indexOf("parallel started") > 0);
+        // the serial mod waits for the parallel mod it depends on through a provided id
+        assertTrue(events.indexOf("after") > events.indexOf("parallel"));
+        assertTrue(events.contains("serial"));
+    }
+
+    @Test
+    void run_ignoresDependenciesOnLaterMods() {
+        ModInitScheduler.run(List.of(serial("a", "b"), serial("b", "a"), serial("c", "missing")));
+
+        assertEquals(List.of("a", "b", "c"), events);
+    }
+}
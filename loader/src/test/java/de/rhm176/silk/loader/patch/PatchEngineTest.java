@@ -0,0 +1,369 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.patch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.rhm176.silk.loader.patch.DeclarativePatch.Outcome;
+import de.rhm176.silk.loader.SilkProperties;
+import de.rhm176.silk.loader.index.CallSiteIndex;
+import de.rhm176.silk.loader.index.ClassHierarchyIndex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.MethodNode;
+import uk.org.webcompere.systemstubs.jupiter.SystemStubsExtension;
+import uk.org.webcompere.systemstubs.properties.SystemProperties;
+
+@ExtendWith(SystemStubsExtension.class)
+class PatchEngineTest {
+    private static final String TARGET_CLASS = "test/Target";
+    private static final String TARGET_CLASS_NAME = "test.Target";
+
+    private final List<Outcome> outcomes = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> foundMethods = Collections.synchronizedList(new ArrayList<>());
+
+    private DeclarativePatch patch(PatchDescriptor... descriptors) {
+        return new DeclarativePatch() {
+            @Override
+            public List<PatchDescriptor> descriptors() {
+                return List.of(descriptors);
+            }
+
+            @Override
+            protected void methodFound(
+                    PatchDescriptor descriptor, String className, String methodName, String methodDescriptor) {
+                foundMethods.add(className + "::" + methodName + methodDescriptor);
+            }
+
+            @Override
+            protected void finished(PatchDescriptor descriptor, String className, Outcome outcome) {
+                outcomes.add(outcome);
+            }
+        };
+    }
+
+    // matches ICONST_1, ICONST_2 and inserts a NOP before the ICONST_2
+    private static PatchDescriptor nopBeforeTwo(String methodName) {
+        return nopBeforeTwo(TARGET_CLASS, methodName);
+    }
+
+    private static PatchDescriptor nopBeforeTwo(String targetClass, String methodName) {
+        return new PatchDescriptor(
+                targetClass,
+                methodName,
+                "()V",
+                List.of(
+                        (instruction) -> instruction.getOpcode() == Opcodes.ICONST_1,
+                        (instruction) -> instruction.getOpcode() == Opcodes.ICONST_2),
+                List.of(PatchDescriptor.Insertion.before(
+                        1, 0, (methodVisitor) -> methodVisitor.visitInsn(Opcodes.NOP))));
+    }
+
+    private static byte[] createClass(Consumer<MethodVisitor> target, Consumer<MethodVisitor> other) {
+        return createClass(TARGET_CLASS, target, other);
+    }
+
+    private static byte[] createClass(String className, Consumer<MethodVisitor> target, Consumer<MethodVisitor> other) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, className, null, "java/lang/Object", null);
+        for (Map.Entry<String, Consumer<MethodVisitor>> method :
+                Map.of("target", target, "other", other).entrySet()) {
+            MethodVisitor methodVisitor =
+                    writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, method.getKey(), "()V", null, null);
+            methodVisitor.visitCode();
+            method.getValue().accept(methodVisitor);
+            methodVisitor.visitInsn(Opcodes.RETURN);
+            methodVisitor.visitMaxs(3, 0);
+            methodVisitor.visitEnd();
+        }
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static void pushes(MethodVisitor methodVisitor, int... opcodes) {
+        for (int opcode : opcodes) {
+            methodVisitor.visitInsn(opcode);
+        }
+    }
+
+    private static MethodNode method(byte[] bytes, String name) {
+        ClassNode classNode = new ClassNode();
+        new ClassReader(bytes).accept(classNode, 0);
+        return classNode.methods.stream()
+                .filter((method) -> method.name.equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static int[] opcodes(MethodNode method) {
+        return Arrays.stream(method.instructions.toArray())
+                .mapToInt(AbstractInsnNode::getOpcode)
+                .filter((opcode) -> opcode >= 0)
+                .toArray();
+    }
+
+    @Test
+    void apply_insertsAtFirstMatchAfterPartialMatch() throws Exception {
+        byte[] original = createClass(
+                (methodVisitor) -> pushes(
+                        methodVisitor, Opcodes.ICONST_1, Opcodes.ICONST_1, Opcodes.ICONST_2, Opcodes.ICONST_1),
+                (methodVisitor) -> pushes(methodVisitor, Opcodes.ICONST_1, Opcodes.ICONST_2));
+        PatchEngine engine = new PatchEngine(List.of(patch(nopBeforeTwo("target"))));
+
+        Map<String, byte[]> patched =
+                engine.apply((className) -> TARGET_CLASS_NAME.equals(className) ? original : null);
+
+        MethodNode target = method(patched.get(TARGET_CLASS_NAME), "target");
+        assertArrayEquals(
+                new int[] {
+                    Opcodes.ICONST_1, Opcodes.ICONST_1, Opcodes.NOP, Opcodes.ICONST_2, Opcodes.ICONST_1, Opcodes.RETURN
+                },
+                opcodes(target));
+        assertArrayEquals(
+                new int[] {Opcodes.ICONST_1, Opcodes.ICONST_2, Opcodes.RETURN},
+                opcodes(method(patched.get(TARGET_CLASS_NAME), "other")));
+        assertEquals(List.of(TARGET_CLASS + "::target()V"), foundMethods);
+        assertEquals(List.of(Outcome.APPLIED), outcomes);
+    }
+
+    @Test
+    void apply_reservesStackForInsertions() throws Exception {
+        byte[] original = createClass(
+                (methodVisitor) -> pushes(methodVisitor, Opcodes.ICONST_1, Opcodes.ICONST_2), (methodVisitor) -> {});
+        PatchDescriptor descriptor = new PatchDescriptor(
+                TARGET_CLASS,
+                "target",
+                null,
+                List.of((instruction) -> instruction.getOpcode() == Opcodes.ICONST_2),
+                List.of(PatchDescriptor.Insertion.after(0, 2, (methodVisitor) -> {
+                    methodVisitor.visitInsn(Opcodes.DUP2);
+                    methodVisitor.visitInsn(Opcodes.POP2);
+                })));
+
+        Map<String, byte[]> patched = new PatchEngine(List.of(patch(descriptor))).apply((className) -> original);
+
+        MethodNode target = method(patched.get(TARGET_CLASS_NAME), "target");
+        assertEquals(5, target.maxStack);
+        assertArrayEquals(
+                new int[] {Opcodes.ICONST_1, Opcodes.ICONST_2, Opcodes.DUP2, Opcodes.POP2, Opcodes.RETURN},
+                opcodes(target));
+    }
+
+    @Test
+    void apply_lineNumberBreaksMatch() throws Exception {
+        byte[] original = createClass(
+                (methodVisitor) -> {
+                    Label line = new Label();
+                    methodVisitor.visitInsn(Opcodes.ICONST_1);
+                    methodVisitor.visitLabel(line);
+                    methodVisitor.visitLineNumber(2, line);
+                    methodVisitor.visitInsn(Opcodes.ICONST_2);
+                },
+                (methodVisitor) -> {});
+
+        Map<String, byte[]> patched =
+                new PatchEngine(List.of(patch(nopBeforeTwo("target")))).apply((className) -> original);
+
+        assertTrue(patched.isEmpty());
+        assertEquals(List.of(Outcome.PATTERN_NOT_FOUND), outcomes);
+    }
+
+    @Test
+    void apply_reportsMissingMethodAndClass() throws Exception {
+        byte[] original = createClass((methodVisitor) -> {}, (methodVisitor) -> {});
+        PatchEngine engine = new PatchEngine(List.of(patch(nopBeforeTwo("missing"))));
+
+        assertTrue(engine.apply((className) -> original).isEmpty());
+        assertTrue(engine.apply((className) -> null).isEmpty());
+
+        assertEquals(List.of(Outcome.METHOD_NOT_FOUND, Outcome.CLASS_NOT_FOUND), outcomes);
+        assertTrue(foundMethods.isEmpty());
+    }
+
+    @Test
+    void apply_appliesAllDescriptorsOfAClassInOnePass() throws Exception {
+        byte[] original = createClass(
+                (methodVisitor) -> pushes(methodVisitor, Opcodes.ICONST_1, Opcodes.ICONST_2),
+                (methodVisitor) -> pushes(methodVisitor, Opcodes.ICONST_1, Opcodes.ICONST_2));
+        List<String> reads = new ArrayList<>();
+        PatchEngine engine = new PatchEngine(List.of(patch(nopBeforeTwo("target")), patch(nopBeforeTwo("other"))));
+
+        Map<String, byte[]> patched = engine.apply((className) -> {
+            reads.add(className);
+            return original;
+        });
+
+        assertEquals(List.of(TARGET_CLASS_NAME), reads);
+        for (String method : List.of("target", "other")) {
+            assertArrayEquals(
+                    new int[] {Opcodes.ICONST_1, Opcodes.NOP, Opcodes.ICONST_2, Opcodes.RETURN},
+                    opcodes(method(patched.get(TARGET_CLASS_NAME), method)));
+        }
+        assertEquals(List.of(Outcome.APPLIED, Outcome.APPLIED), outcomes);
+    }
+
+    @Test
+    void apply_returnsSameClassesInTargetOrderWhenSingleThreaded() throws Exception {
+        Map<String, byte[]> classes = new HashMap<>();
+        List<DeclarativePatch> patches = new ArrayList<>();
+        List<String> classNames = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String className = TARGET_CLASS + i;
+            classNames.add(className.replace('/', '.'));
+            classes.put(
+                    className.replace('/', '.'),
+                    createClass(
+                            className,
+                            (methodVisitor) -> pushes(methodVisitor, Opcodes.ICONST_1, Opcodes.ICONST_2),
+                            (methodVisitor) -> {}));
+            patches.add(patch(nopBeforeTwo(className, "target")));
+        }
+        PatchEngine engine = new PatchEngine(patches);
+
+        Map<String, byte[]> parallel = engine.apply(classes::get);
+        Map<String, byte[]> singleThreaded = new SystemProperties(SilkProperties.SINGLE_THREADED_PATCHING, "true")
+                .execute(() -> engine.apply(classes::get));
+
+        assertEquals(classNames, new ArrayList<>(engine.targetClasses()));
+        assertEquals(classNames, new ArrayList<>(parallel.keySet()));
+        assertEquals(classNames, new ArrayList<>(singleThreaded.keySet()));
+        for (String className : classNames) {
+            assertArrayEquals(singleThreaded.get(className), parallel.get(className));
+        }
+    }
+
+    @Test
+    void apply_onlyLooksForAnchorsTheCallSiteIndexKnows() throws Exception {
+        byte[] original = createClass(
+                (methodVisitor) -> methodVisitor.visitMethodInsn(
+                        Opcodes.INVOKESTATIC, "gameManaging/GameManager", "init", "()V", false),
+                (methodVisitor) -> pushes(methodVisitor, Opcodes.ICONST_1, Opcodes.ICONST_2));
+        PatchDescriptor anchored = new PatchDescriptor(
+                TARGET_CLASS,
+                "target",
+                "()V",
+                List.of(PatchDescriptor.invokeStatic("gameManaging/GameManager", "init", "()V")),
+                List.of(PatchDescriptor.Insertion.before(
+                        0, 0, (methodVisitor) -> methodVisitor.visitInsn(Opcodes.NOP))));
+
+        // an index without any calls proves the class can't match, so it isn't searched
+        assertTrue(new PatchEngine(List.of(patch(anchored)))
+                .apply((className) -> original, CallSiteIndex.EMPTY)
+                .isEmpty());
+        assertEquals(List.of(TARGET_CLASS + "::target()V"), foundMethods);
+        assertEquals(List.of(Outcome.PATTERN_NOT_FOUND), outcomes);
+
+        // patterns without a method call are searched either way
+        Map<String, byte[]> patched = new PatchEngine(List.of(patch(anchored, nopBeforeTwo("other"))))
+                .apply((className) -> original, CallSiteIndex.EMPTY);
+        assertArrayEquals(
+                new int[] {Opcodes.ICONST_1, Opcodes.NOP, Opcodes.ICONST_2, Opcodes.RETURN},
+                opcodes(method(patched.get(TARGET_CLASS_NAME), "other")));
+        assertEquals(List.of(Outcome.PATTERN_NOT_FOUND, Outcome.PATTERN_NOT_FOUND, Outcome.APPLIED), outcomes);
+    }
+
+    @Test
+    void apply_computesFramesOfBranchingInsertionsWithoutLoadingClasses() throws Exception {
+        byte[] original = createClass(
+                (methodVisitor) -> pushes(methodVisitor, Opcodes.ICONST_1, Opcodes.POP), (methodVisitor) -> {});
+        Map<String, byte[]> classes = Map.of(
+                TARGET_CLASS_NAME, original,
+                "test.Base", createClass("test/Base", (methodVisitor) -> {}, (methodVisitor) -> {}),
+                "test.Left", createSubclass("test/Left"),
+                "test.Right", createSubclass("test/Right"));
+        // pushes a Left or a Right, so the frame after the branches has to hold their common superclass
+        PatchDescriptor descriptor = new PatchDescriptor(
+                TARGET_CLASS,
+                "target",
+                "()V",
+                List.of((instruction) -> instruction.getOpcode() == Opcodes.POP),
+                List.of(PatchDescriptor.Insertion.after(0, 1, (methodVisitor) -> {
+                            Label right = new Label();
+                            Label end = new Label();
+                            methodVisitor.visitInsn(Opcodes.ICONST_0);
+                            methodVisitor.visitJumpInsn(Opcodes.IFEQ, right);
+                            methodVisitor.visitInsn(Opcodes.ACONST_NULL);
+                            methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, "test/Left");
+                            methodVisitor.visitJumpInsn(Opcodes.GOTO, end);
+                            methodVisitor.visitLabel(right);
+                            methodVisitor.visitInsn(Opcodes.ACONST_NULL);
+                            methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, "test/Right");
+                            methodVisitor.visitLabel(end);
+                            methodVisitor.visitInsn(Opcodes.POP);
+                        })
+                        .branching()));
+
+        AtomicInteger hierarchyLoads = new AtomicInteger();
+        Map<String, byte[]> patched = new PatchEngine(List.of(patch(descriptor))).apply(classes::get, null, () -> {
+            hierarchyLoads.incrementAndGet();
+            return null;
+        });
+
+        assertEquals(1, hierarchyLoads.get());
+        List<Object> mergedStack = Arrays.stream(method(patched.get(TARGET_CLASS_NAME), "target")
+                        .instructions
+                        .toArray())
+                .filter((instruction) -> instruction instanceof FrameNode)
+                .map((instruction) -> ((FrameNode) instruction).stack)
+                .filter((stack) -> stack != null && !stack.isEmpty())
+                .findFirst()
+                .orElseThrow();
+        assertEquals(List.of("test/Base"), mergedStack);
+        assertEquals(List.of(Outcome.APPLIED), outcomes);
+    }
+
+    @Test
+    void apply_onlyLoadsClassHierarchyForBranchingInsertions() throws Exception {
+        byte[] original = createClass(
+                (methodVisitor) -> pushes(methodVisitor, Opcodes.ICONST_1, Opcodes.ICONST_2), (methodVisitor) -> {});
+        AtomicInteger hierarchyLoads = new AtomicInteger();
+        Supplier<ClassHierarchyIndex> classHierarchy = () -> {
+            hierarchyLoads.incrementAndGet();
+            return null;
+        };
+
+        Map<String, byte[]> patched = new PatchEngine(List.of(patch(nopBeforeTwo("target"))))
+                .apply((className) -> original, null, classHierarchy);
+
+        assertEquals(List.of(Outcome.APPLIED), outcomes);
+        assertTrue(patched.containsKey(TARGET_CLASS_NAME));
+        assertEquals(0, hierarchyLoads.get());
+    }
+
+    private static byte[] createSubclass(String className) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, className, null, "test/Base", null);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
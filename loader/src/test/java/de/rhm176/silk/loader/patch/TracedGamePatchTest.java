@@ -0,0 +1,50 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.patch;
+
+import static org.mockito.Mockito.*;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+import net.fabricmc.loader.impl.game.patch.GamePatch;
+import net.fabricmc.loader.impl.launch.FabricLauncher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.objectweb.asm.tree.ClassNode;
+
+@ExtendWith(MockitoExtension.class)
+class TracedGamePatchTest {
+    @Mock
+    private GamePatch patchMock;
+
+    @Mock
+    private FabricLauncher launcherMock;
+
+    @Mock
+    private Function<String, ClassNode> classSourceMock;
+
+    @Mock
+    private Consumer<ClassNode> classEmitterMock;
+
+    @Test
+    void process_delegatesToPatch() {
+        new TracedGamePatch(patchMock).process(launcherMock, classSourceMock, classEmitterMock);
+
+        verify(patchMock).process(launcherMock, classSourceMock, classEmitterMock);
+    }
+}
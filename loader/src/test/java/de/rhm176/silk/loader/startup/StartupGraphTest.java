@@ -0,0 +1,152 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.startup;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.rhm176.silk.loader.startup.StartupGraph.Node;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+class StartupGraphTest {
+    @Test
+    void add_runsStepsAfterTheirDependencies() throws Exception {
+        StartupGraph graph = new StartupGraph("test");
+
+        Node<Integer> first = graph.add("first", () -> 1);
+        Node<Integer> second = graph.add("second", () -> 2);
+        Node<Integer> sum = graph.add("sum", () -> first.join() + second.join(), first, second);
+
+        assertEquals(3, sum.get());
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertTrue(sum.startOffsetNanos() >= first.startOffsetNanos() + first.durationNanos());
+    }
+
+    @Test
+    void add_runsIndependentStepsConcurrently() throws Exception {
+        StartupGraph graph = new StartupGraph("test");
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        Node<Boolean> first = graph.add("first", () -> {
+            bothStarted.countDown();
+            return bothStarted.await(10, TimeUnit.SECONDS);
+        });
+        Node<Boolean> second = graph.add("second", () -> {
+            bothStarted.countDown();
+            return bothStarted.await(10, TimeUnit.SECONDS);
+        });
+
+        assertTrue(first.get());
+        assertTrue(second.get());
+    }
+
+    @Test
+    void get_rethrowsFailureOfDependency() {
+        StartupGraph graph = new StartupGraph("test");
+        IOException failure = new IOException("broken");
+        AtomicBoolean dependentRan = new AtomicBoolean();
+
+        Node<String> failing = graph.add("failing", () -> {
+            throw failure;
+        });
+        Node<String> dependent = graph.add(
+                "dependent",
+                () -> {
+                    dependentRan.set(true);
+                    return failing.join();
+                },
+                failing);
+
+        assertSame(failure, assertThrows(IOException.class, failing::get));
+        assertSame(failure, assertThrows(IOException.class, dependent::get));
+        assertFalse(dependentRan.get());
+    }
+
+    @Test
+    void join_rethrowsUncheckedExceptions() {
+        StartupGraph graph = new StartupGraph("test");
+        IllegalStateException failure = new IllegalStateException("broken");
+
+        Node<String> failing = graph.add("failing", () -> {
+            throw failure;
+        });
+
+        assertSame(failure, assertThrows(IllegalStateException.class, failing::join));
+    }
+
+    @Test
+    void join_wrapsCheckedExceptions() {
+        StartupGraph graph = new StartupGraph("test");
+        IOException failure = new IOException("broken");
+
+        Node<String> failing = graph.add("failing", () -> {
+            throw failure;
+        });
+
+        StartupGraph.StartupException exception =
+                assertThrows(StartupGraph.StartupException.class, failing::join);
+        assertSame(failure, exception.getCause());
+        assertTrue(exception.getMessage().contains("failing"));
+    }
+
+    @Test
+    void seal_completesOnceAllStepsFinished() throws Exception {
+        StartupGraph graph = new StartupGraph("test");
+        CountDownLatch release = new CountDownLatch(1);
+
+        Node<String> slow = graph.add("slow", () -> {
+            release.await();
+            return "done";
+        });
+        graph.add("failing", () -> {
+            throw new IOException("broken");
+        });
+
+        var sealed = graph.seal();
+        assertFalse(sealed.isDone());
+        assertThrows(IllegalStateException.class, () -> graph.add("late", () -> "late"));
+
+        release.countDown();
+        sealed.get(10, TimeUnit.SECONDS);
+        assertEquals("done", slow.get());
+    }
+
+    @Test
+    void printTimings_listsFinishedSteps() throws Exception {
+        StartupGraph graph = new StartupGraph("test");
+        graph.add("ok", () -> "ok");
+        graph.add("failing", () -> {
+            throw new IOException("broken");
+        });
+        graph.seal().get(10, TimeUnit.SECONDS);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        graph.printTimings(new PrintStream(out, true, StandardCharsets.UTF_8));
+        String timings = out.toString(StandardCharsets.UTF_8);
+
+        assertTrue(timings.contains("[Silk] Startup step ok took"));
+        assertTrue(timings.contains("[Silk] Startup step failing took"));
+        assertTrue(timings.contains(", failed"));
+        assertEquals(2, graph.nodes().size());
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.trace;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class EntrypointProfilerTest {
+    @Test
+    void results_sumsEntrypointsOfEachModSlowestFirst() throws InterruptedException {
+        EntrypointProfiler profiler = new EntrypointProfiler("main");
+
+        try (EntrypointProfiler.Measurement ignored = profiler.measure("fast")) {
+            // nothing to do
+        }
+        try (EntrypointProfiler.Measurement ignored = profiler.measure("slow")) {
+            Thread.sleep(20);
+        }
+        try (EntrypointProfiler.Measurement ignored = profiler.measure("fast")) {
+            byte[] allocated = new byte[1 << 20];
+            assertEquals(0, allocated[0]);
+        }
+
+        List<EntrypointProfiler.Result> results = profiler.results();
+        assertEquals(List.of("slow", "fast"), results.stream().map(EntrypointProfiler.Result::modId).toList());
+        assertTrue(results.get(0).wallTime() >= 20_000_000L);
+        EntrypointProfiler.Result fast = results.get(1);
+        assertTrue(fast.allocated() == -1 || fast.allocated() >= 1 << 20);
+        assertTrue(fast.cpuTime() >= -1);
+    }
+
+    @Test
+    void measure_recordsOnceWhenClosedTwice() {
+        EntrypointProfiler profiler = new EntrypointProfiler("main");
+
+        EntrypointProfiler.Measurement measurement = profiler.measure("mod");
+        measurement.close();
+        long wallTime = profiler.results().get(0).wallTime();
+        measurement.close();
+
+        assertEquals(1, profiler.results().size());
+        assertEquals(wallTime, profiler.results().get(0).wallTime());
+    }
+
+    @Test
+    void results_areEmptyWithoutMeasurements() {
+        assertEquals(List.of(), new EntrypointProfiler("main").results());
+    }
+}
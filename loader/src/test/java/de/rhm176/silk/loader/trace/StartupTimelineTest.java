@@ -0,0 +1,148 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.trace;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.rhm176.silk.loader.trace.StartupTimeline.Phase;
+import de.rhm176.silk.loader.trace.StartupTimeline.Span;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StartupTimelineTest {
+    @TempDir
+    Path tempDir;
+
+    private static List<JsonObject> readEvents(Path file) throws IOException {
+        JsonArray events =
+                JsonParser.parseString(Files.readString(file)).getAsJsonObject().getAsJsonArray("traceEvents");
+        List<JsonObject> result = new ArrayList<>();
+        for (JsonElement event : events) {
+            result.add(event.getAsJsonObject());
+        }
+        return result;
+    }
+
+    private static JsonObject findEvent(List<JsonObject> events, String name) {
+        return events.stream()
+                .filter(event -> event.get("name").getAsString().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No event named " + name));
+    }
+
+    @Test
+    void begin_recordsEndedPhases() {
+        StartupTimeline timeline = new StartupTimeline(true);
+
+        Phase outer = timeline.begin("launch", "outer");
+        try (Phase inner = timeline.begin("step", "inner")) {
+            assertTrue(timeline.spans().isEmpty());
+        }
+        outer.close();
+        outer.close();
+
+        List<Span> spans = timeline.spans();
+        assertEquals(2, spans.size());
+        assertEquals("inner", spans.get(0).name());
+        assertEquals("step", spans.get(0).category());
+        assertEquals("outer", spans.get(1).name());
+        assertEquals(Thread.currentThread().getName(), spans.get(1).threadName());
+        assertTrue(spans.get(1).startNanos() <= spans.get(0).startNanos());
+        assertTrue(spans.get(1).durationNanos() >= spans.get(0).durationNanos());
+    }
+
+    @Test
+    void begin_notRecording_keepsNoSpans() {
+        StartupTimeline timeline = new StartupTimeline(false);
+
+        timeline.begin("launch", "phase").close();
+
+        assertTrue(timeline.spans().isEmpty());
+    }
+
+    @Test
+    void writeChromeTrace_writesCompleteEvents() throws IOException {
+        StartupTimeline timeline = new StartupTimeline(true);
+        timeline.begin("launch", "discovery").close();
+        Path file = tempDir.resolve("traces").resolve("startup.json");
+
+        timeline.writeChromeTrace(file, false);
+
+        List<JsonObject> events = readEvents(file);
+        JsonObject discovery = findEvent(events, "discovery");
+        assertEquals("launch", discovery.get("cat").getAsString());
+        assertEquals("X", discovery.get("ph").getAsString());
+        assertEquals(ProcessHandle.current().pid(), discovery.get("pid").getAsLong());
+        assertTrue(discovery.get("ts").getAsDouble() > 0);
+        assertTrue(discovery.get("dur").getAsDouble() >= 0);
+
+        JsonObject threadName = findEvent(events, "thread_name");
+        assertEquals(discovery.get("tid").getAsLong(), threadName.get("tid").getAsLong());
+        assertEquals(
+                Thread.currentThread().getName(),
+                threadName.getAsJsonObject("args").get("name").getAsString());
+        assertEquals("M", findEvent(events, "process_name").get("ph").getAsString());
+    }
+
+    @Test
+    void writeChromeTrace_replacesExistingTrace() throws IOException {
+        Path file = tempDir.resolve("startup.json");
+        Files.writeString(file, "{\"traceEvents\":[{\"name\":\"child\",\"ph\":\"X\",\"ts\":1,\"dur\":1}]}");
+        StartupTimeline timeline = new StartupTimeline(true);
+        timeline.begin("launch", "relaunch").close();
+
+        timeline.writeChromeTrace(file, false);
+
+        List<JsonObject> events = readEvents(file);
+        assertTrue(events.stream().noneMatch(event -> event.get("name").getAsString().equals("child")));
+        findEvent(events, "relaunch");
+    }
+
+    @Test
+    void writeChromeTrace_includesExistingTrace() throws IOException {
+        Path file = tempDir.resolve("startup.json");
+        Files.writeString(file, "{\"traceEvents\":[{\"name\":\"child\",\"ph\":\"X\",\"ts\":1,\"dur\":1}]}");
+        StartupTimeline timeline = new StartupTimeline(true);
+        timeline.begin("launch", "relaunch").close();
+
+        timeline.writeChromeTrace(file, true);
+
+        List<JsonObject> events = readEvents(file);
+        assertEquals(1, findEvent(events, "child").get("ts").getAsLong());
+        findEvent(events, "relaunch");
+    }
+
+    @Test
+    void writeChromeTrace_ignoresUnreadableExistingTrace() throws IOException {
+        Path file = tempDir.resolve("startup.json");
+        Files.writeString(file, "not a trace");
+        StartupTimeline timeline = new StartupTimeline(true);
+        timeline.begin("launch", "relaunch").close();
+
+        timeline.writeChromeTrace(file, true);
+
+        findEvent(readEvents(file), "relaunch");
+    }
+}
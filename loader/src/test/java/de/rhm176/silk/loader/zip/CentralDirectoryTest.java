@@ -0,0 +1,99 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.zip;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CentralDirectoryTest {
+    @TempDir
+    Path tempDir;
+
+    private Path createZip(String name, List<String> entries, String content) throws IOException {
+        Path zipPath = tempDir.resolve(name);
+        try (OutputStream os = Files.newOutputStream(zipPath);
+                ZipOutputStream zos = new ZipOutputStream(os)) {
+            for (String entry : entries) {
+                zos.putNextEntry(new ZipEntry(entry));
+                zos.write(content.getBytes(StandardCharsets.UTF_8));
+                zos.closeEntry();
+            }
+            zos.setComment("a comment after the central directory");
+        }
+        return zipPath;
+    }
+
+    @Test
+    void read_readsEntryCount() throws IOException {
+        Path zip = createZip("test.zip", List.of("a.txt", "b/c.txt", "d.class"), "content");
+
+        assertEquals(3, CentralDirectory.read(zip).entryCount());
+    }
+
+    @Test
+    void contains_findsExistingEntries() throws IOException {
+        Path zip = createZip("test.zip", List.of("main/MainApp.class", "main/FirstScreenUi.class", "x.txt"), "");
+        CentralDirectory centralDirectory = CentralDirectory.read(zip);
+
+        assertTrue(centralDirectory.contains("main/MainApp.class"));
+        assertTrue(centralDirectory.contains("main/FirstScreenUi.class"));
+        assertTrue(centralDirectory.contains("x.txt"));
+        assertFalse(centralDirectory.contains("main/MainApp"));
+        assertFalse(centralDirectory.contains("MainApp.class"));
+    }
+
+    @Test
+    void contains_emptyArchive() throws IOException {
+        Path zip = createZip("empty.zip", List.of(), "");
+
+        assertFalse(CentralDirectory.read(zip).contains("main/MainApp.class"));
+    }
+
+    @Test
+    void fingerprint_sameContentSameFingerprint() throws IOException {
+        Path first = createZip("first.zip", List.of("a.txt", "b.txt"), "content");
+        Path second = createZip("second.zip", List.of("a.txt", "b.txt"), "content");
+
+        assertEquals(CentralDirectory.read(first).fingerprint(), CentralDirectory.read(second).fingerprint());
+    }
+
+    @Test
+    void fingerprint_differentContentDifferentFingerprint() throws IOException {
+        Path first = createZip("first.zip", List.of("a.txt"), "content");
+        Path second = createZip("second.zip", List.of("a.txt"), "other content");
+
+        assertNotEquals(CentralDirectory.read(first).fingerprint(), CentralDirectory.read(second).fingerprint());
+    }
+
+    @Test
+    void read_throwsForNonZipFile() throws IOException {
+        Path notAZip = tempDir.resolve("not-a-zip.jar");
+        Files.writeString(notAZip, "definitely not a zip archive");
+
+        assertThrows(ZipException.class, () -> CentralDirectory.read(notAZip));
+    }
+}
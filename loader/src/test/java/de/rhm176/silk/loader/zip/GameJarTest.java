@@ -0,0 +1,131 @@
+/*
+ * Copyright 2025 Silk Loader
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.rhm176.silk.loader.zip;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GameJarTest {
+    private static final String CONTENT = "some content that compresses some content that compresses";
+
+    @TempDir
+    Path tempDir;
+
+    private Path createJar(String name) throws IOException {
+        Path jarPath = tempDir.resolve(name);
+        byte[] content = CONTENT.getBytes(StandardCharsets.UTF_8);
+        try (OutputStream os = Files.newOutputStream(jarPath);
+                ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.putNextEntry(new ZipEntry("deflated.txt"));
+            zos.write(content);
+            zos.closeEntry();
+
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            ZipEntry stored = new ZipEntry("dir/stored.txt");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(content.length);
+            stored.setCrc(crc.getValue());
+            zos.putNextEntry(stored);
+            zos.write(content);
+            zos.closeEntry();
+
+            zos.putNextEntry(new ZipEntry("empty.txt"));
+            zos.closeEntry();
+        }
+        return jarPath;
+    }
+
+    @Test
+    void read_readsDeflatedAndStoredEntries() throws IOException {
+        GameJar gameJar = GameJar.open(createJar("game.jar"));
+
+        assertEquals(CONTENT, new String(gameJar.read("deflated.txt"), StandardCharsets.UTF_8));
+        assertEquals(CONTENT, new String(gameJar.read("dir/stored.txt"), StandardCharsets.UTF_8));
+        assertEquals(0, gameJar.read("empty.txt").length);
+    }
+
+    @Test
+    void read_reusesPooledInflatersAcrossReads() throws IOException {
+        GameJar gameJar = GameJar.open(createJar("game.jar"));
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(CONTENT, new String(gameJar.read("deflated.txt"), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void readBuffer_viewsStoredEntriesAndInflatesDeflatedOnes() throws IOException {
+        GameJar gameJar = GameJar.open(createJar("game.jar"));
+
+        ByteBuffer stored = gameJar.readBuffer("dir/stored.txt");
+        assertTrue(stored.isReadOnly());
+        assertEquals(CONTENT, StandardCharsets.UTF_8.decode(stored).toString());
+
+        ByteBuffer deflated = gameJar.readBuffer("deflated.txt");
+        assertTrue(deflated.isReadOnly());
+        assertEquals(CONTENT, StandardCharsets.UTF_8.decode(deflated).toString());
+
+        assertThrows(NoSuchFileException.class, () -> gameJar.readBuffer("missing.txt"));
+    }
+
+    @Test
+    void read_missingEntry() throws IOException {
+        GameJar gameJar = GameJar.open(createJar("game.jar"));
+
+        assertThrows(NoSuchFileException.class, () -> gameJar.read("missing.txt"));
+    }
+
+    @Test
+    void open_reusesScanOfUnchangedJar() throws IOException {
+        Path jar = createJar("game.jar");
+
+        GameJar first = GameJar.open(jar);
+        assertSame(first, GameJar.open(jar));
+        assertEquals(first.fingerprint(), GameJar.open(jar).fingerprint());
+    }
+
+    @Test
+    void open_rescansChangedJar() throws IOException {
+        Path jar = createJar("game.jar");
+        GameJar first = GameJar.open(jar);
+
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() - 10_000));
+
+        assertNotSame(first, GameJar.open(jar));
+    }
+
+    @Test
+    void open_acceptsCentralDirectoryFromProbe() throws IOException {
+        Path jar = createJar("probed.jar");
+        CentralDirectory centralDirectory = CentralDirectory.read(jar);
+
+        assertSame(centralDirectory, GameJar.open(jar, centralDirectory).centralDirectory());
+    }
+}